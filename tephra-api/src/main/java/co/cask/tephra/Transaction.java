@@ -34,6 +34,8 @@ public class Transaction {
   private final long[] checkpointWritePointers;
 
   private VisibilityLevel visibilityLevel = VisibilityLevel.SNAPSHOT;
+  // sorted union of the invalid and in-progress transactions, built on first use
+  private volatile long[] excludes;
 
   private static final long[] NO_EXCLUDES = { };
   public static final long NO_TX_IN_PROGRESS = Long.MAX_VALUE;
@@ -203,8 +205,7 @@ public class Transaction {
    * invalid transactions).
    */
   public boolean isExcluded(long version) {
-    return Arrays.binarySearch(inProgress, version) >= 0
-      || Arrays.binarySearch(invalids, version) >= 0;
+    return contains(getExcludes(), version);
   }
 
   /**
@@ -212,7 +213,7 @@ public class Transaction {
    * transaction.
    */
   public boolean isCheckpoint(long version) {
-    return Arrays.binarySearch(checkpointWritePointers, version) >= 0;
+    return contains(checkpointWritePointers, version);
   }
 
   /**
@@ -232,6 +233,64 @@ public class Transaction {
             (visibilityLevel != VisibilityLevel.SNAPSHOT_EXCLUDE_CURRENT || writePointer != version));
   }
 
+  /**
+   * Returns the largest version below the given version that may be visible to this transaction, skipping all
+   * versions in between that are known to be invisible: versions above the read pointer that were not written by
+   * this transaction, and runs of consecutive excluded versions. Since versions of a cell are stored in descending
+   * order, this is the next version that needs to be checked for visibility.
+   *
+   * @param version the data version that is not visible
+   * @return the next version that may be visible, or a negative value if no smaller version is visible
+   */
+  public long getNextVisibleCandidate(long version) {
+    long candidate = version - 1;
+    // the writes of the current transaction may be visible regardless of the read pointer and the excludes
+    long currentWrite = getLatestCurrentWrite(candidate);
+    if (candidate > readPointer) {
+      candidate = Math.max(readPointer, currentWrite);
+      if (candidate > readPointer) {
+        return candidate;
+      }
+    }
+    long[] sorted = getExcludes();
+    int index = Arrays.binarySearch(sorted, candidate);
+    if (index < 0) {
+      return candidate;
+    }
+    // find the first value of the run of consecutive excluded versions, excludes do not contain duplicates
+    int low = 0;
+    int high = index;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[index] - sorted[mid] == index - mid) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return Math.max(sorted[low] - 1, currentWrite);
+  }
+
+  /**
+   * Returns the largest version written by the current transaction that is not greater than the given version, or
+   * {@code -1} if there is none.
+   */
+  private long getLatestCurrentWrite(long version) {
+    long latest = -1;
+    if (writePointer <= version) {
+      latest = writePointer;
+    }
+    if (txId <= version) {
+      latest = Math.max(latest, txId);
+    }
+    for (long checkpoint : checkpointWritePointers) {
+      if (checkpoint <= version) {
+        latest = Math.max(latest, checkpoint);
+      }
+    }
+    return latest;
+  }
+
   /**
    * Returns whether the given version was written by the current transaction.
    *
@@ -256,6 +315,60 @@ public class Transaction {
     return visibilityLevel;
   }
 
+  /**
+   * Returns the invalid and in-progress transactions merged into a single sorted array.
+   */
+  private long[] getExcludes() {
+    long[] result = excludes;
+    if (result == null) {
+      result = merge(invalids, inProgress);
+      excludes = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether a sorted array contains a value. Values outside of the range of the array are rejected
+   * without searching, which is the common case for the versions read by a transaction.
+   */
+  private static boolean contains(long[] sorted, long value) {
+    int length = sorted.length;
+    if (length == 0 || value < sorted[0] || value > sorted[length - 1]) {
+      return false;
+    }
+    return Arrays.binarySearch(sorted, value) >= 0;
+  }
+
+  private static long[] merge(long[] first, long[] second) {
+    if (second.length == 0) {
+      return first;
+    }
+    if (first.length == 0) {
+      return second;
+    }
+    long[] merged = new long[first.length + second.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < first.length && j < second.length) {
+      if (first[i] < second[j]) {
+        merged[k++] = first[i++];
+      } else if (first[i] > second[j]) {
+        merged[k++] = second[j++];
+      } else {
+        merged[k++] = first[i++];
+        j++;
+      }
+    }
+    while (i < first.length) {
+      merged[k++] = first[i++];
+    }
+    while (j < second.length) {
+      merged[k++] = second[j++];
+    }
+    return k == merged.length ? merged : Arrays.copyOf(merged, k);
+  }
+
   public boolean hasExcludes() {
     return invalids.length > 0 || inProgress.length > 0;
   }
@@ -16,6 +16,7 @@
 
 package co.cask.tephra;
 
+import co.cask.tephra.util.TxUtils;
 import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.collect.Maps;
@@ -43,6 +44,11 @@ public abstract class AbstractTransactionAwareTable implements TransactionAware
   protected Transaction tx;
   protected boolean allowNonTransactional;
 
+  // the encoding of the last transaction added to an operation, shared by all operations of that transaction
+  private Transaction encodedTx;
+  private Transaction.VisibilityLevel encodedVisibilityLevel;
+  private byte[] encodedTxBytes;
+
   public AbstractTransactionAwareTable(TxConstants.ConflictDetection conflictLevel, boolean allowNonTransactional) {
     this.conflictLevel = conflictLevel;
     this.allowNonTransactional = allowNonTransactional;
@@ -69,11 +75,13 @@ public abstract class AbstractTransactionAwareTable implements TransactionAware
   @Override
   public void startTx(Transaction tx) {
     this.tx = tx;
+    clearEncodedTx();
   }
 
   @Override
   public void updateTx(Transaction tx) {
     this.tx = tx;
+    clearEncodedTx();
   }
 
   @Override
@@ -122,6 +130,7 @@ public abstract class AbstractTransactionAwareTable implements TransactionAware
   public void postTxCommit() {
     tx = null;
     changeSets.clear();
+    clearEncodedTx();
   }
 
   @Override
@@ -146,6 +155,37 @@ public abstract class AbstractTransactionAwareTable implements TransactionAware
    */
   protected abstract boolean doRollback() throws Exception;
 
+  /**
+   * Rejects writes while the current transaction is read-only. Such writes would appear as committed data to all
+   * transactions, and rolling them back would delete the latest committed version instead.
+   *
+   * @throws IOException if the current transaction is read-only
+   */
+  protected void ensureWritable() throws IOException {
+    if (tx != null && TxUtils.isReadOnly(tx)) {
+      throw new IOException("Cannot write with a read-only transaction");
+    }
+  }
+
+  /**
+   * Returns the serialized form of a transaction, to be added as an attribute to operations. The encoding is
+   * reused as long as the same transaction is passed with the same visibility level.
+   */
+  protected byte[] encodeTx(Transaction tx) throws IOException {
+    if (tx != encodedTx || tx.getVisibilityLevel() != encodedVisibilityLevel) {
+      encodedTxBytes = txCodec.encode(tx);
+      encodedTx = tx;
+      encodedVisibilityLevel = tx.getVisibilityLevel();
+    }
+    return encodedTxBytes;
+  }
+
+  private void clearEncodedTx() {
+    encodedTx = null;
+    encodedVisibilityLevel = null;
+    encodedTxBytes = null;
+  }
+
   protected void addToChangeSet(byte[] row, byte[] family, byte[] qualifier) {
     long currentWritePointer = tx.getWritePointer();
     Set<ActionChange> changeSet = changeSets.get(currentWritePointer);
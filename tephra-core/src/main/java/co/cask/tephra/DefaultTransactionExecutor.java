@@ -69,7 +69,7 @@ public class DefaultTransactionExecutor extends AbstractTransactionExecutor {
 
   @Override
   public <I, O> O execute(Function<I, O> function, I input) throws TransactionFailureException, InterruptedException {
-    return executeWithRetry(function, input);
+    return executeWithRetry(function, input, false);
   }
 
   @Override
@@ -106,13 +106,29 @@ public class DefaultTransactionExecutor extends AbstractTransactionExecutor {
     }, null);
   }
 
-  private <I, O> O executeWithRetry(Function<I, O> function, I input)
+  @Override
+  public <I, O> O executeReadOnly(Function<I, O> function, I input)
+    throws TransactionFailureException, InterruptedException {
+    return executeWithRetry(function, input, true);
+  }
+
+  @Override
+  public <O> O executeReadOnly(final Callable<O> callable) throws TransactionFailureException, InterruptedException {
+    return executeReadOnly(new Function<Void, O>() {
+      @Override
+      public O apply(Void input) throws Exception {
+        return callable.call();
+      }
+    }, null);
+  }
+
+  private <I, O> O executeWithRetry(Function<I, O> function, I input, boolean readOnly)
     throws TransactionFailureException, InterruptedException {
 
     int retries = 0;
     while (true) {
       try {
-        return executeOnce(function, input);
+        return executeOnce(function, input, readOnly);
       } catch (TransactionFailureException e) {
         long delay = retryStrategy.nextRetry(e, ++retries);
 
@@ -128,9 +144,14 @@ public class DefaultTransactionExecutor extends AbstractTransactionExecutor {
 
   }
 
-  private <I, O> O executeOnce(Function<I, O> function, I input) throws TransactionFailureException {
+  private <I, O> O executeOnce(Function<I, O> function, I input, boolean readOnly)
+    throws TransactionFailureException {
     TransactionContext txContext = new TransactionContext(txClient, txAwares);
-    txContext.start();
+    if (readOnly) {
+      txContext.startReadOnly();
+    } else {
+      txContext.start();
+    }
     O o = null;
     try {
       o = function.apply(input);
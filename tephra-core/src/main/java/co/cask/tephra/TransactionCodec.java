@@ -18,9 +18,10 @@ package co.cask.tephra;
 
 import co.cask.tephra.distributed.TransactionConverterUtils;
 import co.cask.tephra.distributed.thrift.TTransaction;
-import org.apache.thrift.TDeserializer;
 import org.apache.thrift.TException;
 import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TMemoryInputTransport;
 
 import java.io.IOException;
 
@@ -28,26 +29,30 @@ import java.io.IOException;
  * Handles serialization and deserialization of {@link co.cask.tephra.Transaction} instances to and from {@code byte[]}.
  */
 public class TransactionCodec {
+  // serializers are not thread safe, but can be reused
+  private static final ThreadLocal<TSerializer> SERIALIZER = new ThreadLocal<TSerializer>() {
+    @Override
+    protected TSerializer initialValue() {
+      return new TSerializer();
+    }
+  };
 
   public TransactionCodec() {
   }
 
   public byte[] encode(Transaction tx) throws IOException {
     TTransaction thriftTx = TransactionConverterUtils.wrap(tx);
-    TSerializer serializer = new TSerializer();
     try {
-      return serializer.serialize(thriftTx);
+      return SERIALIZER.get().serialize(thriftTx);
     } catch (TException te) {
       throw new IOException(te);
     }
   }
 
   public Transaction decode(byte[] encoded) throws IOException {
-    TTransaction thriftTx = new TTransaction();
-    TDeserializer deserializer = new TDeserializer();
+    // read directly into the transaction, without materializing the excludes as lists of boxed longs
     try {
-      deserializer.deserialize(thriftTx, encoded);
-      return TransactionConverterUtils.unwrap(thriftTx);
+      return TransactionConverterUtils.read(new TBinaryProtocol(new TMemoryInputTransport(encoded)));
     } catch (TException te) {
       throw new IOException(te);
     }
@@ -38,6 +38,7 @@ public class TransactionContext {
   private final TransactionSystemClient txClient;
 
   private Transaction currentTx;
+  private boolean readOnly;
 
   public TransactionContext(TransactionSystemClient txClient, TransactionAware... txAwares) {
     this(txClient, ImmutableList.copyOf(txAwares));
@@ -86,7 +87,28 @@ public class TransactionContext {
    *     TransactionAware
    */
   public void start() throws TransactionFailureException {
+    readOnly = false;
     currentTx = txClient.startShort();
+    startTxAwares();
+  }
+
+  /**
+   * Starts a new read-only transaction.  The transaction is obtained from
+   * {@link TransactionSystemClient#startReadOnly()}, and passed to {@link TransactionAware#startTx(Transaction)} for
+   * each registered TransactionAware.  A read-only transaction does not need to be committed with the transaction
+   * system: {@link #finish()} only verifies that none of the TransactionAwares has any changes, and {@link #abort()}
+   * only rolls back the TransactionAwares.
+   *
+   * @throws TransactionFailureException if an exception occurs starting the transaction with any registered
+   *     TransactionAware
+   */
+  public void startReadOnly() throws TransactionFailureException {
+    readOnly = true;
+    currentTx = txClient.startReadOnly();
+    startTxAwares();
+  }
+
+  private void startTxAwares() throws TransactionFailureException {
     for (TransactionAware txAware : txAwares) {
       try {
         txAware.startTx(currentTx);
@@ -94,7 +116,9 @@ public class TransactionContext {
         String message = String.format("Unable to start transaction-aware '%s' for transaction %d. ",
                                        txAware.getTransactionAwareName(), currentTx.getTransactionId());
         LOG.warn(message, e);
-        txClient.abort(currentTx);
+        if (!readOnly) {
+          txClient.abort(currentTx);
+        }
         throw new TransactionFailureException(message, e);
       }
     }
@@ -110,6 +134,13 @@ public class TransactionContext {
    */
   public void finish() throws TransactionFailureException {
     Preconditions.checkState(currentTx != null, "Cannot finish tx that has not been started");
+    if (readOnly) {
+      // nothing to persist or commit, all that is needed is to release the tx state of the TransactionAwares
+      checkNoChanges();
+      postCommit();
+      currentTx = null;
+      return;
+    }
     // each of these steps will abort and rollback the tx in case if errors, and throw an exception
     checkForConflicts();
     persist();
@@ -147,6 +178,7 @@ public class TransactionContext {
    */
   public void checkpoint() throws TransactionFailureException {
     Preconditions.checkState(currentTx != null, "Cannot checkpoint tx that has not been started");
+    Preconditions.checkState(!readOnly, "Cannot checkpoint a read-only tx");
     persist();
     try {
       currentTx = txClient.checkpoint(currentTx);
@@ -208,10 +240,13 @@ public class TransactionContext {
           success = false;
         }
       }
-      if (success) {
-        txClient.abort(currentTx);
-      } else {
-        txClient.invalidate(currentTx.getTransactionId());
+      // read-only transactions are not known to the transaction system
+      if (!readOnly) {
+        if (success) {
+          txClient.abort(currentTx);
+        } else {
+          txClient.invalidate(currentTx.getTransactionId());
+        }
       }
       if (cause != null) {
         throw cause;
@@ -256,6 +291,28 @@ public class TransactionContext {
     }
   }
 
+  private void checkNoChanges() throws TransactionFailureException {
+    for (TransactionAware txAware : txAwares) {
+      Collection<byte[]> changes;
+      try {
+        changes = txAware.getTxChanges();
+      } catch (Throwable e) {
+        String message = String.format("Unable to retrieve changes from transaction-aware '%s' for read-only " +
+                                         "transaction. ", txAware.getTransactionAwareName());
+        LOG.warn(message, e);
+        abort(new TransactionFailureException(message, e));
+        // abort will throw that exception
+        return;
+      }
+      if (!changes.isEmpty()) {
+        String message = String.format("Transaction-aware '%s' has changes in a read-only transaction.",
+                                       txAware.getTransactionAwareName());
+        abort(new TransactionFailureException(message));
+        // abort will throw that exception
+      }
+    }
+  }
+
   private void persist() throws TransactionFailureException {
     for (TransactionAware txAware : txAwares) {
       boolean success;
@@ -91,6 +91,17 @@ public interface TransactionExecutor {
    */
   void execute(Subroutine subroutine) throws TransactionFailureException, InterruptedException;
 
+  /**
+   * Like {@link #execute(Function, Object)} but uses a read-only transaction, which does not need to be committed
+   * with the transaction system. Fails if any of the datasets has changes after the function returns.
+   */
+  <I, O> O executeReadOnly(Function<I, O> function, I input) throws TransactionFailureException, InterruptedException;
+
+  /**
+   * Like {@link #executeReadOnly(Function, Object)} but the callable has no argument.
+   */
+  <O> O executeReadOnly(Callable<O> callable) throws TransactionFailureException, InterruptedException;
+
   /**
    * Same as {@link #execute(Function, Object)} but
    * suppresses exception with {@link com.google.common.base.Throwables#propagate(Throwable)}
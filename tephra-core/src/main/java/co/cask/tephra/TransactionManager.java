@@ -16,16 +16,23 @@
 
 package co.cask.tephra;
 
+import co.cask.tephra.distributed.EncodedExcludes;
 import co.cask.tephra.metrics.DefaultMetricsCollector;
 import co.cask.tephra.metrics.MetricsCollector;
 import co.cask.tephra.persist.NoOpTransactionStateStorage;
+import co.cask.tephra.persist.ParallelTransactionLogReader;
 import co.cask.tephra.persist.TransactionEdit;
 import co.cask.tephra.persist.TransactionLog;
 import co.cask.tephra.persist.TransactionLogReader;
 import co.cask.tephra.persist.TransactionSnapshot;
 import co.cask.tephra.persist.TransactionStateStorage;
+import co.cask.tephra.persist.VisibilityStateUpdate;
+import co.cask.tephra.prune.InMemoryPruneUpperBoundStore;
+import co.cask.tephra.prune.InvalidListPruner;
+import co.cask.tephra.prune.PruneUpperBoundStore;
+import co.cask.tephra.prune.PruneUpperBoundStores;
 import co.cask.tephra.snapshot.SnapshotCodecProvider;
-import co.cask.tephra.util.TxUtils;
+import co.cask.tephra.util.SortedLongSet;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
@@ -35,19 +42,23 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractService;
 import com.google.inject.Inject;
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -112,15 +123,33 @@ public class TransactionManager extends AbstractService {
   //poll every 10 second to emit metrics
   private static final long METRICS_POLL_INTERVAL = 10000L;
 
-  private static final long[] NO_INVALID_TX = { };
+  private static final long[] NO_INPROGRESS_TX = { };
+
+  // number of edits handed over at a time by the threads that decode logs during recovery
+  private static final int REPLAY_BATCH_SIZE = 1000;
+  // number of decoded batches per log that may wait to be applied
+  private static final int REPLAY_QUEUE_SIZE = 16;
 
   // Transactions that are in progress, with their info.
   private final NavigableMap<Long, InProgressTx> inProgress = new ConcurrentSkipListMap<Long, InProgressTx>();
+  // sorted ids of all in-progress transactions, including their checkpoint write pointers. This array is never
+  // modified in place, but replaced on every change, so that it can be handed out to new transactions as is.
+  private long[] inProgressArray = NO_INPROGRESS_TX;
+  // ids of the in-progress short transactions, kept in sync with inProgress
+  private final LongSortedSet shortInProgress = new LongAVLTreeSet();
+  // the first in-progress short transaction, the first element of shortInProgress
+  private long firstShortInProgress = Transaction.NO_TX_IN_PROGRESS;
 
   // the list of transactions that are invalid (not properly committed/aborted, or timed out)
-  // TODO: explain usage of two arrays
-  private final LongArrayList invalid = new LongArrayList();
-  private long[] invalidArray = NO_INVALID_TX;
+  private final SortedLongSet invalid = new SortedLongSet();
+  // added to the version of the invalid list, so that versions handed out by different instances do not collide
+  private final long invalidVersionBase = new Random().nextLong();
+
+  // the encoding of the excludes handed out by the last created transaction, shared by all transactions that are
+  // created until the next change of the invalid or in-progress list. Only changed under the lock.
+  private volatile EncodedExcludes encodedExcludes;
+  // the version of the invalid list that encodedExcludes was created for
+  private long encodedInvalidVersion;
 
   // todo: use moving array instead (use Long2ObjectMap<byte[]> in fastutil)
   // todo: should this be consolidated with inProgress?
@@ -129,6 +158,9 @@ public class TransactionManager extends AbstractService {
     new ConcurrentSkipListMap<Long, Set<ChangeId>>();
   // not committed yet
   private final Map<Long, Set<ChangeId>> committingChangeSets = Maps.newConcurrentMap();
+  // index over committedChangeSets: change -> the latest commit pointer at which it was committed, used so that
+  // conflict detection only needs to look up each change instead of scanning all committed change sets
+  private final ConcurrentMap<ChangeId, Long> latestCommitPointers = Maps.newConcurrentMap();
 
   private long readPointer;
   private long lastWritePointer;
@@ -149,8 +181,15 @@ public class TransactionManager extends AbstractService {
   private final long snapshotFrequencyInSeconds;
   // number of most recent snapshots to retain
   private final int snapshotRetainCount;
+  private final int replayThreads;
   private DaemonThreadExecutor snapshotThread;
   private DaemonThreadExecutor metricsThread;
+  // prunes the invalid list automatically, null if disabled
+  private final InvalidListPruner invalidListPruner;
+  private final long pruneIntervalInSeconds;
+  // the region servers reject writes of transactions older than this while pruning is enabled, 0 if disabled
+  private final long maxTxLifetimeInSeconds;
+  private DaemonThreadExecutor pruneThread;
 
   // lock guarding change of the current transaction log
   private final ReentrantReadWriteLock logLock = new ReentrantReadWriteLock();
@@ -180,6 +219,33 @@ public class TransactionManager extends AbstractService {
     // must always keep at least 1 snapshot
     snapshotRetainCount = Math.max(conf.getInt(TxConstants.Manager.CFG_TX_SNAPSHOT_RETAIN,
                                                TxConstants.Manager.DEFAULT_TX_SNAPSHOT_RETAIN), 1);
+    replayThreads = conf.getInt(TxConstants.Manager.CFG_TX_REPLAY_THREADS,
+                                TxConstants.Manager.DEFAULT_TX_REPLAY_THREADS);
+    if (conf.getBoolean(TxConstants.TransactionPruning.PRUNE_ENABLE,
+                        TxConstants.TransactionPruning.DEFAULT_PRUNE_ENABLE)) {
+      PruneUpperBoundStore pruneStore = PruneUpperBoundStores.create(conf);
+      if (pruneStore instanceof InMemoryPruneUpperBoundStore) {
+        LOG.warn("Invalid list pruning is enabled with {}, which only shares the prune upper bounds within this " +
+                   "process. The bounds recorded by region servers in other processes are not seen, and the invalid " +
+                   "list will not be pruned. Set {} to a store that is shared with the region servers.",
+                 InMemoryPruneUpperBoundStore.class.getName(), TxConstants.TransactionPruning.PRUNE_STORE_CLASS);
+      }
+      invalidListPruner = new InvalidListPruner(pruneStore);
+      maxTxLifetimeInSeconds = conf.getLong(TxConstants.TransactionPruning.PRUNE_MAX_TX_LIFETIME,
+                                            TxConstants.TransactionPruning.DEFAULT_PRUNE_MAX_TX_LIFETIME);
+      // transactions must time out before the region servers reject their writes
+      Preconditions.checkArgument(defaultLongTimeout < maxTxLifetimeInSeconds,
+                                  "%s must be smaller than %s but is %s", TxConstants.Manager.CFG_TX_LONG_TIMEOUT,
+                                  TxConstants.TransactionPruning.PRUNE_MAX_TX_LIFETIME, defaultLongTimeout);
+      Preconditions.checkArgument(defaultTimeout < maxTxLifetimeInSeconds,
+                                  "%s must be smaller than %s but is %s", TxConstants.Manager.CFG_TX_TIMEOUT,
+                                  TxConstants.TransactionPruning.PRUNE_MAX_TX_LIFETIME, defaultTimeout);
+    } else {
+      invalidListPruner = null;
+      maxTxLifetimeInSeconds = 0;
+    }
+    pruneIntervalInSeconds = conf.getLong(TxConstants.TransactionPruning.PRUNE_INTERVAL,
+                                          TxConstants.TransactionPruning.DEFAULT_PRUNE_INTERVAL);
 
     // intentionally not using a constant, as this config should not be exposed
     // TODO: REMOVE WITH txnBackwardsCompatCheck()
@@ -193,10 +259,14 @@ public class TransactionManager extends AbstractService {
 
   private void clear() {
     invalid.clear();
-    invalidArray = NO_INVALID_TX;
     inProgress.clear();
+    inProgressArray = NO_INPROGRESS_TX;
+    shortInProgress.clear();
+    firstShortInProgress = Transaction.NO_TX_IN_PROGRESS;
+    encodedExcludes = null;
     committedChangeSets.clear();
     committingChangeSets.clear();
+    latestCommitPointers.clear();
     lastWritePointer = 0;
     readPointer = 0;
     lastSnapshotTime = 0;
@@ -225,6 +295,7 @@ public class TransactionManager extends AbstractService {
     startCleanupThread();
     startSnapshotThread();
     startMetricsThread();
+    startPruneThread();
     // initialize the WAL if we did not force a snapshot in recoverState()
     initLog();
     // initialize next write pointer if needed
@@ -266,6 +337,60 @@ public class TransactionManager extends AbstractService {
     cleanupThread.start();
   }
 
+  private void startPruneThread() {
+    if (invalidListPruner == null || pruneIntervalInSeconds <= 0) {
+      return;
+    }
+    LOG.info("Starting periodic invalid list pruning every " + pruneIntervalInSeconds + " seconds.");
+    this.pruneThread = new DaemonThreadExecutor("tx-prune-invalid") {
+      @Override
+      public void doRun() {
+        // the first run happens while the transaction manager is still starting
+        if (isRunning()) {
+          pruneInvalidList();
+        }
+      }
+
+      @Override
+      public long getSleepMillis() {
+        return pruneIntervalInSeconds * 1000;
+      }
+    };
+    pruneThread.start();
+  }
+
+  /**
+   * Removes all invalid transactions up to the prune upper bound of all regions from the invalid list.
+   *
+   * @return the number of transactions removed from the invalid list
+   */
+  int pruneInvalidList() {
+    long pruneUpperBound;
+    try {
+      pruneUpperBound = invalidListPruner.getPruneUpperBound();
+    } catch (IOException e) {
+      LOG.warn("Failed to determine the prune upper bound of the invalid list", e);
+      return 0;
+    }
+    if (pruneUpperBound == PruneUpperBoundStore.NO_BOUND) {
+      return 0;
+    }
+    Set<Long> prunable = Sets.newHashSet();
+    synchronized (this) {
+      for (long invalidTx : invalid.toSortedArray()) {
+        if (invalidTx > pruneUpperBound) {
+          break;
+        }
+        prunable.add(invalidTx);
+      }
+    }
+    if (!prunable.isEmpty()) {
+      LOG.info("Pruning {} transactions up to {} from the invalid list", prunable.size(), pruneUpperBound);
+      truncateInvalidTx(prunable);
+    }
+    return prunable.size();
+  }
+
   private void startSnapshotThread() {
     if (snapshotFrequencyInSeconds > 0) {
       LOG.info("Starting periodic snapshot thread, frequency = " + snapshotFrequencyInSeconds +
@@ -312,7 +437,7 @@ public class TransactionManager extends AbstractService {
         txMetricsCollector.gauge("committing.size", committingChangeSets.size());
         txMetricsCollector.gauge("committed.size", committedChangeSets.size());
         txMetricsCollector.gauge("inprogress.size", inProgress.size());
-        txMetricsCollector.gauge("invalid.size", invalidArray.length);
+        txMetricsCollector.gauge("invalid.size", invalid.size());
       }
 
       @Override
@@ -321,7 +446,7 @@ public class TransactionManager extends AbstractService {
         txMetricsCollector.gauge("committing.size", committingChangeSets.size());
         txMetricsCollector.gauge("committed.size", committedChangeSets.size());
         txMetricsCollector.gauge("inprogress.size", inProgress.size());
-        txMetricsCollector.gauge("invalid.size", invalidArray.length);
+        txMetricsCollector.gauge("invalid.size", invalid.size());
       }
 
       @Override
@@ -358,16 +483,12 @@ public class TransactionManager extends AbstractService {
         }
         if (!timedOut.isEmpty()) {
           invalidEdits = Lists.newArrayListWithCapacity(timedOut.size());
-          invalid.addAll(timedOut);
           for (long tx : timedOut) {
             committingChangeSets.remove(tx);
-            inProgress.remove(tx);
+            removeInProgress(tx);
             invalidEdits.add(TransactionEdit.createInvalid(tx));
           }
-
-          // todo: find a more efficient way to keep this sorted. Could it just be an array?
-          Collections.sort(invalid);
-          invalidArray = invalid.toLongArray();
+          invalid.addAll(timedOut);
           LOG.info("Invalidated {} transactions due to timeout.", timedOut.size());
         }
       }
@@ -414,6 +535,25 @@ public class TransactionManager extends AbstractService {
     }
   }
 
+  /**
+   * Serializes the current visibility state into the given output stream, as a
+   * {@link VisibilityStateUpdate}. Unlike a snapshot, this does not copy the change sets.
+   *
+   * @param knownInvalidVersion the version of the invalid list that the reader already has. The invalid list is only
+   *                            written if it changed since.
+   */
+  public void writeVisibilityState(OutputStream out, long knownInvalidVersion) throws IOException {
+    long invalidVersion;
+    TransactionSnapshot state;
+    synchronized (this) {
+      invalidVersion = invalidVersionBase + invalid.getVersion();
+      // the invalid list is backed by an immutable array
+      state = new TransactionSnapshot(System.currentTimeMillis(), readPointer, lastWritePointer, invalid.asList(),
+                                      Maps.newTreeMap(inProgress));
+    }
+    VisibilityStateUpdate.write(out, invalidVersion, knownInvalidVersion, state, persistor);
+  }
+
   private void doSnapshot(boolean closing) throws IOException {
     long snapshotTime = 0L;
     TransactionSnapshot snapshot = null;
@@ -458,9 +598,15 @@ public class TransactionManager extends AbstractService {
     }
   }
 
+  /**
+   * Returns a consistent copy of the current state. Only the maps are copied: change sets and in-progress entries
+   * are never modified once they were added to the state, and the invalid list is backed by an immutable array,
+   * so the snapshot can share them. This keeps the time spent under the lock independent of the number of changes.
+   */
   public synchronized TransactionSnapshot getCurrentState() {
-    return TransactionSnapshot.copyFrom(System.currentTimeMillis(), readPointer, lastWritePointer,
-                                        invalid, inProgress, committingChangeSets, committedChangeSets);
+    return new TransactionSnapshot(System.currentTimeMillis(), readPointer, lastWritePointer, invalid.asList(),
+                                   Maps.newTreeMap(inProgress), Maps.newHashMap(committingChangeSets),
+                                   Maps.newTreeMap(committedChangeSets));
   }
 
   public synchronized void recoverState() {
@@ -500,8 +646,19 @@ public class TransactionManager extends AbstractService {
     lastWritePointer = snapshot.getWritePointer();
     invalid.addAll(snapshot.getInvalid());
     inProgress.putAll(txnBackwardsCompatCheck(defaultLongTimeout, longTimeoutTolerance, snapshot.getInProgress()));
+    rebuildInProgressExcludes();
+    for (Map.Entry<Long, InProgressTx> entry : inProgress.entrySet()) {
+      if (!entry.getValue().isLongRunning()) {
+        shortInProgress.add(entry.getKey().longValue());
+      }
+    }
+    updateFirstShortInProgress();
     committingChangeSets.putAll(snapshot.getCommittingChangeSets());
     committedChangeSets.putAll(snapshot.getCommittedChangeSets());
+    // the conflict index is not persisted, rebuild it from the restored committed change sets
+    for (Map.Entry<Long, Set<ChangeId>> entry : committedChangeSets.entrySet()) {
+      indexCommittedChanges(entry.getKey(), entry.getValue());
+    }
   }
 
   /**
@@ -563,91 +720,103 @@ public class TransactionManager extends AbstractService {
    * Replay all logged edits from the given transaction logs.
    */
   private void replayLogs(Collection<TransactionLog> logs) {
-    for (TransactionLog log : logs) {
-      LOG.info("Replaying edits from transaction log " + log.getName());
-      int editCnt = 0;
-      try {
-        TransactionLogReader reader = log.getReader();
-        // reader may be null in the case of an empty file
-        if (reader == null) {
-          continue;
-        }
-        TransactionEdit edit = null;
-        while ((edit = reader.next()) != null) {
-          editCnt++;
-          switch (edit.getState()) {
-            case INPROGRESS:
-              long expiration = edit.getExpiration();
-              TransactionType type = edit.getType();
-              // Check if transaction needs to be migrated to have expiration and type. Previous version of 
-              // long running transactions were represented with expiration time as -1.
-              // This can be removed when we stop supporting TransactionEditCodecV2.
-              if (expiration < 0) {
-                expiration = getTxExpirationFromWritePointer(edit.getWritePointer(), defaultLongTimeout);
-                type = TransactionType.LONG;
-              } else if (type == null) {
-                type = TransactionType.SHORT;
-              }
-              addInProgressAndAdvance(edit.getWritePointer(), edit.getVisibilityUpperBound(),
-                                      expiration, type);
-              break;
-            case COMMITTING:
-              addCommittingChangeSet(edit.getWritePointer(), edit.getChanges());
-              break;
-            case COMMITTED:
-              // TODO: need to reconcile usage of transaction id v/s write pointer TEPHRA-140
-              long transactionId = edit.getWritePointer();
-              long[] checkpointPointers = edit.getCheckpointPointers();
-              long writePointer = checkpointPointers == null || checkpointPointers.length == 0 ?
-                transactionId : checkpointPointers[checkpointPointers.length - 1];
-              doCommit(transactionId, writePointer, edit.getChanges(),
-                       edit.getCommitPointer(), edit.getCanCommit());
-              break;
-            case INVALID:
-              doInvalidate(edit.getWritePointer());
-              break;
-            case ABORTED:
-              type = edit.getType();
-              // Check if transaction edit needs to be migrated to have type. Previous versions of
-              // ABORTED edits did not contain type.
-              // This can be removed when we stop supporting TransactionEditCodecV2.
-              if (type == null) {
-                InProgressTx inProgressTx = inProgress.get(edit.getWritePointer());
-                if (inProgressTx != null) {
-                  type = inProgressTx.getType();
+    Stopwatch timer = new Stopwatch().start();
+    long totalEditCnt = 0;
+    // the logs are decoded ahead on other threads, while their edits are applied here in order
+    ParallelTransactionLogReader logReader =
+      new ParallelTransactionLogReader(logs, replayThreads, REPLAY_BATCH_SIZE, REPLAY_QUEUE_SIZE);
+    try {
+      for (TransactionLog log : logs) {
+        LOG.info("Replaying edits from transaction log " + log.getName());
+        Stopwatch logTimer = new Stopwatch().start();
+        int editCnt = 0;
+        try {
+          TransactionLogReader reader = logReader.nextReader();
+          TransactionEdit edit = null;
+          while ((edit = reader.next()) != null) {
+            editCnt++;
+            switch (edit.getState()) {
+              case INPROGRESS:
+                long expiration = edit.getExpiration();
+                TransactionType type = edit.getType();
+                // Check if transaction needs to be migrated to have expiration and type. Previous version of 
+                // long running transactions were represented with expiration time as -1.
+                // This can be removed when we stop supporting TransactionEditCodecV2.
+                if (expiration < 0) {
+                  expiration = getTxExpirationFromWritePointer(edit.getWritePointer(), defaultLongTimeout);
+                  type = TransactionType.LONG;
+                } else if (type == null) {
+                  type = TransactionType.SHORT;
+                }
+                addInProgressAndAdvance(edit.getWritePointer(), edit.getVisibilityUpperBound(),
+                                        expiration, type);
+                break;
+              case COMMITTING:
+                addCommittingChangeSet(edit.getWritePointer(), edit.getChanges());
+                break;
+              case COMMITTED:
+                // TODO: need to reconcile usage of transaction id v/s write pointer TEPHRA-140
+                long transactionId = edit.getWritePointer();
+                long[] checkpointPointers = edit.getCheckpointPointers();
+                long writePointer = checkpointPointers == null || checkpointPointers.length == 0 ?
+                  transactionId : checkpointPointers[checkpointPointers.length - 1];
+                doCommit(transactionId, writePointer, edit.getChanges(),
+                         edit.getCommitPointer(), edit.getCanCommit());
+                break;
+              case INVALID:
+                doInvalidate(edit.getWritePointer());
+                break;
+              case ABORTED:
+                type = edit.getType();
+                // Check if transaction edit needs to be migrated to have type. Previous versions of
+                // ABORTED edits did not contain type.
+                // This can be removed when we stop supporting TransactionEditCodecV2.
+                if (type == null) {
+                  InProgressTx inProgressTx = inProgress.get(edit.getWritePointer());
+                  if (inProgressTx != null) {
+                    type = inProgressTx.getType();
+                  } else {
+                    // If transaction is not in-progress, then it has either been already aborted or invalidated.
+                    // We cannot determine the transaction's state based on current information, to be safe
+                    // invalidate it.
+                    LOG.warn("Invalidating transaction {} as it's type cannot be determined during replay",
+                             edit.getWritePointer());
+                    doInvalidate(edit.getWritePointer());
+                    break;
+                  }
+                }
+                doAbort(edit.getWritePointer(), edit.getCheckpointPointers(), type);
+                break;
+              case TRUNCATE_INVALID_TX:
+                if (edit.getTruncateInvalidTxTime() != 0) {
+                  doTruncateInvalidTxBefore(edit.getTruncateInvalidTxTime());
                 } else {
-                  // If transaction is not in-progress, then it has either been already aborted or invalidated.
-                  // We cannot determine the transaction's state based on current information, to be safe invalidate it.
-                  LOG.warn("Invalidating transaction {} as it's type cannot be determined during replay",
-                           edit.getWritePointer());
-                  doInvalidate(edit.getWritePointer());
-                  break;
+                  doTruncateInvalidTx(edit.getTruncateInvalidTx());
                 }
-              }
-              doAbort(edit.getWritePointer(), edit.getCheckpointPointers(), type);
-              break;
-            case TRUNCATE_INVALID_TX:
-              if (edit.getTruncateInvalidTxTime() != 0) {
-                doTruncateInvalidTxBefore(edit.getTruncateInvalidTxTime());
-              } else {
-                doTruncateInvalidTx(edit.getTruncateInvalidTx());
-              }
-              break;
-            case CHECKPOINT:
-              doCheckpoint(edit.getWritePointer(), edit.getParentWritePointer());
-              break;
-            default:
-              // unknown type!
-              throw new IllegalArgumentException("Invalid state for WAL entry: " + edit.getState());
+                break;
+              case CHECKPOINT:
+                doCheckpoint(edit.getWritePointer(), edit.getParentWritePointer());
+                break;
+              default:
+                // unknown type!
+                throw new IllegalArgumentException("Invalid state for WAL entry: " + edit.getState());
+            }
           }
+        } catch (IOException ioe) {
+          throw Throwables.propagate(ioe);
+        } catch (InvalidTruncateTimeException e) {
+          throw Throwables.propagate(e);
         }
-      } catch (IOException ioe) {
-        throw Throwables.propagate(ioe);
-      } catch (InvalidTruncateTimeException e) {
-        throw Throwables.propagate(e);
+        LOG.info("Read " + editCnt + " edits from log " + log.getName() + " in " + logTimer.elapsedMillis() + " ms");
+        totalEditCnt += editCnt;
       }
-      LOG.info("Read " + editCnt + " edits from log " + log.getName());
+    } finally {
+      logReader.close();
     }
+    long elapsed = timer.elapsedMillis();
+    LOG.info("Replayed {} edits from {} logs in {} ms ({} edits/s)", totalEditCnt, logs.size(), elapsed,
+             totalEditCnt * 1000 / Math.max(elapsed, 1));
+    txMetricsCollector.histogram("replay.latency", (int) elapsed);
   }
 
   @Override
@@ -664,6 +833,15 @@ public class TransactionManager extends AbstractService {
         Thread.currentThread().interrupt();
       }
     }
+    if (pruneThread != null) {
+      pruneThread.shutdown();
+      try {
+        pruneThread.join(30000L);
+      } catch (InterruptedException ie) {
+        LOG.warn("Interrupted waiting for prune thread to stop");
+        Thread.currentThread().interrupt();
+      }
+    }
     if (metricsThread != null) {
       metricsThread.shutdown();
       try {
@@ -719,7 +897,7 @@ public class TransactionManager extends AbstractService {
    * @param timeoutInSeconds the time out period in seconds.
    */
   public Transaction startShort(int timeoutInSeconds) {
-    Preconditions.checkArgument(timeoutInSeconds > 0, "timeout must be positive but is %s", timeoutInSeconds);
+    validateTimeout(timeoutInSeconds);
     txMetricsCollector.rate("start.short");
     Stopwatch timer = new Stopwatch().start();
     long expiration = getTxExpiration(timeoutInSeconds);
@@ -727,7 +905,57 @@ public class TransactionManager extends AbstractService {
     txMetricsCollector.histogram("start.short.latency", (int) timer.elapsedMillis());
     return tx;
   }
-  
+
+  /**
+   * Start a batch of short transactions with a given timeout. All transactions are started under a single lock
+   * acquisition and logged with a single append. Otherwise, this is the same as calling {@link #startShort(int)}
+   * {@code count} times: each transaction sees the earlier transactions of the batch as in progress, but not itself.
+   * @param count the number of transactions to start.
+   * @param timeoutInSeconds the time out period in seconds.
+   * @return the started transactions, in the order of their transaction ids.
+   */
+  public List<Transaction> startShortBatch(int count, int timeoutInSeconds) {
+    Preconditions.checkArgument(count > 0, "count must be positive but is %s", count);
+    validateTimeout(timeoutInSeconds);
+    txMetricsCollector.rate("start.short", count);
+    Stopwatch timer = new Stopwatch().start();
+    long expiration = getTxExpiration(timeoutInSeconds);
+    List<Transaction> txs = Lists.newArrayListWithCapacity(count);
+    List<TransactionEdit> edits = Lists.newArrayListWithCapacity(count);
+    // guard against changes to the transaction log while processing
+    this.logReadLock.lock();
+    try {
+      synchronized (this) {
+        ensureAvailable();
+        long[] txIds = new long[count];
+        for (int i = 0; i < count; i++) {
+          txIds[i] = getNextWritePointer();
+          advanceWritePointer(txIds[i]);
+        }
+        for (long txId : txIds) {
+          // same as startTx(), so that a transaction sees the earlier transactions of the batch as in progress
+          Transaction tx = createTransaction(txId, TransactionType.SHORT);
+          addInProgressAndAdvance(txId, tx.getVisibilityUpperBound(), expiration, TransactionType.SHORT);
+          txs.add(tx);
+          edits.add(TransactionEdit.createStarted(txId, tx.getVisibilityUpperBound(), expiration,
+                                                  TransactionType.SHORT));
+        }
+      }
+      appendToLog(edits);
+    } finally {
+      this.logReadLock.unlock();
+    }
+    txMetricsCollector.histogram("start.short.batch.latency", (int) timer.elapsedMillis());
+    return txs;
+  }
+
+  private void validateTimeout(int timeoutInSeconds) {
+    Preconditions.checkArgument(timeoutInSeconds > 0, "timeout must be positive but is %s", timeoutInSeconds);
+    Preconditions.checkArgument(maxTxLifetimeInSeconds == 0 || timeoutInSeconds < maxTxLifetimeInSeconds,
+                                "timeout must be smaller than the maximum transaction lifetime %s but is %s",
+                                maxTxLifetimeInSeconds, timeoutInSeconds);
+  }
+
   private static long getTxExpiration(long timeoutInSeconds) {
     long currentTime = System.currentTimeMillis();
     return currentTime + TimeUnit.SECONDS.toMillis(timeoutInSeconds);
@@ -756,6 +984,24 @@ public class TransactionManager extends AbstractService {
     return tx;
   }
 
+  /**
+   * Start a read-only transaction. A read-only transaction uses the same snapshot of committed data as a new short
+   * transaction, but it is not assigned a write pointer, not logged, and not added to the in-progress transactions.
+   * Hence it does not need to be committed or aborted, and it must not be used to write any data. Its write pointer
+   * is {@code Long.MAX_VALUE}, so that no existing cell is mistaken for a write of the transaction, and
+   * {@link co.cask.tephra.util.TxUtils#isReadOnly(Transaction)} identifies it.
+   * <p/>
+   * Note that a read-only transaction does not hold back the visibility upper bound of the transaction manager, so
+   * that data that it reads may be removed by TTL or data cleanup if the transaction runs for a long time.
+   */
+  public Transaction startReadOnly() {
+    txMetricsCollector.rate("start.readonly");
+    synchronized (this) {
+      ensureAvailable();
+      return createTransaction(Long.MAX_VALUE, TransactionType.SHORT);
+    }
+  }
+
   private Transaction startTx(long expiration, TransactionType type) {
     Transaction tx = null;
     long txid;
@@ -779,10 +1025,112 @@ public class TransactionManager extends AbstractService {
 
   private void addInProgressAndAdvance(long writePointer, long visibilityUpperBound,
                                        long expiration, TransactionType type) {
-    inProgress.put(writePointer, new InProgressTx(visibilityUpperBound, expiration, type));
+    InProgressTx previous = inProgress.put(writePointer, new InProgressTx(visibilityUpperBound, expiration, type));
+    if (previous == null) {
+      inProgressArray = insertSorted(inProgressArray, writePointer);
+    } else {
+      // the same transaction was started twice, which can only happen when replaying logs
+      rebuildInProgressExcludes();
+    }
+    if (type != TransactionType.LONG) {
+      shortInProgress.add(writePointer);
+    } else {
+      shortInProgress.remove(writePointer);
+    }
+    updateFirstShortInProgress();
     advanceWritePointer(writePointer);
   }
 
+  /**
+   * Removes a transaction from the in-progress map, and its id and checkpoint write pointers from the in-progress
+   * excludes.
+   * @return the removed in-progress transaction, or {@code null} if the transaction was not in progress
+   */
+  private InProgressTx removeInProgress(long writePointer) {
+    InProgressTx removed = inProgress.remove(writePointer);
+    if (removed != null) {
+      inProgressArray = removeSorted(inProgressArray, writePointer, removed.getCheckpointWritePointers());
+      if (shortInProgress.remove(writePointer)) {
+        updateFirstShortInProgress();
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Recomputes the in-progress excludes from the in-progress map.
+   */
+  private void rebuildInProgressExcludes() {
+    LongArrayList inProgressIds = new LongArrayList(inProgress.size());
+    for (Map.Entry<Long, InProgressTx> entry : inProgress.entrySet()) {
+      inProgressIds.add(entry.getKey().longValue());
+      // add any checkpointed write pointers to the in-progress list
+      LongArrayList childIds = entry.getValue().getCheckpointWritePointers();
+      if (childIds != null) {
+        inProgressIds.addAll(childIds);
+      }
+    }
+    long[] ids = inProgressIds.toLongArray();
+    // checkpoint write pointers of a transaction may be larger than the ids of transactions started after it
+    Arrays.sort(ids);
+    inProgressArray = ids;
+  }
+
+  private void updateFirstShortInProgress() {
+    firstShortInProgress = shortInProgress.isEmpty() ? Transaction.NO_TX_IN_PROGRESS : shortInProgress.firstLong();
+  }
+
+  /**
+   * Returns a copy of the given sorted array with the value inserted in sort order.
+   */
+  private static long[] insertSorted(long[] sorted, long value) {
+    int length = sorted.length;
+    // common case: new ids are always larger than all existing ones
+    if (length == 0 || value > sorted[length - 1]) {
+      long[] result = Arrays.copyOf(sorted, length + 1);
+      result[length] = value;
+      return result;
+    }
+    int pos = Arrays.binarySearch(sorted, value);
+    if (pos >= 0) {
+      return sorted;
+    }
+    pos = -(pos + 1);
+    long[] result = new long[length + 1];
+    System.arraycopy(sorted, 0, result, 0, pos);
+    result[pos] = value;
+    System.arraycopy(sorted, pos, result, pos + 1, length - pos);
+    return result;
+  }
+
+  /**
+   * Returns a copy of the given sorted array without the value and the given additional values.
+   */
+  private static long[] removeSorted(long[] sorted, long value, @Nullable LongArrayList additional) {
+    if (additional == null || additional.isEmpty()) {
+      int pos = Arrays.binarySearch(sorted, value);
+      if (pos < 0) {
+        return sorted;
+      }
+      long[] result = new long[sorted.length - 1];
+      System.arraycopy(sorted, 0, result, 0, pos);
+      System.arraycopy(sorted, pos + 1, result, pos, result.length - pos);
+      return result;
+    }
+    long[] toRemove = new long[additional.size() + 1];
+    additional.getElements(0, toRemove, 0, additional.size());
+    toRemove[additional.size()] = value;
+    Arrays.sort(toRemove);
+    long[] result = new long[sorted.length];
+    int count = 0;
+    for (long id : sorted) {
+      if (Arrays.binarySearch(toRemove, id) < 0) {
+        result[count++] = id;
+      }
+    }
+    return count == result.length ? sorted : Arrays.copyOf(result, count);
+  }
+
   private void advanceWritePointer(long writePointer) {
     // don't move the write pointer back if we have out of order transaction log entries
     if (writePointer > lastWritePointer) {
@@ -795,7 +1143,11 @@ public class TransactionManager extends AbstractService {
     Stopwatch timer = new Stopwatch().start();
     if (inProgress.get(tx.getTransactionId()) == null) {
       // invalid transaction, either this has timed out and moved to invalid, or something else is wrong.
-      if (invalid.contains(tx.getTransactionId())) {
+      boolean isInvalid;
+      synchronized (this) {
+        isInvalid = invalid.contains(tx.getTransactionId());
+      }
+      if (isInvalid) {
         throw new TransactionNotInProgressException(
           String.format("canCommit() is called for transaction %d that is not in progress (it is known to be invalid)",
                         tx.getTransactionId()));
@@ -894,18 +1246,21 @@ public class TransactionManager extends AbstractService {
       //       stored under one key
       Set<ChangeId> changeIds = committedChangeSets.get(commitPointer);
       if (changeIds != null) {
-        // NOTE: we modify the new set to prevent concurrent modification exception, as other threads (e.g. in
-        // canCommit) use it unguarded
-        changes.addAll(changeIds);
+        // NOTE: we merge into a new set to prevent concurrent modification exception, as other threads (e.g. in
+        // canCommit, or writing a snapshot) use both sets unguarded
+        Set<ChangeId> merged = Sets.newHashSetWithExpectedSize(changeIds.size() + changes.size());
+        merged.addAll(changeIds);
+        merged.addAll(changes);
+        changes = merged;
       }
       committedChangeSets.put(commitPointer, changes);
+      indexCommittedChanges(commitPointer, changes);
     }
     // remove from in-progress set, so that it does not get excluded in the future
-    InProgressTx previous = inProgress.remove(transactionId);
+    InProgressTx previous = removeInProgress(transactionId);
     if (previous == null) {
       // tx was not in progress! perhaps it timed out and is invalid? try to remove it there.
-      if (invalid.rem(transactionId)) {
-        invalidArray = invalid.toLongArray();
+      if (invalid.remove(transactionId)) {
         LOG.info("Tx invalid list: removed committed tx {}", transactionId);
       }
     }
@@ -916,7 +1271,36 @@ public class TransactionManager extends AbstractService {
     // here we ignore transactions that have no timeout, they are long-running and don't participate in
     // conflict detection.
     // TODO: for efficiency, can we do this once per-log in replayLogs instead of once per edit?
-    committedChangeSets.headMap(TxUtils.getFirstShortInProgress(inProgress)).clear();
+    pruneCommittedChangeSets(firstShortInProgress);
+  }
+
+  /**
+   * Records the given commit pointer as the latest commit for each of the changes, unless a later commit of
+   * the same change is already known (which can happen when replaying out of order log entries).
+   */
+  private void indexCommittedChanges(long commitPointer, Set<ChangeId> changes) {
+    Long commitPointerObj = commitPointer;
+    for (ChangeId change : changes) {
+      Long previous = latestCommitPointers.get(change);
+      if (previous == null || previous < commitPointer) {
+        latestCommitPointers.put(change, commitPointerObj);
+      }
+    }
+  }
+
+  /**
+   * Removes all committed change sets with a commit pointer smaller than the given one, together with their
+   * entries in the conflict index.
+   */
+  private void pruneCommittedChangeSets(long firstShortInProgress) {
+    Map<Long, Set<ChangeId>> obsolete = committedChangeSets.headMap(firstShortInProgress, false);
+    for (Map.Entry<Long, Set<ChangeId>> entry : obsolete.entrySet()) {
+      for (ChangeId change : entry.getValue()) {
+        // only remove the index entry if it was not overwritten by a later commit of the same change
+        latestCommitPointers.remove(change, entry.getKey());
+      }
+    }
+    obsolete.clear();
   }
 
   public void abort(Transaction tx) {
@@ -948,18 +1332,15 @@ public class TransactionManager extends AbstractService {
     
     // makes tx visible (assumes that all operations were rolled back)
     // remove from in-progress set, so that it does not get excluded in the future
-    InProgressTx removed = inProgress.remove(writePointer);
+    InProgressTx removed = removeInProgress(writePointer);
     if (removed == null) {
       // tx was not in progress! perhaps it timed out and is invalid? try to remove it there.
-      if (invalid.rem(writePointer)) {
+      if (invalid.remove(writePointer)) {
         // remove any invalidated checkpoint pointers
         // this will only be present if the parent write pointer was also invalidated
         if (checkpointWritePointers != null) {
-          for (int i = 0; i < checkpointWritePointers.length; i++) {
-            invalid.rem(checkpointWritePointers[i]);
-          }
+          invalid.removeAll(checkpointWritePointers);
         }
-        invalidArray = invalid.toLongArray();
         LOG.info("Tx invalid list: removed aborted tx {}", writePointer);
         // removed a tx from excludes: must move read pointer
         moveReadPointerIfNeeded(writePointer);
@@ -992,7 +1373,7 @@ public class TransactionManager extends AbstractService {
   private boolean doInvalidate(long writePointer) {
     Set<ChangeId> previousChangeSet = committingChangeSets.remove(writePointer);
     // remove from in-progress set, so that it does not get excluded in the future
-    InProgressTx previous = inProgress.remove(writePointer);
+    InProgressTx previous = removeInProgress(writePointer);
     // This check is to prevent from invalidating committed transactions
     if (previous != null || previousChangeSet != null) {
       // add tx to invalids
@@ -1003,15 +1384,10 @@ public class TransactionManager extends AbstractService {
         // invalidate any checkpoint write pointers
         LongArrayList childWritePointers = previous.getCheckpointWritePointers();
         if (childWritePointers != null) {
-          for (int i = 0; i < childWritePointers.size(); i++) {
-            invalid.add(childWritePointers.get(i));
-          }
+          invalid.addAll(childWritePointers.toLongArray());
         }
       }
       LOG.info("Tx invalid list: added tx {} because of invalidate", writePointer);
-      // todo: find a more efficient way to keep this sorted. Could it just be an array?
-      Collections.sort(invalid);
-      invalidArray = invalid.toLongArray();
       if (previous != null && !previous.isLongRunning()) {
         // tx was short-running: must move read pointer
         moveReadPointerIfNeeded(writePointer);
@@ -1047,11 +1423,7 @@ public class TransactionManager extends AbstractService {
 
   private boolean doTruncateInvalidTx(Set<Long> invalidTxIds) {
     LOG.info("Removing tx ids {} from invalid list", invalidTxIds);
-    boolean success = invalid.removeAll(invalidTxIds);
-    if (success) {
-      invalidArray = invalid.toLongArray();
-    }
-    return success;
+    return invalid.removeAll(invalidTxIds);
   }
 
   /**
@@ -1089,7 +1461,7 @@ public class TransactionManager extends AbstractService {
     
     // Find all invalid transactions earlier than truncateWp
     Set<Long> toTruncate = Sets.newHashSet();
-    for (long wp : invalid) {
+    for (long wp : invalid.toSortedArray()) {
       // invalid list is sorted, hence can stop as soon as we reach a wp >= truncateWp
       if (wp >= truncateWp) {
         break;
@@ -1123,7 +1495,7 @@ public class TransactionManager extends AbstractService {
           }
         }
         newWritePointer = getNextWritePointer();
-        doCheckpoint(newWritePointer, txId);
+        parentTx = doCheckpoint(newWritePointer, txId);
         // create a new transaction with the same read snapshot, plus the additional checkpoint write pointer
         // the same read snapshot is maintained to
         checkpointedTx = new Transaction(originalTx, newWritePointer,
@@ -1140,10 +1512,22 @@ public class TransactionManager extends AbstractService {
     return checkpointedTx;
   }
 
-  private void doCheckpoint(long newWritePointer, long parentWritePointer) {
+  /**
+   * Adds a checkpoint write pointer to an in-progress transaction.
+   *
+   * @return the updated in-progress entry of the parent transaction
+   */
+  private InProgressTx doCheckpoint(long newWritePointer, long parentWritePointer) {
     InProgressTx existingTx = inProgress.get(parentWritePointer);
-    existingTx.addCheckpointWritePointer(newWritePointer);
+    // replace the entry instead of modifying it, a snapshot that is being written may share it
+    LongArrayList checkpointWritePointers = new LongArrayList(existingTx.getCheckpointWritePointers());
+    checkpointWritePointers.add(newWritePointer);
+    InProgressTx updatedTx = new InProgressTx(existingTx.getVisibilityUpperBound(), existingTx.getExpiration(),
+                                              existingTx.getType(), checkpointWritePointers);
+    inProgress.put(parentWritePointer, updatedTx);
+    inProgressArray = insertSorted(inProgressArray, newWritePointer);
     advanceWritePointer(newWritePointer);
+    return updatedTx;
   }
   
   // hack for exposing important metric
@@ -1167,31 +1551,13 @@ public class TransactionManager extends AbstractService {
       return false;
     }
 
-    for (Map.Entry<Long, Set<ChangeId>> changeSet : committedChangeSets.entrySet()) {
+    long txId = tx.getTransactionId();
+    for (ChangeId change : changeIds) {
+      Long commitPointer = latestCommitPointers.get(change);
       // If commit time is greater than tx read-pointer,
       // basically not visible but committed means "tx committed after given tx was started"
-      if (changeSet.getKey() > tx.getTransactionId()) {
-        if (overlap(changeSet.getValue(), changeIds)) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  private boolean overlap(Set<ChangeId> a, Set<ChangeId> b) {
-    // iterate over the smaller set, and check for every element in the other set
-    if (a.size() > b.size()) {
-      for (ChangeId change : b) {
-        if (a.contains(change)) {
-          return true;
-        }
-      }
-    } else {
-      for (ChangeId change : a) {
-        if (b.contains(change)) {
-          return true;
-        }
+      if (commitPointer != null && commitPointer > txId) {
+        return true;
       }
     }
     return false;
@@ -1208,25 +1574,29 @@ public class TransactionManager extends AbstractService {
    * synchronized.
    */
   private Transaction createTransaction(long writePointer, TransactionType type) {
-    // For holding the first in progress short transaction Id (with timeout >= 0).
-    long firstShortTx = Transaction.NO_TX_IN_PROGRESS;
-    LongArrayList inProgressIds = new LongArrayList(inProgress.size());
-    for (Map.Entry<Long, InProgressTx> entry : inProgress.entrySet()) {
-      long txId = entry.getKey();
-      inProgressIds.add(txId);
-      // add any checkpointed write pointers to the in-progress list
-      LongArrayList childIds = entry.getValue().getCheckpointWritePointers();
-      if (childIds != null) {
-        for (int i = 0; i < childIds.size(); i++) {
-          inProgressIds.add(childIds.get(i));
-        }
-      }
-      if (firstShortTx == Transaction.NO_TX_IN_PROGRESS && !entry.getValue().isLongRunning()) {
-        firstShortTx = txId;
-      }
+    // the excludes arrays are replaced rather than modified on every change, so they can be shared
+    long[] invalids = invalid.toSortedArray();
+    EncodedExcludes excludes = encodedExcludes;
+    if (excludes == null || encodedInvalidVersion != invalid.getVersion()) {
+      encodedExcludes = new EncodedExcludes(invalids, inProgressArray);
+      encodedInvalidVersion = invalid.getVersion();
+    } else if (!excludes.isFor(invalids, inProgressArray)) {
+      encodedExcludes = excludes.withInProgress(inProgressArray);
     }
+    return new Transaction(readPointer, writePointer, invalids, inProgressArray, firstShortInProgress, type);
+  }
 
-    return new Transaction(readPointer, writePointer, invalidArray, inProgressIds.toLongArray(), firstShortTx, type);
+  /**
+   * Returns the encoding of the excludes of the given transaction, if it was created from the current state of the
+   * invalid and in-progress lists. All transactions created from the same state share this encoding, so that it is
+   * only computed once when the transactions are sent to clients.
+   *
+   * @return the encoded excludes, or null if the lists changed since the transaction was created
+   */
+  @Nullable
+  public EncodedExcludes getEncodedExcludes(Transaction tx) {
+    EncodedExcludes excludes = encodedExcludes;
+    return excludes != null && excludes.isFor(tx.getInvalids(), tx.getInProgress()) ? excludes : null;
   }
 
   private void appendToLog(TransactionEdit edit) {
@@ -1311,7 +1681,7 @@ public class TransactionManager extends AbstractService {
     private final long visibilityUpperBound;
     private final long expiration;
     private final TransactionType type;
-    private LongArrayList checkpointWritePointers = new LongArrayList();
+    private final LongArrayList checkpointWritePointers;
 
     public InProgressTx(long visibilityUpperBound, long expiration, TransactionType type) {
       this(visibilityUpperBound, expiration, type, new LongArrayList());
@@ -1352,10 +1722,10 @@ public class TransactionManager extends AbstractService {
       return type == TransactionType.LONG;
     }
 
-    public void addCheckpointWritePointer(long checkpointWritePointer) {
-      checkpointWritePointers.add(checkpointWritePointer);
-    }
-
+    /**
+     * Returns the checkpoint write pointers of this transaction. The list may be shared with snapshots of the
+     * transaction state, and must not be modified: a checkpoint replaces the entry with a new one instead.
+     */
     public LongArrayList getCheckpointWritePointers() {
       return checkpointWritePointers;
     }
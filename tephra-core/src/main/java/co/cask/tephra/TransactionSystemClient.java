@@ -18,6 +18,7 @@ package co.cask.tephra;
 
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -40,12 +41,30 @@ public interface TransactionSystemClient {
    */
   Transaction startShort(int timeout);
 
+  /**
+   * Starts a batch of new short transactions. This is equivalent to calling {@link #startShort(int)} the given
+   * number of times, but requires only one call to the transaction system. All of the returned transactions
+   * share the same read pointer, and each of them sees the transactions that precede it in the batch as in progress.
+   * @param count the number of transactions to start
+   * @param timeout the timeout for the transactions
+   * @return list of {@link Transaction}, in the order of their transaction ids
+   */
+  List<Transaction> startShortBatch(int count, int timeout);
+
   /**
    * Starts new long transaction.
    * @return instance of {@link Transaction}
    */
   Transaction startLong();
 
+  /**
+   * Starts new read-only transaction. A read-only transaction sees the same snapshot of committed data as a new short
+   * transaction, but it is not tracked by the transaction system: it must not write any data, and it is neither
+   * committed nor aborted.
+   * @return instance of {@link Transaction}
+   */
+  Transaction startReadOnly();
+
   // this pre-commit detects conflicts with other transactions committed so far
   // NOTE: the changes set should not change after this operation, this may help us do some extra optimizations
   // NOTE: there should be time constraint on how long does it take to commit changes by the client after this operation
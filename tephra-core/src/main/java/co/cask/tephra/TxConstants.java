@@ -16,10 +16,13 @@
 
 package co.cask.tephra;
 
+import co.cask.tephra.prune.InMemoryPruneUpperBoundStore;
 import co.cask.tephra.snapshot.DefaultSnapshotCodec;
 import co.cask.tephra.snapshot.SnapshotCodecV2;
 import co.cask.tephra.snapshot.SnapshotCodecV3;
 import co.cask.tephra.snapshot.SnapshotCodecV4;
+import co.cask.tephra.snapshot.SnapshotCodecV5;
+import org.apache.hadoop.io.compress.DefaultCodec;
 
 import java.util.concurrent.TimeUnit;
 
@@ -54,6 +57,16 @@ public class TxConstants {
    */
   public static final String PROPERTY_TTL = "dataset.table.ttl";
 
+  /**
+   * Property set for {@code org.apache.hadoop.hbase.HColumnDescriptor} to retain the versions that in-progress
+   * transactions may still read on flush and compaction.  If set to {@code true}, committed versions and delete markers
+   * that are not yet visible to all in-progress transactions are retained together with the older versions they
+   * shadow, and a version is only removed once a newer version is visible to all transactions.  By default, only the
+   * newest visible version of each column is retained, and older versions that in-progress transactions still read
+   * may be removed.
+   */
+  public static final String PROPERTY_RETAIN_INPROGRESS_VERSIONS = "dataset.table.retain.inprogress.versions";
+
   /**
    * This is how many tx we allow per millisecond, if you care about the system for 100 years:
    * Long.MAX_VALUE / (System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365 * 100)) =
@@ -81,6 +94,15 @@ public class TxConstants {
   public static final String ALLOW_EMPTY_VALUES_KEY = "data.tx.allow.empty.values";
   public static final boolean ALLOW_EMPTY_VALUES_DEFAULT = false;
 
+  /**
+   * Configuration property for whether {@code TransactionAwareHTable} has the region server translate row and family
+   * deletes into tombstones for the individual columns, when conflicts are detected at the column level.  Otherwise,
+   * the client reads the row to find the columns before it issues the delete.  This requires a version of the
+   * {@code TransactionProcessor} coprocessor on the table that supports transactional deletes.
+   */
+  public static final String SERVER_SIDE_DELETES_KEY = "data.tx.server.side.deletes";
+  public static final boolean SERVER_SIDE_DELETES_DEFAULT = false;
+
   /**
    * Key used to set the serialized transaction as an attribute on Get and Scan operations.
    */
@@ -92,6 +114,14 @@ public class TxConstants {
    */
   public static final String TX_ROLLBACK_ATTRIBUTE_KEY = "cask.tx.rollback";
 
+  /**
+   * Key used to flag an append operation as a transactional row or family delete.  Instead of performing the append,
+   * the {@code TransactionProcessor} coprocessor writes tombstones for all columns of the row, or of the families of
+   * the append, that are visible to the transaction, and returns the deleted columns.  A row delete is sent as an
+   * append to a column with an empty family name, since appends need at least one column.
+   */
+  public static final String TX_DELETE_ATTRIBUTE_KEY = "cask.tx.delete";
+
   /**
    * Column qualifier used for a special delete marker tombstone, which identifies an entire column family as deleted.
    */
@@ -147,6 +177,16 @@ public class TxConstants {
     public static final String CFG_TX_SNAPSHOT_RETAIN = "data.tx.snapshot.retain";
     /** Default value for number of most recent snapshots to retain. */
     public static final int DEFAULT_TX_SNAPSHOT_RETAIN = 10;
+    /** Number of most recent visibility state files, written alongside the snapshots, to retain. */
+    public static final String CFG_TX_VISIBILITY_STATE_RETAIN = "data.tx.snapshot.visibility.retain";
+    /** Default value for number of most recent visibility state files to retain. */
+    public static final int DEFAULT_TX_VISIBILITY_STATE_RETAIN = 3;
+    /**
+     * Number of threads that decode transaction logs in parallel while the transaction manager recovers its state.
+     */
+    public static final String CFG_TX_REPLAY_THREADS = "data.tx.replay.threads";
+    /** Default value for number of threads decoding transaction logs during recovery. */
+    public static final int DEFAULT_TX_REPLAY_THREADS = 4;
   }
 
   /**
@@ -222,6 +262,10 @@ public class TxConstants {
     public static final String CFG_DATA_TX_CLIENT_OBTAIN_TIMEOUT_MS
       = "data.tx.client.obtain.timeout";
 
+    /** to specify the number of shared connections for client provider "multiplexed". */
+    public static final String CFG_DATA_TX_CLIENT_CONNECTIONS
+      = "data.tx.client.connections";
+
     /** to specify the retry strategy for a failed thrift call. */
     public static final String CFG_DATA_TX_CLIENT_RETRY_STRATEGY
       = "data.tx.client.retry.strategy";
@@ -242,6 +286,18 @@ public class TxConstants {
     public static final String CFG_DATA_TX_CLIENT_BACKOFF_LIMIT
       = "data.tx.client.retry.backoff.limit";
 
+    /** whether to coalesce concurrent short transaction starts into batched calls. */
+    public static final String CFG_DATA_TX_CLIENT_COALESCE_ENABLED
+      = "data.tx.client.coalesce.enabled";
+
+    /** how long (in microseconds) to wait for concurrent starts to join a batch. */
+    public static final String CFG_DATA_TX_CLIENT_COALESCE_WINDOW_US
+      = "data.tx.client.coalesce.window.us";
+
+    /** the maximum number of short transactions to start with one batched call. */
+    public static final String CFG_DATA_TX_CLIENT_COALESCE_MAX_BATCH
+      = "data.tx.client.coalesce.max.batch";
+
     /** the default tx client socket timeout in milli seconds. */
     public static final int DEFAULT_DATA_TX_CLIENT_TIMEOUT_MS
       = 30 * 1000;
@@ -250,6 +306,14 @@ public class TxConstants {
     public static final int DEFAULT_DATA_TX_CLIENT_COUNT
       = 50;
 
+    /**
+     * default number of shared connections for client provider "multiplexed". The tx service executes one request
+     * per connection at a time, so this bounds the number of requests of a client in progress on the server. It
+     * matches the default number of handler threads of the tx service.
+     */
+    public static final int DEFAULT_DATA_TX_CLIENT_CONNECTIONS
+      = DEFAULT_DATA_TX_SERVER_THREADS;
+
     /** default timeout (in milliseconds) for obtaining client from client provider "pool". */
     public static final long DEFAULT_DATA_TX_CLIENT_OBTAIN_TIMEOUT_MS
       = TimeUnit.SECONDS.toMillis(3);
@@ -277,6 +341,18 @@ public class TxConstants {
     /** default sleep limit is 30 sec. */
     public static final int DEFAULT_DATA_TX_CLIENT_BACKOFF_LIMIT
       = 30 * 1000;
+
+    /** coalescing of transaction starts is disabled by default. */
+    public static final boolean DEFAULT_DATA_TX_CLIENT_COALESCE_ENABLED
+      = false;
+
+    /** default coalescing window is 200 microseconds. */
+    public static final long DEFAULT_DATA_TX_CLIENT_COALESCE_WINDOW_US
+      = 200;
+
+    /** default maximum batch size for coalesced transaction starts. */
+    public static final int DEFAULT_DATA_TX_CLIENT_COALESCE_MAX_BATCH
+      = 64;
   }
 
   /**
@@ -314,6 +390,31 @@ public class TxConstants {
     public static final boolean DEFAULT_TX_JANITOR_ENABLE = true;
   }
 
+  /**
+   * Configuration for the transaction coprocessors on the region servers.
+   */
+  public static final class Coprocessor {
+    /**
+     * Maximum total size, in bytes, of the encoded transactions whose decoded form is cached by the coprocessors
+     * of a region server. Set to 0 to disable the cache.
+     */
+    public static final String CFG_TX_DECODE_CACHE_MAX_BYTES = "data.tx.coprocessor.decode.cache.max.bytes";
+    public static final long DEFAULT_TX_DECODE_CACHE_MAX_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * Whether the transaction state cache of a region server fetches the visibility state from the tx service,
+     * instead of only reading it from the latest snapshot. Snapshots are still read if fetching fails.
+     */
+    public static final String CFG_TX_STATE_FETCH_ENABLED = "data.tx.coprocessor.state.fetch.enabled";
+    public static final boolean DEFAULT_TX_STATE_FETCH_ENABLED = false;
+
+    /**
+     * How often, in seconds, the transaction state cache fetches the visibility state from the tx service.
+     */
+    public static final String CFG_TX_STATE_FETCH_INTERVAL = "data.tx.coprocessor.state.fetch.interval";
+    public static final long DEFAULT_TX_STATE_FETCH_INTERVAL = 5;
+  }
+
   /**
    * Configuration for the transaction snapshot persistence.
    */
@@ -323,7 +424,15 @@ public class TxConstants {
      */
     public static final String CFG_TX_SNAPHOT_CODEC_CLASSES = "data.tx.snapshot.codecs";
     public static final Class[] DEFAULT_TX_SNAPHOT_CODEC_CLASSES = 
-      { DefaultSnapshotCodec.class, SnapshotCodecV2.class, SnapshotCodecV3.class, SnapshotCodecV4.class };
+      { DefaultSnapshotCodec.class, SnapshotCodecV2.class, SnapshotCodecV3.class, SnapshotCodecV4.class,
+        SnapshotCodecV5.class };
+
+    /**
+     * The class name of the Hadoop compression codec that snapshots are compressed with, or an empty value to
+     * write them uncompressed. Readers do not need this setting, the codec is recorded in each snapshot.
+     */
+    public static final String CFG_TX_SNAPSHOT_COMPRESSION_CODEC = "data.tx.snapshot.compression.codec";
+    public static final String DEFAULT_TX_SNAPSHOT_COMPRESSION_CODEC = DefaultCodec.class.getName();
   }
 
   /**
@@ -336,6 +445,60 @@ public class TxConstants {
     public static final String NUM_ENTRIES_APPENDED = "count";
     public static final String VERSION_KEY = "version";
     public static final byte CURRENT_VERSION = 2;
+    /**
+     * Whether appends to the transaction log are handed to a dedicated writer thread, which writes the edits of
+     * concurrent appends in batches, with a single sync per batch.
+     */
+    public static final String CFG_TX_LOG_PIPELINED = "data.tx.log.pipelined";
+    public static final boolean DEFAULT_TX_LOG_PIPELINED = false;
+    /** Maximum number of edits written with a single sync by the pipelined log writer. */
+    public static final String CFG_TX_LOG_BATCH_SIZE = "data.tx.log.batch.size";
+    public static final int DEFAULT_TX_LOG_BATCH_SIZE = 1000;
+    /**
+     * Maximum time, in microseconds, the pipelined log writer waits for more edits before writing a batch that is
+     * not full yet, or 0 to write whatever edits are available.
+     */
+    public static final String CFG_TX_LOG_BATCH_MAX_DELAY = "data.tx.log.batch.max.delay.us";
+    public static final long DEFAULT_TX_LOG_BATCH_MAX_DELAY = 0;
+    /** Maximum number of appends waiting for the pipelined log writer, before further appends block. */
+    public static final String CFG_TX_LOG_QUEUE_SIZE = "data.tx.log.queue.size";
+    public static final int DEFAULT_TX_LOG_QUEUE_SIZE = 10000;
+    /**
+     * Size, in bytes, by which local transaction log files are extended ahead of the writes, so that syncing an
+     * append does not need to update the file size.
+     */
+    public static final String CFG_TX_LOG_LOCAL_SEGMENT_SIZE = "data.tx.log.local.segment.size";
+    public static final long DEFAULT_TX_LOG_LOCAL_SEGMENT_SIZE = 4 * 1024 * 1024;
+  }
+
+  /**
+   * Configuration for pruning the invalid transaction list automatically.
+   */
+  public static final class TransactionPruning {
+    /**
+     * Whether the coprocessors record the prune upper bound of each region after major compactions, and the tx
+     * service periodically removes the invalid transactions up to the smallest bound of all regions.
+     */
+    public static final String PRUNE_ENABLE = "data.tx.prune.enable";
+    public static final boolean DEFAULT_PRUNE_ENABLE = false;
+    /**
+     * The class name of the {@link co.cask.tephra.prune.PruneUpperBoundStore} that holds the prune upper bounds.
+     */
+    public static final String PRUNE_STORE_CLASS = "data.tx.prune.store.class";
+    public static final String DEFAULT_PRUNE_STORE_CLASS = InMemoryPruneUpperBoundStore.class.getName();
+    /**
+     * How often, in seconds, the tx service prunes the invalid list.
+     */
+    public static final String PRUNE_INTERVAL = "data.tx.prune.interval";
+    public static final long DEFAULT_PRUNE_INTERVAL = 3600;
+    /**
+     * The maximum lifetime, in seconds, of a transaction while invalid list pruning is enabled. The coprocessors
+     * reject writes of transactions that started longer ago, and the prune upper bound of a region never includes
+     * transactions that started within this time before the compaction. An invalidated transaction that keeps writing
+     * can therefore not add data once it may have been pruned. Must exceed the timeout of all transactions.
+     */
+    public static final String PRUNE_MAX_TX_LIFETIME = "data.tx.prune.max.tx.lifetime";
+    public static final long DEFAULT_PRUNE_MAX_TX_LIFETIME = TimeUnit.HOURS.toSeconds(25);
   }
 
 }
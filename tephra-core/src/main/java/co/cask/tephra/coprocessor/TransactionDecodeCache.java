@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.coprocessor;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionCodec;
+import co.cask.tephra.TxConstants;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches decoded transactions by their encoded form, so that a transaction sent with many operations to a region
+ * server is only decoded once. The cache is bounded by the total size of the encoded transactions, and is
+ * implemented as a singleton to allow a single cache to be shared by all regions on a regionserver.
+ *
+ * <p>
+ * Cached transactions are shared by all operations that carry the same encoded transaction, so they must not be
+ * modified.
+ * </p>
+ */
+public class TransactionDecodeCache {
+  private static final Log LOG = LogFactory.getLog(TransactionDecodeCache.class);
+
+  // how often the cache statistics are logged, in milliseconds
+  private static final long STATS_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+  private static volatile TransactionDecodeCache instance;
+  private static final Object LOCK = new Object();
+
+  private final TransactionCodec txCodec = new TransactionCodec();
+  // null if caching is disabled
+  private final Cache<Key, Transaction> cache;
+  private volatile long lastStatsLog = System.currentTimeMillis();
+
+  /**
+   * Returns the instance shared by all regions, creating it from the given configuration if necessary.
+   */
+  public static TransactionDecodeCache get(Configuration conf) {
+    if (instance == null) {
+      synchronized (LOCK) {
+        if (instance == null) {
+          long maxBytes = conf.getLong(TxConstants.Coprocessor.CFG_TX_DECODE_CACHE_MAX_BYTES,
+                                       TxConstants.Coprocessor.DEFAULT_TX_DECODE_CACHE_MAX_BYTES);
+          instance = new TransactionDecodeCache(maxBytes);
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * @param maxBytes maximum total size of the cached encoded transactions, or 0 to disable caching
+   */
+  public TransactionDecodeCache(long maxBytes) {
+    if (maxBytes <= 0) {
+      this.cache = null;
+      return;
+    }
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxBytes)
+      .weigher(new Weigher<Key, Transaction>() {
+        @Override
+        public int weigh(Key key, Transaction tx) {
+          // the decoded transaction takes about as much memory as its encoding
+          return 2 * key.encoded.length;
+        }
+      })
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Returns the decoded form of an encoded transaction.
+   */
+  public Transaction decode(final byte[] encoded) throws IOException {
+    if (cache == null) {
+      return txCodec.decode(encoded);
+    }
+    Transaction tx;
+    try {
+      tx = cache.get(new Key(encoded), new Callable<Transaction>() {
+        @Override
+        public Transaction call() throws Exception {
+          return txCodec.decode(encoded);
+        }
+      });
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+    logStats();
+    return tx;
+  }
+
+  /**
+   * @return the hit and miss counts of the cache, or null if caching is disabled
+   */
+  public CacheStats getStats() {
+    return cache == null ? null : cache.stats();
+  }
+
+  private void logStats() {
+    long now = System.currentTimeMillis();
+    if (now - lastStatsLog >= STATS_LOG_INTERVAL) {
+      lastStatsLog = now;
+      CacheStats stats = cache.stats();
+      LOG.info("Transaction decode cache: " + cache.size() + " entries, " + stats.hitCount() + " hits, " +
+                 stats.missCount() + " misses, " + stats.evictionCount() + " evictions");
+    }
+  }
+
+  /**
+   * Compares encoded transactions by content.
+   */
+  private static final class Key {
+    private final byte[] encoded;
+    private final int hashCode;
+
+    private Key(byte[] encoded) {
+      this.encoded = encoded;
+      this.hashCode = Arrays.hashCode(encoded);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o == this || (o instanceof Key && Arrays.equals(encoded, ((Key) o).encoded));
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
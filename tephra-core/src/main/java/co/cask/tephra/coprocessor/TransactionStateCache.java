@@ -16,25 +16,44 @@
 
 package co.cask.tephra.coprocessor;
 
+import co.cask.tephra.Transaction;
 import co.cask.tephra.TxConstants;
+import co.cask.tephra.distributed.TransactionServiceClient;
 import co.cask.tephra.metrics.TxMetricsCollector;
 import co.cask.tephra.persist.HDFSTransactionStateStorage;
 import co.cask.tephra.persist.TransactionStateStorage;
 import co.cask.tephra.persist.TransactionVisibilityState;
+import co.cask.tephra.persist.VisibilityStateUpdate;
+import co.cask.tephra.runtime.ConfigModule;
+import co.cask.tephra.runtime.DiscoveryModules;
+import co.cask.tephra.runtime.TransactionClientModule;
+import co.cask.tephra.runtime.ZKModule;
 import co.cask.tephra.snapshot.SnapshotCodecProvider;
 import co.cask.tephra.util.ConfigurationFactory;
+import co.cask.tephra.util.TxUtils;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.twill.zookeeper.ZKClientService;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Periodically refreshes transaction state from the latest stored snapshot.  This is implemented as a singleton
  * to allow a single cache to be shared by all regions on a regionserver.
+ *
+ * <p>
+ * If {@link TxConstants.Coprocessor#CFG_TX_STATE_FETCH_ENABLED} is set, the state is instead fetched from the tx
+ * service at a much shorter interval, so that coprocessors learn about committed and invalidated transactions
+ * soon after they happen. The snapshot is only read if fetching the state fails.
+ * </p>
  */
 public class TransactionStateCache extends AbstractIdleService implements Configurable {
   private static final Log LOG = LogFactory.getLog(TransactionStateCache.class);
@@ -46,6 +65,8 @@ public class TransactionStateCache extends AbstractIdleService implements Config
 
   private TransactionStateStorage storage;
   private volatile TransactionVisibilityState latestState;
+  // the transaction for filtering on flush and compaction, with the state it was created from
+  private volatile StateTransaction stateTransaction;
 
   private Thread refreshService;
   private long lastRefresh;
@@ -53,6 +74,16 @@ public class TransactionStateCache extends AbstractIdleService implements Config
   private long snapshotRefreshFrequency;
   private boolean initialized;
 
+  // client for fetching the state from the tx service, null if fetching is disabled
+  private ZKClientService zkClient;
+  private TransactionServiceClient txClient;
+  private SnapshotCodecProvider codecProvider;
+  // fetch frequency in milliseconds
+  private long fetchFrequency;
+  // the invalid list of the latest fetched state, and its version
+  private Collection<Long> fetchedInvalid;
+  private long fetchedInvalidVersion;
+
   public TransactionStateCache() {
   }
 
@@ -76,6 +107,7 @@ public class TransactionStateCache extends AbstractIdleService implements Config
   protected void shutDown() throws Exception {
     this.refreshService.interrupt();
     this.storage.stop();
+    stopFetching();
   }
 
   /**
@@ -88,11 +120,15 @@ public class TransactionStateCache extends AbstractIdleService implements Config
       if (conf != null) {
         // Since this is only used for background loading of transaction snapshots, we use the no-op metrics collector,
         // as there are no relevant metrics to report
-        this.storage = new HDFSTransactionStateStorage(conf, new SnapshotCodecProvider(conf),
-                                                       new TxMetricsCollector());
+        this.codecProvider = new SnapshotCodecProvider(conf);
+        this.storage = new HDFSTransactionStateStorage(conf, codecProvider, new TxMetricsCollector());
         this.storage.startAndWait();
         this.snapshotRefreshFrequency = conf.getLong(TxConstants.Manager.CFG_TX_SNAPSHOT_INTERVAL,
                                                      TxConstants.Manager.DEFAULT_TX_SNAPSHOT_INTERVAL) * 1000;
+        if (txClient == null && conf.getBoolean(TxConstants.Coprocessor.CFG_TX_STATE_FETCH_ENABLED,
+                                                TxConstants.Coprocessor.DEFAULT_TX_STATE_FETCH_ENABLED)) {
+          startFetching(conf);
+        }
         this.initialized = true;
       } else {
         LOG.info("Could not load configuration");
@@ -108,6 +144,67 @@ public class TransactionStateCache extends AbstractIdleService implements Config
     return conf;
   }
 
+  private void startFetching(Configuration conf) {
+    Injector injector = Guice.createInjector(
+      new ConfigModule(conf),
+      new ZKModule(),
+      new DiscoveryModules().getDistributedModules(),
+      new TransactionClientModule()
+    );
+    this.zkClient = injector.getInstance(ZKClientService.class);
+    this.zkClient.startAndWait();
+    this.txClient = injector.getInstance(TransactionServiceClient.class);
+    this.fetchFrequency = conf.getLong(TxConstants.Coprocessor.CFG_TX_STATE_FETCH_INTERVAL,
+                                       TxConstants.Coprocessor.DEFAULT_TX_STATE_FETCH_INTERVAL) * 1000;
+    LOG.info("Fetching transaction state from the tx service every " + fetchFrequency + " ms");
+  }
+
+  private void stopFetching() {
+    this.txClient = null;
+    this.fetchedInvalid = null;
+    if (this.zkClient != null) {
+      this.zkClient.stopAndWait();
+      this.zkClient = null;
+    }
+  }
+
+  /**
+   * Fetches the visibility state from the tx service.
+   *
+   * @return whether the state was fetched
+   */
+  private boolean fetchState() {
+    try {
+      // ask for the invalid list only if we do not have it already
+      long knownVersion = fetchedInvalid == null ? fetchedInvalidVersion - 1 : fetchedInvalidVersion;
+      VisibilityStateUpdate update;
+      InputStream in = txClient.getVisibilityStateInputStream(knownVersion);
+      try {
+        update = VisibilityStateUpdate.read(in, codecProvider);
+      } finally {
+        in.close();
+      }
+      if (!update.isInvalidIncluded() && fetchedInvalid == null) {
+        LOG.info("Fetched transaction state does not include the invalid list.");
+        return false;
+      }
+      TransactionVisibilityState state = update.getState(fetchedInvalid);
+      fetchedInvalid = state.getInvalid();
+      fetchedInvalidVersion = update.getInvalidVersion();
+      latestState = state;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Transaction state fetched from tx service at " + state.getTimestamp());
+      }
+      return true;
+    } catch (UnsupportedOperationException e) {
+      LOG.warn("Tx service does not support fetching the transaction state, using snapshots only.");
+      stopFetching();
+    } catch (Exception e) {
+      LOG.info("Error fetching transaction state from tx service: " + e.getMessage());
+    }
+    return false;
+  }
+
   private void reset() {
     this.storage.stop();
     this.lastRefresh = 0;
@@ -119,7 +216,8 @@ public class TransactionStateCache extends AbstractIdleService implements Config
       @Override
       public void run() {
         while (!isInterrupted()) {
-          if (latestState == null || System.currentTimeMillis() > (lastRefresh + snapshotRefreshFrequency)) {
+          long refreshFrequency = txClient != null ? fetchFrequency : snapshotRefreshFrequency;
+          if (latestState == null || System.currentTimeMillis() > (lastRefresh + refreshFrequency)) {
             try {
               refreshState();
             } catch (IOException ioe) {
@@ -127,7 +225,8 @@ public class TransactionStateCache extends AbstractIdleService implements Config
             }
           }
           try {
-            TimeUnit.SECONDS.sleep(CHECK_FREQUENCY);
+            TimeUnit.MILLISECONDS.sleep(txClient != null ? Math.min(fetchFrequency, CHECK_FREQUENCY * 1000)
+                                                          : CHECK_FREQUENCY * 1000);
           } catch (InterruptedException ie) {
             // reset status
             interrupt();
@@ -149,11 +248,21 @@ public class TransactionStateCache extends AbstractIdleService implements Config
     // only continue if initialization was successful
     if (initialized) {
       long now = System.currentTimeMillis();
+      if (txClient != null && fetchState()) {
+        lastRefresh = now;
+        return;
+      }
       TransactionVisibilityState currentState = storage.getLatestTransactionVisibilityState();
       if (currentState != null) {
         if (currentState.getTimestamp() < (now - 2 * snapshotRefreshFrequency)) {
           LOG.info("Current snapshot is old, will force a refresh on next run.");
           reset();
+        } else if (latestState != null && currentState.getTimestamp() <= latestState.getTimestamp()) {
+          // the state fetched from the tx service last time is more recent than the snapshot
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Keeping transaction state from " + latestState.getTimestamp() + ", latest snapshot is from " +
+                        currentState.getTimestamp());
+          }
         } else {
           latestState = currentState;
           LOG.info("Transaction state reloaded with snapshot from " + latestState.getTimestamp());
@@ -171,4 +280,29 @@ public class TransactionStateCache extends AbstractIdleService implements Config
   public TransactionVisibilityState getLatestState() {
     return latestState;
   }
+
+  /**
+   * Returns the transaction used to filter data on flush and compaction with the given state, as created by
+   * {@link TxUtils#createDummyTransaction}. The transaction is created once per state and shared by all stores and
+   * regions of the region server, so it must not be modified.
+   */
+  public Transaction getDummyTransaction(TransactionVisibilityState state) {
+    StateTransaction cached = stateTransaction;
+    if (cached != null && cached.state == state) {
+      return cached.tx;
+    }
+    Transaction tx = TxUtils.createDummyTransaction(state);
+    stateTransaction = new StateTransaction(state, tx);
+    return tx;
+  }
+
+  private static final class StateTransaction {
+    private final TransactionVisibilityState state;
+    private final Transaction tx;
+
+    private StateTransaction(TransactionVisibilityState state, Transaction tx) {
+      this.state = state;
+      this.tx = tx;
+    }
+  }
 }
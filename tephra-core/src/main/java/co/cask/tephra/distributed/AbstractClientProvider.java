@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * An abstract tx client provider that implements common functionality.
@@ -43,6 +44,8 @@ public abstract class AbstractClientProvider implements ThriftClientProvider {
   // Discovery service. If null, no service discovery.
   private final DiscoveryServiceClient discoveryServiceClient;
   protected final AtomicBoolean initialized = new AtomicBoolean(false);
+  // whether the tx service supports packed excludes, shared by all clients of this provider; null until known
+  protected final AtomicReference<Boolean> packedSupport = new AtomicReference<>();
 
   // the configuration
   final Configuration configuration;
@@ -84,6 +87,19 @@ public abstract class AbstractClientProvider implements ThriftClientProvider {
   }
 
   protected TransactionServiceThriftClient newClient(int timeout) throws TException {
+    // thrift transport layer
+    TTransport transport = new TFramedTransport(connect(timeout));
+    // and create a thrift client
+    return new TransactionServiceThriftClient(transport, packedSupport);
+  }
+
+  /**
+   * Opens a new socket to the tx service.
+   *
+   * @param timeout the socket timeout in milliseconds, or a negative value to use the configured timeout
+   * @return the connected socket
+   */
+  protected TSocket connect(int timeout) throws TException {
     initialize();
     String address;
     int port;
@@ -115,21 +131,17 @@ public abstract class AbstractClientProvider implements ThriftClientProvider {
     }
     LOG.info("Attempting to connect to tx service at " +
                address + ":" + port + " with timeout " + timeout + " ms.");
-    // thrift transport layer
-    TTransport transport =
-        new TFramedTransport(new TSocket(address, port, timeout));
+    TSocket socket = new TSocket(address, port, timeout);
     try {
-      transport.open();
+      socket.open();
     } catch (TTransportException e) {
       LOG.error("Unable to connect to tx service: " + e.getMessage());
       throw e;
     }
-    // and create a thrift client
-    TransactionServiceThriftClient newClient = new TransactionServiceThriftClient(transport);
 
     LOG.info("Connected to tx service at " +
                address + ":" + port);
-    return newClient;
+    return socket;
   }
 
   /**
@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.InvalidTruncateTimeException;
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionCouldNotTakeSnapshotException;
+import co.cask.tephra.TransactionNotInProgressException;
+import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.metrics.MetricsCollector;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link TransactionSystemClient} that coalesces concurrent short transaction starts into batched calls to
+ * {@link TransactionSystemClient#startShortBatch(int, int)} of a delegate client.
+ *
+ * <p>
+ * The first thread that starts a short transaction with a given timeout becomes the leader of a new batch. It waits
+ * for up to the configured window for other threads to join the batch, then issues a single call for the whole batch
+ * and hands each waiting thread its own transaction. A batch that reaches the maximum size is issued right away.
+ * All other operations are passed through to the delegate.
+ * </p>
+ *
+ * <p>
+ * Because the batched call requires an explicit timeout, {@link #startShort()} uses the timeout configured with
+ * {@link TxConstants.Manager#CFG_TX_TIMEOUT} in the client's configuration.
+ * </p>
+ */
+public class CoalescingTransactionSystemClient implements TransactionSystemClient {
+
+  private final TransactionSystemClient delegate;
+  private final MetricsCollector metricsCollector;
+  private final int defaultTimeout;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  // the batch that new requests join, by transaction timeout; guarded by itself
+  private final Map<Integer, PendingBatch> openBatches = Maps.newHashMap();
+
+  public CoalescingTransactionSystemClient(TransactionSystemClient delegate, Configuration conf,
+                                           MetricsCollector metricsCollector) {
+    this.delegate = delegate;
+    this.metricsCollector = metricsCollector;
+    this.defaultTimeout = conf.getInt(TxConstants.Manager.CFG_TX_TIMEOUT, TxConstants.Manager.DEFAULT_TX_TIMEOUT);
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(
+      Math.max(conf.getLong(TxConstants.Service.CFG_DATA_TX_CLIENT_COALESCE_WINDOW_US,
+                            TxConstants.Service.DEFAULT_DATA_TX_CLIENT_COALESCE_WINDOW_US), 0));
+    this.maxBatchSize = Math.max(conf.getInt(TxConstants.Service.CFG_DATA_TX_CLIENT_COALESCE_MAX_BATCH,
+                                             TxConstants.Service.DEFAULT_DATA_TX_CLIENT_COALESCE_MAX_BATCH), 1);
+  }
+
+  @Override
+  public Transaction startShort() {
+    return startCoalesced(defaultTimeout);
+  }
+
+  @Override
+  public Transaction startShort(int timeout) {
+    return startCoalesced(timeout);
+  }
+
+  @Override
+  public List<Transaction> startShortBatch(int count, int timeout) {
+    return delegate.startShortBatch(count, timeout);
+  }
+
+  @Override
+  public Transaction startLong() {
+    return delegate.startLong();
+  }
+
+  @Override
+  public Transaction startReadOnly() {
+    return delegate.startReadOnly();
+  }
+
+  @Override
+  public boolean canCommit(Transaction tx, Collection<byte[]> changeIds) throws TransactionNotInProgressException {
+    return delegate.canCommit(tx, changeIds);
+  }
+
+  @Override
+  public boolean commit(Transaction tx) throws TransactionNotInProgressException {
+    return delegate.commit(tx);
+  }
+
+  @Override
+  public void abort(Transaction tx) {
+    delegate.abort(tx);
+  }
+
+  @Override
+  public boolean invalidate(long tx) {
+    return delegate.invalidate(tx);
+  }
+
+  @Override
+  public Transaction checkpoint(Transaction tx) throws TransactionNotInProgressException {
+    return delegate.checkpoint(tx);
+  }
+
+  @Override
+  public InputStream getSnapshotInputStream() throws TransactionCouldNotTakeSnapshotException {
+    return delegate.getSnapshotInputStream();
+  }
+
+  @Override
+  public String status() {
+    return delegate.status();
+  }
+
+  @Override
+  public void resetState() {
+    delegate.resetState();
+  }
+
+  @Override
+  public boolean truncateInvalidTx(Set<Long> invalidTxIds) {
+    return delegate.truncateInvalidTx(invalidTxIds);
+  }
+
+  @Override
+  public boolean truncateInvalidTxBefore(long time) throws InvalidTruncateTimeException {
+    return delegate.truncateInvalidTxBefore(time);
+  }
+
+  @Override
+  public int getInvalidSize() {
+    return delegate.getInvalidSize();
+  }
+
+  private Transaction startCoalesced(int timeout) {
+    long startTime = System.nanoTime();
+    PendingBatch batch;
+    int index;
+    synchronized (openBatches) {
+      batch = openBatches.get(timeout);
+      if (batch == null) {
+        batch = new PendingBatch(Thread.currentThread());
+        openBatches.put(timeout, batch);
+      }
+      index = batch.size++;
+      if (batch.size >= maxBatchSize) {
+        // no more requests can join this batch, let the leader issue it right away
+        openBatches.remove(timeout);
+        if (index > 0) {
+          LockSupport.unpark(batch.leader);
+        }
+      }
+    }
+    if (index == 0) {
+      issueBatch(batch, timeout, startTime + windowNanos);
+    }
+    List<Transaction> transactions;
+    try {
+      transactions = Uninterruptibles.getUninterruptibly(batch.result);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    metricsCollector.histogram("client.start.coalesce.latency",
+                               (int) TimeUnit.NANOSECONDS.toMicros(batch.issueTime - startTime));
+    return transactions.get(index);
+  }
+
+  /**
+   * Waits for the batch to close, either by reaching the deadline or the maximum batch size, then starts one
+   * transaction for every request in the batch.
+   */
+  private void issueBatch(PendingBatch batch, int timeout, long deadline) {
+    int count;
+    while (true) {
+      long remaining;
+      synchronized (openBatches) {
+        remaining = deadline - System.nanoTime();
+        boolean open = openBatches.get(timeout) == batch;
+        if (!open || remaining <= 0) {
+          if (open) {
+            openBatches.remove(timeout);
+          }
+          count = batch.size;
+          break;
+        }
+      }
+      LockSupport.parkNanos(this, remaining);
+    }
+
+    batch.issueTime = System.nanoTime();
+    metricsCollector.histogram("client.start.batch.size", count);
+    try {
+      if (count == 1) {
+        batch.result.set(ImmutableList.of(delegate.startShort(timeout)));
+      } else {
+        List<Transaction> transactions = delegate.startShortBatch(count, timeout);
+        if (transactions.size() != count) {
+          throw new IllegalStateException("Requested " + count + " transactions but received " +
+                                            transactions.size());
+        }
+        batch.result.set(transactions);
+      }
+    } catch (Throwable t) {
+      batch.result.setException(t);
+    }
+  }
+
+  /**
+   * Concurrent requests to start a short transaction with the same timeout, which are issued together.
+   */
+  private static final class PendingBatch {
+    private final Thread leader;
+    private final SettableFuture<List<Transaction>> result = SettableFuture.create();
+    // number of requests in this batch; guarded by openBatches
+    private int size;
+    // written by the leader before the result is set
+    private long issueTime;
+
+    private PendingBatch(Thread leader) {
+      this.leader = leader;
+    }
+  }
+}
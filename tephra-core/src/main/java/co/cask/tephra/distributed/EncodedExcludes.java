@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import org.apache.thrift.protocol.TType;
+
+/**
+ * The invalid and in-progress lists of a state of the transaction manager, encoded on demand for the thrift
+ * transactions of all transactions started from that state.
+ *
+ * <p>
+ * The transaction manager hands out the same excludes arrays to all transactions created between two changes of
+ * its state, and keeps the encoding of the current state, so that all these transactions share one encoding. The
+ * encoding of the invalid list is also shared with the following states, as long as the invalid list does not
+ * change.
+ * </p>
+ */
+public final class EncodedExcludes {
+  private final EncodedList invalids;
+  private final EncodedList inProgress;
+
+  public EncodedExcludes(long[] invalids, long[] inProgress) {
+    this(new EncodedList(invalids), new EncodedList(inProgress));
+  }
+
+  private EncodedExcludes(EncodedList invalids, EncodedList inProgress) {
+    this.invalids = invalids;
+    this.inProgress = inProgress;
+  }
+
+  /**
+   * Returns the encoded excludes for the given in-progress list, sharing the encoding of the invalid list.
+   */
+  public EncodedExcludes withInProgress(long[] inProgress) {
+    return new EncodedExcludes(invalids, new EncodedList(inProgress));
+  }
+
+  /**
+   * @return whether these are the encodings of exactly the given arrays
+   */
+  public boolean isFor(long[] invalids, long[] inProgress) {
+    return this.invalids.values == invalids && this.inProgress.values == inProgress;
+  }
+
+  EncodedList getInvalids() {
+    return invalids;
+  }
+
+  EncodedList getInProgress() {
+    return inProgress;
+  }
+
+  /**
+   * A list of longs, encoded on demand as a binary protocol list of i64, or in packed form.
+   */
+  static final class EncodedList {
+    private final long[] values;
+    private volatile byte[] bytes;
+    private volatile byte[] packed;
+
+    private EncodedList(long[] values) {
+      this.values = values;
+    }
+
+    byte[] getBytes() {
+      byte[] result = bytes;
+      if (result == null) {
+        result = new byte[5 + 8 * values.length];
+        result[0] = TType.I64;
+        int pos = putInt(result, 1, values.length);
+        for (long value : values) {
+          pos = putInt(result, pos, (int) (value >>> 32));
+          pos = putInt(result, pos, (int) value);
+        }
+        bytes = result;
+      }
+      return result;
+    }
+
+    byte[] getPacked() {
+      byte[] result = packed;
+      if (result == null) {
+        result = PackedExcludes.encode(values);
+        packed = result;
+      }
+      return result;
+    }
+
+    private static int putInt(byte[] buf, int pos, int value) {
+      buf[pos] = (byte) (value >>> 24);
+      buf[pos + 1] = (byte) (value >>> 16);
+      buf[pos + 2] = (byte) (value >>> 8);
+      buf[pos + 3] = (byte) value;
+      return pos + 4;
+    }
+  }
+}
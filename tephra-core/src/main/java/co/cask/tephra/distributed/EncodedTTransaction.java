@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.distributed.thrift.TTransaction;
+import co.cask.tephra.distributed.thrift.TTransactionType;
+import co.cask.tephra.distributed.thrift.TVisibilityLevel;
+import com.google.common.primitives.Longs;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link TTransaction} that writes its invalid and in-progress lists from pre-encoded bytes when serialized with
+ * the binary protocol, or that carries them in the packed form of {@link PackedExcludes}.
+ *
+ * <p>
+ * The encoding of the excludes is taken from the {@link EncodedExcludes} of the transaction manager's state the
+ * transaction was started from, so that all transactions of such a state share one encoding, and serializing a
+ * transaction only writes its scalar fields. The output is identical to that of the generated serialization code.
+ * </p>
+ */
+final class EncodedTTransaction extends TTransaction {
+  private static final TStruct STRUCT_DESC = new TStruct("TTransaction");
+  private static final TField TRANSACTION_ID_FIELD_DESC = new TField("transactionId", TType.I64, (short) 1);
+  private static final TField READ_POINTER_FIELD_DESC = new TField("readPointer", TType.I64, (short) 2);
+  private static final TField INVALIDS_FIELD_DESC = new TField("invalids", TType.LIST, (short) 3);
+  private static final TField IN_PROGRESS_FIELD_DESC = new TField("inProgress", TType.LIST, (short) 4);
+  private static final TField FIRST_SHORT_FIELD_DESC = new TField("firstShort", TType.I64, (short) 5);
+  private static final TField TYPE_FIELD_DESC = new TField("type", TType.I32, (short) 6);
+  private static final TField WRITE_POINTER_FIELD_DESC = new TField("writePointer", TType.I64, (short) 7);
+  private static final TField CHECKPOINT_WRITE_POINTERS_FIELD_DESC =
+    new TField("checkpointWritePointers", TType.LIST, (short) 8);
+  private static final TField VISIBILITY_LEVEL_FIELD_DESC = new TField("visibilityLevel", TType.I32, (short) 9);
+  private static final TField PACKED_EXCLUDES_FIELD_DESC = new TField("packedExcludes", TType.STRING, (short) 10);
+
+  private final EncodedExcludes.EncodedList encodedInvalids;
+  private final EncodedExcludes.EncodedList encodedInProgress;
+  private final boolean packed;
+  // the lists that match the encoded bytes, to detect if a field was replaced after construction
+  private final List<Long> invalidsList;
+  private final List<Long> inProgressList;
+
+  /**
+   * @param packed whether to carry the excludes in the packed field instead of the invalid and in-progress lists
+   * @param excludes the encoding of the invalid and in-progress arrays, or null to encode them for this transaction
+   */
+  EncodedTTransaction(long transactionId, long readPointer, long[] invalids, long[] inProgress, long firstShort,
+                      TTransactionType type, long writePointer, long[] checkpointWritePointers,
+                      TVisibilityLevel visibilityLevel, boolean packed,
+                      @Nullable EncodedExcludes excludes) {
+    // the lists are views of the arrays, elements are only boxed if they are accessed
+    super(transactionId, readPointer, packed ? null : Longs.asList(invalids),
+          packed ? null : Longs.asList(inProgress), firstShort, type,
+          writePointer, Longs.asList(checkpointWritePointers), visibilityLevel);
+    if (excludes == null || !excludes.isFor(invalids, inProgress)) {
+      excludes = new EncodedExcludes(invalids, inProgress);
+    }
+    this.encodedInvalids = excludes.getInvalids();
+    this.encodedInProgress = excludes.getInProgress();
+    this.packed = packed;
+    this.invalidsList = this.invalids;
+    this.inProgressList = this.inProgress;
+    if (packed) {
+      setPackedExcludes(PackedExcludes.pack(encodedInvalids.getPacked(), encodedInProgress.getPacked()));
+    }
+  }
+
+  @Override
+  public void write(TProtocol oprot) throws TException {
+    if (packed || !(oprot instanceof TBinaryProtocol) || invalids != invalidsList || inProgress != inProgressList) {
+      super.write(oprot);
+      return;
+    }
+    validate();
+
+    oprot.writeStructBegin(STRUCT_DESC);
+    oprot.writeFieldBegin(TRANSACTION_ID_FIELD_DESC);
+    oprot.writeI64(transactionId);
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(READ_POINTER_FIELD_DESC);
+    oprot.writeI64(readPointer);
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(INVALIDS_FIELD_DESC);
+    oprot.getTransport().write(encodedInvalids.getBytes());
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(IN_PROGRESS_FIELD_DESC);
+    oprot.getTransport().write(encodedInProgress.getBytes());
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(FIRST_SHORT_FIELD_DESC);
+    oprot.writeI64(firstShort);
+    oprot.writeFieldEnd();
+    if (type != null) {
+      oprot.writeFieldBegin(TYPE_FIELD_DESC);
+      oprot.writeI32(type.getValue());
+      oprot.writeFieldEnd();
+    }
+    oprot.writeFieldBegin(WRITE_POINTER_FIELD_DESC);
+    oprot.writeI64(writePointer);
+    oprot.writeFieldEnd();
+    if (checkpointWritePointers != null) {
+      oprot.writeFieldBegin(CHECKPOINT_WRITE_POINTERS_FIELD_DESC);
+      oprot.writeListBegin(new TList(TType.I64, checkpointWritePointers.size()));
+      for (long checkpointWritePointer : checkpointWritePointers) {
+        oprot.writeI64(checkpointWritePointer);
+      }
+      oprot.writeListEnd();
+      oprot.writeFieldEnd();
+    }
+    if (visibilityLevel != null) {
+      oprot.writeFieldBegin(VISIBILITY_LEVEL_FIELD_DESC);
+      oprot.writeI32(visibilityLevel.getValue());
+      oprot.writeFieldEnd();
+    }
+    if (packedExcludes != null) {
+      oprot.writeFieldBegin(PACKED_EXCLUDES_FIELD_DESC);
+      oprot.writeBinary(packedExcludes);
+      oprot.writeFieldEnd();
+    }
+    oprot.writeFieldStop();
+    oprot.writeStructEnd();
+  }
+
+  /**
+   * @return whether the encoding of the invalid list is shared with the given transaction
+   */
+  boolean sharesInvalids(EncodedTTransaction other) {
+    return encodedInvalids == other.encodedInvalids;
+  }
+
+  /**
+   * @return whether the encoding of the in-progress list is shared with the given transaction
+   */
+  boolean sharesInProgress(EncodedTTransaction other) {
+    return encodedInProgress == other.encodedInProgress;
+  }
+}
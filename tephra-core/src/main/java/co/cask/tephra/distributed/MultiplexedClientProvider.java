@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.TxConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.thrift.TException;
+import org.apache.twill.discovery.DiscoveryServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An tx client provider that shares a small, fixed number of connections among all callers. Every caller gets its
+ * own lightweight client, and the requests of concurrent callers are sent over the same connection without waiting
+ * for each other's responses. This allows many concurrent transaction operations without opening a connection for
+ * each of them. Because the tx service executes one request per connection at a time, the number of connections
+ * bounds how many requests of this client are in progress on the server.
+ */
+public class MultiplexedClientProvider extends AbstractClientProvider {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MultiplexedClientProvider.class);
+
+  private final MultiplexedConnection[] connections;
+  private final AtomicInteger nextConnection = new AtomicInteger();
+  // how long a caller waits for a response, in milliseconds
+  private final int timeout;
+
+  public MultiplexedClientProvider(Configuration conf, DiscoveryServiceClient discoveryServiceClient) {
+    super(conf, discoveryServiceClient);
+    int connectionCount = conf.getInt(TxConstants.Service.CFG_DATA_TX_CLIENT_CONNECTIONS,
+                                      TxConstants.Service.DEFAULT_DATA_TX_CLIENT_CONNECTIONS);
+    if (connectionCount < 1) {
+      LOG.warn("Configuration of " + TxConstants.Service.CFG_DATA_TX_CLIENT_CONNECTIONS +
+                 " is invalid: value is " + connectionCount + " but must be at least 1. " +
+                 "Using 1 as a fallback. ");
+      connectionCount = 1;
+    }
+    this.connections = new MultiplexedConnection[connectionCount];
+    this.timeout = conf.getInt(TxConstants.Service.CFG_DATA_TX_CLIENT_TIMEOUT,
+                               TxConstants.Service.DEFAULT_DATA_TX_CLIENT_TIMEOUT_MS);
+  }
+
+  @Override
+  public CloseableThriftClient getCloseableClient() throws TException, TimeoutException, InterruptedException {
+    int index = (nextConnection.getAndIncrement() & Integer.MAX_VALUE) % connections.length;
+    MultiplexedTransport transport = new MultiplexedTransport(getConnection(index), timeout);
+    return new CloseableThriftClient(this, new TransactionServiceThriftClient(transport, packedSupport));
+  }
+
+  @Override
+  public void returnClient(TransactionServiceThriftClient client) {
+    // clients are not reused, a failed connection is replaced the next time it is picked
+    client.close();
+  }
+
+  /**
+   * Returns the connection at the given index, replacing it with a new connection if it failed.
+   */
+  private MultiplexedConnection getConnection(int index) throws TException {
+    synchronized (connections) {
+      MultiplexedConnection connection = connections[index];
+      if (connection == null || !connection.isOpen()) {
+        if (connection != null) {
+          LOG.info("Replacing failed tx service connection {}", index);
+          connection.close();
+        }
+        connection = new MultiplexedConnection(connect(timeout), Integer.toString(index));
+        connections[index] = connection;
+      }
+      return connection;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Multiplexed";
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A framed connection to the tx service that is shared by many concurrent callers.
+ *
+ * <p>
+ * Each call writes one request frame and waits for its response frame. Requests of different callers are written
+ * back to back without waiting for the previous responses. Before a request is sent, its thrift sequence id is
+ * replaced with a sequence id that is unique within this connection. A dedicated reader thread matches each
+ * response to its request by that sequence id, and the caller's original sequence id is restored in the response.
+ * </p>
+ *
+ * <p>
+ * Note that the tx service reads the next request from a connection only after it responded to the previous one.
+ * Requests written back to back therefore wait in the socket buffers and are executed one after the other, and a
+ * connection has at most one request in progress on the server at any time.
+ * </p>
+ */
+final class MultiplexedConnection {
+  private static final Logger LOG = LoggerFactory.getLogger(MultiplexedConnection.class);
+
+  private final TSocket socket;
+  private final String name;
+  private final AtomicInteger nextSeqId = new AtomicInteger();
+  private final ConcurrentMap<Integer, SettableFuture<byte[]>> pending = Maps.newConcurrentMap();
+  private final Object writeLock = new Object();
+  private final byte[] frameHeader = new byte[4];
+  private final Thread readerThread;
+
+  // the error that broke this connection, after which no more calls are accepted
+  private volatile TTransportException failure;
+
+  /**
+   * Creates a connection over the given socket, which must already be open.
+   */
+  MultiplexedConnection(TSocket socket, String name) {
+    this.socket = socket;
+    this.name = name;
+    // the reader thread waits indefinitely for responses, callers enforce their own timeouts
+    socket.setTimeout(0);
+    this.readerThread = new Thread("tx-client-reader-" + name) {
+      @Override
+      public void run() {
+        runReader();
+      }
+    };
+    this.readerThread.setDaemon(true);
+    this.readerThread.start();
+  }
+
+  boolean isOpen() {
+    return failure == null;
+  }
+
+  /**
+   * @return the number of calls waiting for a response
+   */
+  int getPendingCalls() {
+    return pending.size();
+  }
+
+  /**
+   * Sends a request message and waits for its response.
+   *
+   * @param message buffer containing a serialized thrift request message. Its sequence id is modified in place.
+   * @param length the length of the message in the buffer
+   * @param timeoutMs how long to wait for the response
+   * @return the response message
+   * @throws TTransportException if the connection failed, or no response arrived within the timeout
+   */
+  byte[] call(byte[] message, int length, long timeoutMs) throws TTransportException {
+    int seqIdOffset = getSeqIdOffset(message, length);
+    int originalSeqId = getInt(message, seqIdOffset);
+    int seqId = nextSeqId.incrementAndGet();
+    putInt(message, seqIdOffset, seqId);
+
+    SettableFuture<byte[]> future = SettableFuture.create();
+    synchronized (writeLock) {
+      checkOpen();
+      // register before writing, so that the reader cannot miss the response
+      pending.put(seqId, future);
+      try {
+        // the reader may have failed the connection concurrently
+        checkOpen();
+        TFramedTransport.encodeFrameSize(length, frameHeader);
+        socket.write(frameHeader, 0, frameHeader.length);
+        socket.write(message, 0, length);
+        socket.flush();
+      } catch (TTransportException e) {
+        pending.remove(seqId);
+        fail(e);
+        throw e;
+      }
+    }
+
+    byte[] response;
+    try {
+      response = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // the responses of all later calls are queued behind the missing one, and the socket may be half-open:
+      // fail the connection so that all its calls fail and the connection gets replaced
+      TTransportException error = new TTransportException(TTransportException.TIMED_OUT, "No response within " +
+                                                           timeoutMs + " ms on connection " + name);
+      fail(error);
+      throw error;
+    } catch (InterruptedException e) {
+      pending.remove(seqId);
+      Thread.currentThread().interrupt();
+      throw new TTransportException("Interrupted while waiting for response on connection " + name, e);
+    } catch (ExecutionException e) {
+      throw (TTransportException) e.getCause();
+    }
+    putInt(response, getSeqIdOffset(response, response.length), originalSeqId);
+    return response;
+  }
+
+  /**
+   * Closes the connection. All calls waiting for a response fail.
+   */
+  void close() {
+    fail(new TTransportException(TTransportException.NOT_OPEN, "Connection " + name + " was closed"));
+  }
+
+  private void checkOpen() throws TTransportException {
+    TTransportException error = failure;
+    if (error != null) {
+      throw new TTransportException(TTransportException.NOT_OPEN, "Connection " + name + " failed previously", error);
+    }
+  }
+
+  private void runReader() {
+    byte[] header = new byte[4];
+    try {
+      while (true) {
+        socket.readAll(header, 0, header.length);
+        int size = TFramedTransport.decodeFrameSize(header);
+        if (size < 0) {
+          throw new TTransportException(TTransportException.UNKNOWN, "Read a negative frame size " + size);
+        }
+        byte[] frame = new byte[size];
+        socket.readAll(frame, 0, size);
+        int seqId = getInt(frame, getSeqIdOffset(frame, size));
+        SettableFuture<byte[]> future = pending.remove(seqId);
+        if (future == null) {
+          // the caller gave up waiting for this response
+          LOG.debug("Discarding response with sequence id {} on connection {}", seqId, name);
+        } else {
+          future.set(frame);
+        }
+      }
+    } catch (TTransportException e) {
+      if (failure == null) {
+        LOG.warn("Reading from connection {} failed: {}", name, e.toString());
+      }
+      fail(e);
+    }
+  }
+
+  private void fail(TTransportException error) {
+    synchronized (this) {
+      if (failure != null) {
+        return;
+      }
+      failure = error;
+    }
+    socket.close();
+    for (Map.Entry<Integer, SettableFuture<byte[]>> entry : pending.entrySet()) {
+      if (pending.remove(entry.getKey()) != null) {
+        entry.getValue().setException(error);
+      }
+    }
+  }
+
+  /**
+   * Returns the offset of the sequence id within a message serialized with the binary protocol.
+   */
+  private static int getSeqIdOffset(byte[] message, int length) throws TTransportException {
+    if (length < 4) {
+      throw new TTransportException(TTransportException.UNKNOWN, "Message too short: " + length);
+    }
+    int first = getInt(message, 0);
+    int offset;
+    if (first < 0) {
+      // strict header, marked by the high bit of the version: version and type, name, sequence id
+      if (length < 8) {
+        throw new TTransportException(TTransportException.UNKNOWN, "Message too short: " + length);
+      }
+      offset = 8 + getInt(message, 4);
+    } else {
+      // old header: name, type, sequence id
+      offset = 4 + first + 1;
+    }
+    if (offset < 0 || offset + 4 > length) {
+      throw new TTransportException(TTransportException.UNKNOWN, "Invalid message header");
+    }
+    return offset;
+  }
+
+  private static int getInt(byte[] buf, int offset) {
+    return ((buf[offset] & 0xff) << 24) | ((buf[offset + 1] & 0xff) << 16)
+      | ((buf[offset + 2] & 0xff) << 8) | (buf[offset + 3] & 0xff);
+  }
+
+  private static void putInt(byte[] buf, int offset, int value) {
+    buf[offset] = (byte) (value >>> 24);
+    buf[offset + 1] = (byte) (value >>> 16);
+    buf[offset + 2] = (byte) (value >>> 8);
+    buf[offset + 3] = (byte) value;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import org.apache.thrift.TByteArrayOutputStream;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * A thrift transport for a single caller of a {@link MultiplexedConnection}. A request is buffered until it is
+ * flushed, then sent over the shared connection, and the response is buffered for reading.
+ */
+final class MultiplexedTransport extends TTransport {
+
+  private final MultiplexedConnection connection;
+  private final long timeoutMs;
+  private final TByteArrayOutputStream request = new TByteArrayOutputStream(128);
+  private final TMemoryInputTransport response = new TMemoryInputTransport();
+  private boolean closed;
+
+  MultiplexedTransport(MultiplexedConnection connection, long timeoutMs) {
+    this.connection = connection;
+    this.timeoutMs = timeoutMs;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed && connection.isOpen();
+  }
+
+  @Override
+  public void open() throws TTransportException {
+    if (!isOpen()) {
+      throw new TTransportException(TTransportException.NOT_OPEN, "Cannot reopen a multiplexed transport");
+    }
+  }
+
+  /**
+   * Closes this transport, but not the shared connection.
+   */
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  @Override
+  public int read(byte[] buf, int off, int len) throws TTransportException {
+    return response.read(buf, off, len);
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) throws TTransportException {
+    request.write(buf, off, len);
+  }
+
+  @Override
+  public void flush() throws TTransportException {
+    if (closed) {
+      throw new TTransportException(TTransportException.NOT_OPEN, "Transport is closed");
+    }
+    try {
+      response.reset(connection.call(request.get(), request.len(), timeoutMs));
+    } finally {
+      request.reset();
+    }
+  }
+
+  @Override
+  public byte[] getBuffer() {
+    return response.getBuffer();
+  }
+
+  @Override
+  public int getBufferPosition() {
+    return response.getBufferPosition();
+  }
+
+  @Override
+  public int getBytesRemainingInBuffer() {
+    return response.getBytesRemainingInBuffer();
+  }
+
+  @Override
+  public void consumeBuffer(int len) {
+    response.consumeBuffer(len);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the excludes of a transaction into the {@code packedExcludes} field of a
+ * {@link co.cask.tephra.distributed.thrift.TTransaction}, and decodes them directly into {@code long[]}.
+ *
+ * <p>
+ * The field holds the invalid list followed by the in-progress list. Each list is encoded as its size, followed by
+ * the difference of every value to its predecessor (the first value to zero). The size and all differences are
+ * written as zig-zag variable length integers. Since excludes are sorted lists of nearby transaction ids, most
+ * values take one or two bytes instead of eight.
+ * </p>
+ */
+final class PackedExcludes {
+  private static final long[] EMPTY = { };
+
+  private PackedExcludes() {
+  }
+
+  /**
+   * Encodes a single list of values.
+   */
+  static byte[] encode(long[] values) {
+    byte[] buf = new byte[5 + 10 * values.length];
+    int pos = writeVarLong(buf, 0, values.length);
+    long previous = 0;
+    for (long value : values) {
+      pos = writeVarLong(buf, pos, value - previous);
+      previous = value;
+    }
+    if (pos == buf.length) {
+      return buf;
+    }
+    byte[] result = new byte[pos];
+    System.arraycopy(buf, 0, result, 0, pos);
+    return result;
+  }
+
+  /**
+   * Concatenates the encoded invalid and in-progress lists into the content of the packed field.
+   */
+  static ByteBuffer pack(byte[] encodedInvalids, byte[] encodedInProgress) {
+    byte[] packed = new byte[encodedInvalids.length + encodedInProgress.length];
+    System.arraycopy(encodedInvalids, 0, packed, 0, encodedInvalids.length);
+    System.arraycopy(encodedInProgress, 0, packed, encodedInvalids.length, encodedInProgress.length);
+    return ByteBuffer.wrap(packed);
+  }
+
+  /**
+   * Decodes the next list from the buffer, advancing its position past the list.
+   *
+   * @throws IllegalArgumentException if the buffer does not contain a valid list
+   */
+  static long[] decode(ByteBuffer buf) {
+    long size = readVarLong(buf);
+    // every value takes at least one byte
+    if (size < 0 || size > buf.remaining()) {
+      throw new IllegalArgumentException("Invalid size of packed excludes: " + size);
+    }
+    if (size == 0) {
+      return EMPTY;
+    }
+    long[] values = new long[(int) size];
+    long previous = 0;
+    for (int i = 0; i < values.length; i++) {
+      previous += readVarLong(buf);
+      values[i] = previous;
+    }
+    return values;
+  }
+
+  private static int writeVarLong(byte[] buf, int pos, long value) {
+    // zig-zag encoding, so that small negative differences are short, too
+    long v = (value << 1) ^ (value >> 63);
+    while ((v & ~0x7FL) != 0) {
+      buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    buf[pos++] = (byte) v;
+    return pos;
+  }
+
+  private static long readVarLong(ByteBuffer buf) {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (!buf.hasRemaining()) {
+        throw new IllegalArgumentException("Unexpected end of packed excludes");
+      }
+      byte b = buf.get();
+      v |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (v >>> 1) ^ -(v & 1);
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable length integer in packed excludes");
+  }
+}
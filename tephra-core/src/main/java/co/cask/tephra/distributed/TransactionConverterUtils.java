@@ -22,6 +22,15 @@ import co.cask.tephra.distributed.thrift.TTransaction;
 import co.cask.tephra.distributed.thrift.TTransactionType;
 import co.cask.tephra.distributed.thrift.TVisibilityLevel;
 import com.google.common.primitives.Longs;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TType;
+
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
 
 /**
  * Utility methods to convert to thrift and back.
@@ -30,24 +39,166 @@ public final class TransactionConverterUtils {
   private static final long[] EMPTY_LONG_ARRAY = {};
 
   public static TTransaction wrap(Transaction tx) {
-    return new TTransaction(tx.getTransactionId(), tx.getReadPointer(),
-                            Longs.asList(tx.getInvalids()), Longs.asList(tx.getInProgress()),
-                            tx.getFirstShortInProgress(), getTTransactionType(tx.getType()),
-                            tx.getWritePointer(), Longs.asList(tx.getCheckpointWritePointers()),
-                            getTVisibilityLevel(tx.getVisibilityLevel()));
+    return wrap(tx, null);
+  }
+
+  /**
+   * Converts a transaction to thrift, reusing the given encoding of its invalid and in-progress lists if it was
+   * made for the arrays of the transaction.
+   */
+  public static TTransaction wrap(Transaction tx, @Nullable EncodedExcludes excludes) {
+    return wrap(tx, false, excludes);
+  }
+
+  /**
+   * Converts a transaction to thrift, with its excludes in the packed field instead of the invalid and in-progress
+   * lists. This must only be used if the receiver is known to understand the packed field.
+   */
+  public static TTransaction wrapPacked(Transaction tx) {
+    return wrapPacked(tx, null);
+  }
+
+  /**
+   * Same as {@link #wrapPacked(Transaction)}, reusing the given encoding of the excludes if it was made for the
+   * arrays of the transaction.
+   */
+  public static TTransaction wrapPacked(Transaction tx, @Nullable EncodedExcludes excludes) {
+    return wrap(tx, true, excludes);
+  }
+
+  private static TTransaction wrap(Transaction tx, boolean packed, @Nullable EncodedExcludes excludes) {
+    return new EncodedTTransaction(tx.getTransactionId(), tx.getReadPointer(),
+                                   tx.getInvalids(), tx.getInProgress(),
+                                   tx.getFirstShortInProgress(), getTTransactionType(tx.getType()),
+                                   tx.getWritePointer(), tx.getCheckpointWritePointers(),
+                                   getTVisibilityLevel(tx.getVisibilityLevel()), packed, excludes);
   }
 
   public static Transaction unwrap(TTransaction thriftTx) {
+    long[] invalids;
+    long[] inProgress;
+    if (thriftTx.isSetPackedExcludes()) {
+      ByteBuffer packed = thriftTx.bufferForPackedExcludes().duplicate();
+      invalids = PackedExcludes.decode(packed);
+      inProgress = PackedExcludes.decode(packed);
+    } else {
+      invalids = thriftTx.getInvalids() == null ? EMPTY_LONG_ARRAY : Longs.toArray(thriftTx.getInvalids());
+      inProgress = thriftTx.getInProgress() == null ? EMPTY_LONG_ARRAY : Longs.toArray(thriftTx.getInProgress());
+    }
     return new Transaction(thriftTx.getReadPointer(), thriftTx.getTransactionId(), thriftTx.getWritePointer(),
-                           thriftTx.getInvalids() == null ? EMPTY_LONG_ARRAY : Longs.toArray(thriftTx.getInvalids()),
-                           thriftTx.getInProgress() == null ? EMPTY_LONG_ARRAY :
-                               Longs.toArray(thriftTx.getInProgress()),
+                           invalids, inProgress,
                            thriftTx.getFirstShort(), getTransactionType(thriftTx.getType()),
                            thriftTx.getCheckpointWritePointers() == null ? EMPTY_LONG_ARRAY :
                                Longs.toArray(thriftTx.getCheckpointWritePointers()),
                            getVisibilityLevel(thriftTx.getVisibilityLevel()));
   }
 
+  /**
+   * Reads a {@link TTransaction} from the given protocol directly into a {@link Transaction}, without creating
+   * boxed lists for the excludes. Supports both the list and the packed form of the excludes.
+   */
+  public static Transaction read(TProtocol iprot) throws TException {
+    long transactionId = 0;
+    long readPointer = 0;
+    long firstShort = 0;
+    long writePointer = 0;
+    long[] invalids = EMPTY_LONG_ARRAY;
+    long[] inProgress = EMPTY_LONG_ARRAY;
+    long[] checkpointWritePointers = EMPTY_LONG_ARRAY;
+    TTransactionType type = null;
+    TVisibilityLevel visibilityLevel = null;
+
+    iprot.readStructBegin();
+    while (true) {
+      TField field = iprot.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+        case 1:
+          transactionId = readI64(iprot, field);
+          break;
+        case 2:
+          readPointer = readI64(iprot, field);
+          break;
+        case 3:
+          invalids = readLongs(iprot, field, invalids);
+          break;
+        case 4:
+          inProgress = readLongs(iprot, field, inProgress);
+          break;
+        case 5:
+          firstShort = readI64(iprot, field);
+          break;
+        case 6:
+          if (field.type == TType.I32) {
+            type = TTransactionType.findByValue(iprot.readI32());
+          } else {
+            TProtocolUtil.skip(iprot, field.type);
+          }
+          break;
+        case 7:
+          writePointer = readI64(iprot, field);
+          break;
+        case 8:
+          checkpointWritePointers = readLongs(iprot, field, checkpointWritePointers);
+          break;
+        case 9:
+          if (field.type == TType.I32) {
+            visibilityLevel = TVisibilityLevel.findByValue(iprot.readI32());
+          } else {
+            TProtocolUtil.skip(iprot, field.type);
+          }
+          break;
+        case 10:
+          if (field.type == TType.STRING) {
+            ByteBuffer packed = iprot.readBinary();
+            invalids = PackedExcludes.decode(packed);
+            inProgress = PackedExcludes.decode(packed);
+          } else {
+            TProtocolUtil.skip(iprot, field.type);
+          }
+          break;
+        default:
+          TProtocolUtil.skip(iprot, field.type);
+      }
+      iprot.readFieldEnd();
+    }
+    iprot.readStructEnd();
+
+    return new Transaction(readPointer, transactionId, writePointer, invalids, inProgress, firstShort,
+                           getTransactionType(type), checkpointWritePointers, getVisibilityLevel(visibilityLevel));
+  }
+
+  private static long readI64(TProtocol iprot, TField field) throws TException {
+    if (field.type != TType.I64) {
+      TProtocolUtil.skip(iprot, field.type);
+      return 0;
+    }
+    return iprot.readI64();
+  }
+
+  private static long[] readLongs(TProtocol iprot, TField field, long[] defaultValue) throws TException {
+    if (field.type != TType.LIST) {
+      TProtocolUtil.skip(iprot, field.type);
+      return defaultValue;
+    }
+    TList list = iprot.readListBegin();
+    if (list.elemType != TType.I64) {
+      for (int i = 0; i < list.size; i++) {
+        TProtocolUtil.skip(iprot, list.elemType);
+      }
+      iprot.readListEnd();
+      return defaultValue;
+    }
+    long[] values = list.size == 0 ? EMPTY_LONG_ARRAY : new long[list.size];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = iprot.readI64();
+    }
+    iprot.readListEnd();
+    return values;
+  }
+
   private static TransactionType getTransactionType(TTransactionType tType) {
     return tType == TTransactionType.SHORT ? TransactionType.SHORT : TransactionType.LONG;
   }
@@ -45,6 +45,7 @@ import org.slf4j.LoggerFactory;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -286,6 +287,38 @@ public class TransactionServiceClient implements TransactionSystemClient {
     }
   }
 
+  @Override
+  public List<Transaction> startShortBatch(final int count, final int timeout) {
+    try {
+      return execute(
+        new Operation<List<Transaction>>("startShortBatch") {
+          @Override
+          public List<Transaction> execute(TransactionServiceThriftClient client)
+            throws TException {
+            return client.startShortBatch(count, timeout);
+          }
+        });
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public Transaction startReadOnly() {
+    try {
+      return execute(
+        new Operation<Transaction>("startReadOnly") {
+          @Override
+          public Transaction execute(TransactionServiceThriftClient client)
+            throws TException {
+            return client.startReadOnly();
+          }
+        });
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
   @Override
   public boolean canCommit(final Transaction tx, final Collection<byte[]> changeIds)
     throws TransactionNotInProgressException {
@@ -393,6 +426,31 @@ public class TransactionServiceClient implements TransactionSystemClient {
     }
   }
 
+  /**
+   * Retrieves the visibility state of the tx service, in the format of
+   * {@link co.cask.tephra.persist.VisibilityStateUpdate}.
+   *
+   * @param knownInvalidVersion version of the invalid list that the caller already has, the invalid list is omitted
+   *                            from the response if it has not changed since
+   * @throws UnsupportedOperationException if the tx service does not support this call
+   */
+  public InputStream getVisibilityStateInputStream(final long knownInvalidVersion)
+    throws TransactionCouldNotTakeSnapshotException {
+    try {
+      return this.execute(
+        new Operation<InputStream>("getVisibilityState") {
+          @Override
+          public InputStream execute(TransactionServiceThriftClient client) throws Exception {
+            return client.getVisibilityStateStream(knownInvalidVersion);
+          }
+        });
+    } catch (TransactionCouldNotTakeSnapshotException e) {
+      throw e;
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
   @Override
   public String status() {
     try {
@@ -21,23 +21,29 @@ import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionCouldNotTakeSnapshotException;
 import co.cask.tephra.TransactionNotInProgressException;
 import co.cask.tephra.distributed.thrift.TInvalidTruncateTimeException;
+import co.cask.tephra.distributed.thrift.TTransaction;
 import co.cask.tephra.distributed.thrift.TTransactionCouldNotTakeSnapshotException;
 import co.cask.tephra.distributed.thrift.TTransactionNotInProgressException;
 import co.cask.tephra.distributed.thrift.TTransactionServer;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is a wrapper around the thrift tx service client, it takes
@@ -68,13 +74,28 @@ public class TransactionServiceThriftClient {
    */
   private final AtomicBoolean isValid = new AtomicBoolean(true);
 
+  /**
+   * Whether the tx service supports transactions with packed excludes, or null if that is not known yet. Reset to null
+   * when the transport fails, and until it is known, transactions are sent with their excludes as lists.
+   */
+  private final AtomicReference<Boolean> packedSupport;
+
   /**
    * Constructor from an existing, connected thrift transport.
    *
    * @param transport the thrift transport layer. It must already be connected
    */
   public TransactionServiceThriftClient(TTransport transport) {
+    this(transport, new AtomicReference<Boolean>());
+  }
+
+  /**
+   * Constructor from an existing, connected thrift transport, sharing the knowledge whether the tx service
+   * supports packed excludes with other clients.
+   */
+  TransactionServiceThriftClient(TTransport transport, AtomicReference<Boolean> packedSupport) {
     this.transport = transport;
+    this.packedSupport = packedSupport;
     // thrift protocol layer, we use binary because so does the service
     TProtocol protocol = new TBinaryProtocol(transport);
     // and create a thrift client
@@ -94,25 +115,85 @@ public class TransactionServiceThriftClient {
     try {
       return TransactionConverterUtils.unwrap(client.startLong());
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
 
   public Transaction startShort() throws TException {
     try {
+      Transaction tx = startShortPacked(0);
+      if (tx != null) {
+        return tx;
+      }
       return TransactionConverterUtils.unwrap(client.startShort());
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
 
   public Transaction startShort(int timeout) throws TException {
     try {
+      Transaction tx = timeout > 0 ? startShortPacked(timeout) : null;
+      if (tx != null) {
+        return tx;
+      }
       return TransactionConverterUtils.unwrap(client.startShortTimeout(timeout));
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts a short transaction whose excludes are sent in packed form, if the tx service supports that.
+   *
+   * @param timeout the transaction timeout, or 0 for the default timeout of the tx service
+   * @return the new transaction, or null if the tx service does not support packed excludes
+   */
+  private Transaction startShortPacked(int timeout) throws TException {
+    if (Boolean.FALSE.equals(packedSupport.get())) {
+      return null;
+    }
+    try {
+      Transaction tx = TransactionConverterUtils.unwrap(client.startShortPacked(timeout));
+      packedSupport.set(true);
+      return tx;
+    } catch (TApplicationException e) {
+      if (e.getType() != TApplicationException.UNKNOWN_METHOD) {
+        throw e;
+      }
+      // an older tx service, the connection remains usable
+      packedSupport.set(false);
+      return null;
+    }
+  }
+
+  private TTransaction wrap(Transaction tx) {
+    return Boolean.TRUE.equals(packedSupport.get()) ?
+      TransactionConverterUtils.wrapPacked(tx) : TransactionConverterUtils.wrap(tx);
+  }
+
+  public List<Transaction> startShortBatch(int count, int timeout) throws TException {
+    try {
+      List<TTransaction> txs = client.startShortBatch(count, timeout);
+      List<Transaction> result = Lists.newArrayListWithCapacity(txs.size());
+      for (TTransaction tx : txs) {
+        result.add(TransactionConverterUtils.unwrap(tx));
+      }
+      return result;
+    } catch (TException e) {
+      markInvalid(e);
+      throw e;
+    }
+  }
+
+  public Transaction startReadOnly() throws TException {
+    try {
+      return TransactionConverterUtils.unwrap(client.startReadOnly());
+    } catch (TException e) {
+      markInvalid(e);
       throw e;
     }
   }
@@ -120,12 +201,12 @@ public class TransactionServiceThriftClient {
   public boolean canCommit(Transaction tx, Collection<byte[]> changeIds)
     throws TException, TransactionNotInProgressException {
     try {
-      return client.canCommitTx(TransactionConverterUtils.wrap(tx),
+      return client.canCommitTx(wrap(tx),
                                 ImmutableSet.copyOf(Iterables.transform(changeIds, BYTES_WRAPPER))).isValue();
     } catch (TTransactionNotInProgressException e) {
       throw new TransactionNotInProgressException(e.getMessage());
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -134,20 +215,20 @@ public class TransactionServiceThriftClient {
 
   public boolean commit(Transaction tx) throws TException, TransactionNotInProgressException {
     try {
-      return client.commitTx(TransactionConverterUtils.wrap(tx)).isValue();
+      return client.commitTx(wrap(tx)).isValue();
     } catch (TTransactionNotInProgressException e) {
       throw new TransactionNotInProgressException(e.getMessage());
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
 
   public void abort(Transaction tx) throws TException {
     try {
-      client.abortTx(TransactionConverterUtils.wrap(tx));
+      client.abortTx(wrap(tx));
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -156,16 +237,16 @@ public class TransactionServiceThriftClient {
     try {
       return client.invalidateTx(tx);
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
 
   public Transaction checkpoint(Transaction tx) throws TException {
     try {
-      return TransactionConverterUtils.unwrap(client.checkpoint(TransactionConverterUtils.wrap(tx)));
+      return TransactionConverterUtils.unwrap(client.checkpoint(wrap(tx)));
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -184,7 +265,38 @@ public class TransactionServiceThriftClient {
     } catch (TTransactionCouldNotTakeSnapshotException e) {
       throw new TransactionCouldNotTakeSnapshotException(e.getMessage());
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Retrieves the visibility state of the transaction manager, as written by
+   * {@link co.cask.tephra.persist.VisibilityStateUpdate}.
+   *
+   * @param knownInvalidVersion version of the invalid list that the caller already has
+   */
+  public InputStream getVisibilityStateStream(long knownInvalidVersion)
+    throws TException, TransactionCouldNotTakeSnapshotException {
+    try {
+      ByteBuffer buffer = client.getVisibilityState(knownInvalidVersion);
+      if (buffer.hasArray()) {
+        return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      }
+      byte[] state = new byte[buffer.remaining()];
+      buffer.get(state);
+      return new ByteArrayInputStream(state);
+    } catch (TTransactionCouldNotTakeSnapshotException e) {
+      throw new TransactionCouldNotTakeSnapshotException(e.getMessage());
+    } catch (TApplicationException e) {
+      if (e.getType() == TApplicationException.UNKNOWN_METHOD) {
+        // the server predates this call, the connection is still usable
+        throw new UnsupportedOperationException("Tx service does not support getVisibilityState", e);
+      }
+      markInvalid(e);
+      throw e;
+    } catch (TException e) {
+      markInvalid(e);
       throw e;
     }
   }
@@ -193,7 +305,7 @@ public class TransactionServiceThriftClient {
     try {
       return client.status();
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -202,7 +314,7 @@ public class TransactionServiceThriftClient {
     try {
         client.resetState();
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -211,7 +323,7 @@ public class TransactionServiceThriftClient {
     try {
       return client.truncateInvalidTx(invalidTxIds).isValue();
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -222,7 +334,7 @@ public class TransactionServiceThriftClient {
     } catch (TInvalidTruncateTimeException e) {
       throw new InvalidTruncateTimeException(e.getMessage());
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -231,7 +343,7 @@ public class TransactionServiceThriftClient {
     try {
       return client.invalidTxSize();
     } catch (TException e) {
-      isValid.set(false);
+      markInvalid(e);
       throw e;
     }
   }
@@ -239,4 +351,15 @@ public class TransactionServiceThriftClient {
   public boolean isValid() {
     return isValid.get();
   }
+
+  /**
+   * Marks this client as invalid after a failed call. If the transport failed, the client will reconnect, possibly
+   * to a different tx service, so whether packed excludes are supported must be determined again.
+   */
+  private void markInvalid(TException e) {
+    isValid.set(false);
+    if (e instanceof TTransportException) {
+      packedSupport.set(null);
+    }
+  }
 }
@@ -17,6 +17,7 @@
 package co.cask.tephra.distributed;
 
 import co.cask.tephra.InvalidTruncateTimeException;
+import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionManager;
 import co.cask.tephra.TransactionNotInProgressException;
 import co.cask.tephra.TxConstants;
@@ -27,12 +28,14 @@ import co.cask.tephra.distributed.thrift.TTransactionCouldNotTakeSnapshotExcepti
 import co.cask.tephra.distributed.thrift.TTransactionNotInProgressException;
 import co.cask.tephra.distributed.thrift.TTransactionServer;
 import co.cask.tephra.rpc.RPCServiceHandler;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.thrift.TException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -61,20 +64,41 @@ public class TransactionServiceThriftHandler implements TTransactionServer.Iface
 
   @Override
   public TTransaction startLong() throws TException {
-    return TransactionConverterUtils.wrap(txManager.startLong());
+    return wrap(txManager.startLong());
   }
 
   @Override
   public TTransaction startShort() throws TException {
-    return TransactionConverterUtils.wrap(txManager.startShort());
+    return wrap(txManager.startShort());
   }
 
   @Override
   public TTransaction startShortTimeout(int timeout) throws TException {
-    return TransactionConverterUtils.wrap(txManager.startShort(timeout));
+    return wrap(txManager.startShort(timeout));
   }
 
 
+  @Override
+  public TTransaction startReadOnly() throws TException {
+    return wrap(txManager.startReadOnly());
+  }
+
+  @Override
+  public List<TTransaction> startShortBatch(int count, int timeout) throws TException {
+    List<Transaction> txs = txManager.startShortBatch(count, timeout);
+    List<TTransaction> result = Lists.newArrayListWithCapacity(txs.size());
+    for (Transaction tx : txs) {
+      result.add(wrap(tx));
+    }
+    return result;
+  }
+
+  @Override
+  public TTransaction startShortPacked(int timeout) throws TException {
+    Transaction tx = timeout > 0 ? txManager.startShort(timeout) : txManager.startShort();
+    return TransactionConverterUtils.wrapPacked(tx, txManager.getEncodedExcludes(tx));
+  }
+
   @Override
   public TBoolean canCommitTx(TTransaction tx, Set<ByteBuffer> changes) throws TException {
 
@@ -129,6 +153,21 @@ public class TransactionServiceThriftHandler implements TTransactionServer.Iface
     }
   }
 
+  @Override
+  public ByteBuffer getVisibilityState(long invalidVersion) throws TException {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        txManager.writeVisibilityState(out, invalidVersion);
+      } finally {
+        out.close();
+      }
+      return ByteBuffer.wrap(out.toByteArray());
+    } catch (IOException e) {
+      throw new TTransactionCouldNotTakeSnapshotException(e.getMessage());
+    }
+  }
+
   @Override
   public void resetState() throws TException {
     txManager.resetState();
@@ -161,13 +200,20 @@ public class TransactionServiceThriftHandler implements TTransactionServer.Iface
   @Override
   public TTransaction checkpoint(TTransaction originalTx) throws TException {
     try {
-      return TransactionConverterUtils.wrap(
-          txManager.checkpoint(TransactionConverterUtils.unwrap(originalTx)));
+      return wrap(txManager.checkpoint(TransactionConverterUtils.unwrap(originalTx)));
     } catch (TransactionNotInProgressException e) {
       throw new TTransactionNotInProgressException(e.getMessage());
     }
   }
 
+  /**
+   * Converts a transaction started by the transaction manager, sharing the encoding of its excludes with the other
+   * transactions started from the same state.
+   */
+  private TTransaction wrap(Transaction tx) {
+    return TransactionConverterUtils.wrap(tx, txManager.getEncodedExcludes(tx));
+  }
+
   /* RPCServiceHandler implementation */
 
   @Override
@@ -58,6 +58,7 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
   private static final org.apache.thrift.protocol.TField WRITE_POINTER_FIELD_DESC = new org.apache.thrift.protocol.TField("writePointer", org.apache.thrift.protocol.TType.I64, (short)7);
   private static final org.apache.thrift.protocol.TField CHECKPOINT_WRITE_POINTERS_FIELD_DESC = new org.apache.thrift.protocol.TField("checkpointWritePointers", org.apache.thrift.protocol.TType.LIST, (short)8);
   private static final org.apache.thrift.protocol.TField VISIBILITY_LEVEL_FIELD_DESC = new org.apache.thrift.protocol.TField("visibilityLevel", org.apache.thrift.protocol.TType.I32, (short)9);
+  private static final org.apache.thrift.protocol.TField PACKED_EXCLUDES_FIELD_DESC = new org.apache.thrift.protocol.TField("packedExcludes", org.apache.thrift.protocol.TType.STRING, (short)10);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -82,6 +83,7 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
    * @see TVisibilityLevel
    */
   public TVisibilityLevel visibilityLevel; // required
+  public ByteBuffer packedExcludes; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -101,7 +103,8 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
      * 
      * @see TVisibilityLevel
      */
-    VISIBILITY_LEVEL((short)9, "visibilityLevel");
+    VISIBILITY_LEVEL((short)9, "visibilityLevel"),
+    PACKED_EXCLUDES((short)10, "packedExcludes");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -134,6 +137,8 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
           return CHECKPOINT_WRITE_POINTERS;
         case 9: // VISIBILITY_LEVEL
           return VISIBILITY_LEVEL;
+        case 10: // PACKED_EXCLUDES
+          return PACKED_EXCLUDES;
         default:
           return null;
       }
@@ -179,6 +184,7 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
   private static final int __FIRSTSHORT_ISSET_ID = 2;
   private static final int __WRITEPOINTER_ISSET_ID = 3;
   private byte __isset_bitfield = 0;
+  private _Fields optionals[] = {_Fields.PACKED_EXCLUDES};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -203,6 +209,8 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
             new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64))));
     tmpMap.put(_Fields.VISIBILITY_LEVEL, new org.apache.thrift.meta_data.FieldMetaData("visibilityLevel", org.apache.thrift.TFieldRequirementType.DEFAULT, 
         new org.apache.thrift.meta_data.EnumMetaData(org.apache.thrift.protocol.TType.ENUM, TVisibilityLevel.class)));
+    tmpMap.put(_Fields.PACKED_EXCLUDES, new org.apache.thrift.meta_data.FieldMetaData("packedExcludes", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING        , true)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TTransaction.class, metaDataMap);
   }
@@ -273,6 +281,10 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
     if (other.isSetVisibilityLevel()) {
       this.visibilityLevel = other.visibilityLevel;
     }
+    if (other.isSetPackedExcludes()) {
+      this.packedExcludes = org.apache.thrift.TBaseHelper.copyBinary(other.packedExcludes);
+;
+    }
   }
 
   public TTransaction deepCopy() {
@@ -294,6 +306,7 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
     this.writePointer = 0;
     this.checkpointWritePointers = null;
     this.visibilityLevel = null;
+    this.packedExcludes = null;
   }
 
   public long getTransactionId() {
@@ -569,6 +582,40 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
     }
   }
 
+  public byte[] getPackedExcludes() {
+    setPackedExcludes(org.apache.thrift.TBaseHelper.rightSize(packedExcludes));
+    return packedExcludes == null ? null : packedExcludes.array();
+  }
+
+  public ByteBuffer bufferForPackedExcludes() {
+    return packedExcludes;
+  }
+
+  public TTransaction setPackedExcludes(byte[] packedExcludes) {
+    setPackedExcludes(packedExcludes == null ? (ByteBuffer)null : ByteBuffer.wrap(packedExcludes));
+    return this;
+  }
+
+  public TTransaction setPackedExcludes(ByteBuffer packedExcludes) {
+    this.packedExcludes = packedExcludes;
+    return this;
+  }
+
+  public void unsetPackedExcludes() {
+    this.packedExcludes = null;
+  }
+
+  /** Returns true if field packedExcludes is set (has been assigned a value) and false otherwise */
+  public boolean isSetPackedExcludes() {
+    return this.packedExcludes != null;
+  }
+
+  public void setPackedExcludesIsSet(boolean value) {
+    if (!value) {
+      this.packedExcludes = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case TRANSACTION_ID:
@@ -643,6 +690,14 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
       }
       break;
 
+    case PACKED_EXCLUDES:
+      if (value == null) {
+        unsetPackedExcludes();
+      } else {
+        setPackedExcludes((ByteBuffer)value);
+      }
+      break;
+
     }
   }
 
@@ -675,6 +730,9 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
     case VISIBILITY_LEVEL:
       return getVisibilityLevel();
 
+    case PACKED_EXCLUDES:
+      return getPackedExcludes();
+
     }
     throw new IllegalStateException();
   }
@@ -704,6 +762,8 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
       return isSetCheckpointWritePointers();
     case VISIBILITY_LEVEL:
       return isSetVisibilityLevel();
+    case PACKED_EXCLUDES:
+      return isSetPackedExcludes();
     }
     throw new IllegalStateException();
   }
@@ -802,6 +862,15 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
         return false;
     }
 
+    boolean this_present_packedExcludes = true && this.isSetPackedExcludes();
+    boolean that_present_packedExcludes = true && that.isSetPackedExcludes();
+    if (this_present_packedExcludes || that_present_packedExcludes) {
+      if (!(this_present_packedExcludes && that_present_packedExcludes))
+        return false;
+      if (!this.packedExcludes.equals(that.packedExcludes))
+        return false;
+    }
+
     return true;
   }
 
@@ -908,6 +977,16 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetPackedExcludes()).compareTo(typedOther.isSetPackedExcludes());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetPackedExcludes()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.packedExcludes, typedOther.packedExcludes);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -983,6 +1062,16 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
       sb.append(this.visibilityLevel);
     }
     first = false;
+    if (isSetPackedExcludes()) {
+      if (!first) sb.append(", ");
+      sb.append("packedExcludes:");
+      if (this.packedExcludes == null) {
+        sb.append("null");
+      } else {
+        org.apache.thrift.TBaseHelper.toString(this.packedExcludes, sb);
+      }
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -1130,6 +1219,14 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 10: // PACKED_EXCLUDES
+            if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+              struct.packedExcludes = iprot.readBinary();
+              struct.setPackedExcludesIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -1203,6 +1300,13 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
         oprot.writeI32(struct.visibilityLevel.getValue());
         oprot.writeFieldEnd();
       }
+      if (struct.packedExcludes != null) {
+        if (struct.isSetPackedExcludes()) {
+          oprot.writeFieldBegin(PACKED_EXCLUDES_FIELD_DESC);
+          oprot.writeBinary(struct.packedExcludes);
+          oprot.writeFieldEnd();
+        }
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -1248,7 +1352,10 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
       if (struct.isSetVisibilityLevel()) {
         optionals.set(8);
       }
-      oprot.writeBitSet(optionals, 9);
+      if (struct.isSetPackedExcludes()) {
+        optionals.set(9);
+      }
+      oprot.writeBitSet(optionals, 10);
       if (struct.isSetTransactionId()) {
         oprot.writeI64(struct.transactionId);
       }
@@ -1294,12 +1401,15 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
       if (struct.isSetVisibilityLevel()) {
         oprot.writeI32(struct.visibilityLevel.getValue());
       }
+      if (struct.isSetPackedExcludes()) {
+        oprot.writeBinary(struct.packedExcludes);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TTransaction struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(9);
+      BitSet incoming = iprot.readBitSet(10);
       if (incoming.get(0)) {
         struct.transactionId = iprot.readI64();
         struct.setTransactionIdIsSet(true);
@@ -1363,6 +1473,10 @@ public class TTransaction implements org.apache.thrift.TBase<TTransaction, TTran
         struct.visibilityLevel = TVisibilityLevel.findByValue(iprot.readI32());
         struct.setVisibilityLevelIsSet(true);
       }
+      if (incoming.get(9)) {
+        struct.packedExcludes = iprot.readBinary();
+        struct.setPackedExcludesIsSet(true);
+      }
     }
   }
 
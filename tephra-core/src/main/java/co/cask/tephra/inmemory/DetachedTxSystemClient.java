@@ -22,10 +22,12 @@ import co.cask.tephra.TransactionCouldNotTakeSnapshotException;
 import co.cask.tephra.TransactionSystemClient;
 import co.cask.tephra.TransactionType;
 import co.cask.tephra.TxConstants;
+import com.google.common.collect.Lists;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -80,6 +82,20 @@ public class DetachedTxSystemClient implements TransactionSystemClient {
     return startShort();
   }
 
+  @Override
+  public List<Transaction> startShortBatch(int count, int timeout) {
+    List<Transaction> txs = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      txs.add(startShort());
+    }
+    return txs;
+  }
+
+  @Override
+  public Transaction startReadOnly() {
+    return startShort();
+  }
+
   @Override
   public boolean canCommit(Transaction tx, Collection<byte[]> changeIds) {
     return true;
@@ -32,6 +32,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -63,6 +64,16 @@ public class InMemoryTxSystemClient implements TransactionSystemClient {
     return txManager.startShort(timeout);
   }
 
+  @Override
+  public List<Transaction> startShortBatch(int count, int timeout) {
+    return txManager.startShortBatch(count, timeout);
+  }
+
+  @Override
+  public Transaction startReadOnly() {
+    return txManager.startReadOnly();
+  }
+
   @Override
   public boolean canCommit(Transaction tx, Collection<byte[]> changeIds) throws TransactionNotInProgressException {
     return changeIds.isEmpty() || txManager.canCommit(tx, changeIds);
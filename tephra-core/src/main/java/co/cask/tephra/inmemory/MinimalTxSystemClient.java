@@ -23,9 +23,11 @@ import co.cask.tephra.TransactionNotInProgressException;
 import co.cask.tephra.TransactionSystemClient;
 import co.cask.tephra.TransactionType;
 import co.cask.tephra.TxConstants;
+import com.google.common.collect.Lists;
 
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -53,6 +55,20 @@ public class MinimalTxSystemClient implements TransactionSystemClient {
     return startShort();
   }
 
+  @Override
+  public List<Transaction> startShortBatch(int count, int timeout) {
+    List<Transaction> txs = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      txs.add(startShort());
+    }
+    return txs;
+  }
+
+  @Override
+  public Transaction startReadOnly() {
+    return startShort();
+  }
+
   @Override
   public boolean canCommit(Transaction tx, Collection<byte[]> changeIds) {
     return true;
@@ -16,8 +16,13 @@
 
 package co.cask.tephra.persist;
 
+import co.cask.tephra.TxConstants;
 import co.cask.tephra.metrics.MetricsCollector;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
 import org.slf4j.Logger;
@@ -26,9 +31,12 @@ import org.slf4j.LoggerFactory;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
 /**
  * Common implementation of a transaction log, backed by file reader and writer based storage.  Classes extending
@@ -49,9 +57,40 @@ public abstract class AbstractTransactionLog implements TransactionLog {
   private List<Entry> pendingWrites = Lists.newLinkedList();
   private TransactionLogWriter writer;
 
+  private final boolean pipelined;
+  private final int maxBatchSize;
+  private final long maxBatchDelayMicros;
+  private final int queueSize;
+  // only set if pipelined mode is enabled, once the writer has been created
+  private PipelinedTransactionLogWriter pipelinedWriter;
+
   public AbstractTransactionLog(long timestamp, MetricsCollector metricsCollector) {
+    this(timestamp, metricsCollector, null);
+  }
+
+  /**
+   * Creates a new transaction log. If the given configuration enables
+   * {@link TxConstants.TransactionLog#CFG_TX_LOG_PIPELINED pipelined} mode, appends are written in batches from
+   * a dedicated writer thread.
+   */
+  public AbstractTransactionLog(long timestamp, MetricsCollector metricsCollector, @Nullable Configuration conf) {
     this.timestamp = timestamp;
     this.metricsCollector = metricsCollector;
+    if (conf == null) {
+      this.pipelined = TxConstants.TransactionLog.DEFAULT_TX_LOG_PIPELINED;
+      this.maxBatchSize = TxConstants.TransactionLog.DEFAULT_TX_LOG_BATCH_SIZE;
+      this.maxBatchDelayMicros = TxConstants.TransactionLog.DEFAULT_TX_LOG_BATCH_MAX_DELAY;
+      this.queueSize = TxConstants.TransactionLog.DEFAULT_TX_LOG_QUEUE_SIZE;
+    } else {
+      this.pipelined = conf.getBoolean(TxConstants.TransactionLog.CFG_TX_LOG_PIPELINED,
+                                       TxConstants.TransactionLog.DEFAULT_TX_LOG_PIPELINED);
+      this.maxBatchSize = conf.getInt(TxConstants.TransactionLog.CFG_TX_LOG_BATCH_SIZE,
+                                      TxConstants.TransactionLog.DEFAULT_TX_LOG_BATCH_SIZE);
+      this.maxBatchDelayMicros = conf.getLong(TxConstants.TransactionLog.CFG_TX_LOG_BATCH_MAX_DELAY,
+                                              TxConstants.TransactionLog.DEFAULT_TX_LOG_BATCH_MAX_DELAY);
+      this.queueSize = conf.getInt(TxConstants.TransactionLog.CFG_TX_LOG_QUEUE_SIZE,
+                                   TxConstants.TransactionLog.DEFAULT_TX_LOG_QUEUE_SIZE);
+    }
   }
 
   /**
@@ -64,6 +103,10 @@ public abstract class AbstractTransactionLog implements TransactionLog {
       return;
     }
     this.writer = createWriter();
+    if (pipelined) {
+      this.pipelinedWriter = new PipelinedTransactionLogWriter(getName(), writer, metricsCollector,
+                                                               maxBatchSize, maxBatchDelayMicros, queueSize);
+    }
     this.initialized = true;
   }
 
@@ -83,17 +126,26 @@ public abstract class AbstractTransactionLog implements TransactionLog {
   @Override
   public void append(TransactionEdit edit) throws IOException {
     long startTime = System.nanoTime();
+    ListenableFuture<Void> pipelinedSync = null;
     synchronized (this) {
       ensureAvailable();
 
       Entry entry = new Entry(new LongWritable(logSequence.getAndIncrement()), edit);
 
-      // add to pending edits
-      append(entry);
+      if (pipelinedWriter != null) {
+        pipelinedSync = pipelinedWriter.append(Collections.singletonList(entry));
+      } else {
+        // add to pending edits
+        append(entry);
+      }
     }
 
     // wait for sync to complete
-    sync();
+    if (pipelinedSync != null) {
+      waitFor(pipelinedSync);
+    } else {
+      sync();
+    }
     long durationMillis = (System.nanoTime() - startTime) / 1000000L;
     if (durationMillis > SLOW_APPEND_THRESHOLD) {
       LOG.info("Slow append to log " + getName() + ", took " + durationMillis + " msec.");
@@ -103,25 +155,48 @@ public abstract class AbstractTransactionLog implements TransactionLog {
   @Override
   public void append(List<TransactionEdit> edits) throws IOException {
     long startTime = System.nanoTime();
+    ListenableFuture<Void> pipelinedSync = null;
     synchronized (this) {
       ensureAvailable();
 
+      List<Entry> entries = Lists.newArrayListWithCapacity(edits.size());
       for (TransactionEdit edit : edits) {
-        Entry entry = new Entry(new LongWritable(logSequence.getAndIncrement()), edit);
-
+        entries.add(new Entry(new LongWritable(logSequence.getAndIncrement()), edit));
+      }
+      if (pipelinedWriter != null) {
+        pipelinedSync = pipelinedWriter.append(entries);
+      } else {
         // add to pending edits
-        append(entry);
+        for (Entry entry : entries) {
+          append(entry);
+        }
       }
     }
 
     // wait for sync to complete
-    sync();
+    if (pipelinedSync != null) {
+      waitFor(pipelinedSync);
+    } else {
+      sync();
+    }
     long durationMillis = (System.nanoTime() - startTime) / 1000000L;
     if (durationMillis > SLOW_APPEND_THRESHOLD) {
       LOG.info("Slow append to log " + getName() + ", took " + durationMillis + " msec.");
     }
   }
 
+  /**
+   * Waits until the pipelined writer has synced an append.
+   */
+  private void waitFor(ListenableFuture<Void> pipelinedSync) throws IOException {
+    try {
+      Uninterruptibles.getUninterruptibly(pipelinedSync);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
   private void ensureAvailable() throws IOException {
     if (closed) {
       throw new IOException("Log " + getName() + " is already closed, cannot append!");
@@ -190,7 +265,9 @@ public abstract class AbstractTransactionLog implements TransactionLog {
       return;
     }
     // perform a final sync if any outstanding writes
-    if (!pendingWrites.isEmpty()) {
+    if (pipelinedWriter != null) {
+      pipelinedWriter.close();
+    } else if (!pendingWrites.isEmpty()) {
       sync();
     }
     // NOTE: writer is lazy-inited, so it can be null
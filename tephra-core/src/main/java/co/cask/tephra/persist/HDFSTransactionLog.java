@@ -50,7 +50,7 @@ public class HDFSTransactionLog extends AbstractTransactionLog {
    */
   public HDFSTransactionLog(final FileSystem fs, final Configuration hConf,
                             final Path logPath, long timestamp, MetricsCollector metricsCollector) {
-    super(timestamp, metricsCollector);
+    super(timestamp, metricsCollector, hConf);
     this.fs = fs;
     this.hConf = hConf;
     this.logPath = logPath;
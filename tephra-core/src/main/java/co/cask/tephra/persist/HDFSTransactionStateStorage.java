@@ -53,12 +53,18 @@ import javax.annotation.Nullable;
  * Both snapshot and transaction log files are suffixed with a timestamp to allow easy ordering.  Snapshot files
  * are written with the filename "snapshot.&lt;timestamp&gt;".  Transaction log files are written with the filename
  * "txlog.&lt;timestamp&gt;".
+ *
+ * Along with each snapshot, only its visibility state (timestamp, pointers, invalid list and in-progress transactions)
+ * is written to a much smaller file named "visibility.&lt;timestamp&gt;".  Readers that only need the visibility
+ * state, such as the coprocessors of every region server, read that file instead of the full snapshot.
  */
 public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage {
   private static final Logger LOG = LoggerFactory.getLogger(HDFSTransactionStateStorage.class);
 
   private static final String SNAPSHOT_FILE_PREFIX = "snapshot.";
   private static final String TMP_SNAPSHOT_FILE_PREFIX = ".in-progress.snapshot.";
+  private static final String VISIBILITY_FILE_PREFIX = "visibility.";
+  private static final String TMP_VISIBILITY_FILE_PREFIX = ".in-progress.visibility.";
   private static final String LOG_FILE_PREFIX = "txlog.";
 
   private static final PathFilter SNAPSHOT_FILE_FILTER = new PathFilter() {
@@ -68,12 +74,27 @@ public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage
     }
   };
 
+  private static final PathFilter VISIBILITY_FILE_FILTER = new PathFilter() {
+    @Override
+    public boolean accept(Path path) {
+      return path.getName().startsWith(VISIBILITY_FILE_PREFIX);
+    }
+  };
+
+  private static final PathFilter SNAPSHOT_OR_VISIBILITY_FILE_FILTER = new PathFilter() {
+    @Override
+    public boolean accept(Path path) {
+      return SNAPSHOT_FILE_FILTER.accept(path) || VISIBILITY_FILE_FILTER.accept(path);
+    }
+  };
+
   // buffer size used for HDFS reads and writes
   private static final int BUFFER_SIZE = 16384;
 
   private final Configuration hConf;
   private final String configuredSnapshotDir;
   private final MetricsCollector metricsCollector;
+  private final int visibilityStateRetainCount;
   private FileSystem fs;
   private Path snapshotDir;
 
@@ -84,6 +105,8 @@ public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage
     this.hConf = hConf;
     this.configuredSnapshotDir = hConf.get(TxConstants.Manager.CFG_TX_SNAPSHOT_DIR);
     this.metricsCollector = metricsCollector;
+    this.visibilityStateRetainCount = Math.max(hConf.getInt(TxConstants.Manager.CFG_TX_VISIBILITY_STATE_RETAIN,
+                                                            TxConstants.Manager.DEFAULT_TX_VISIBILITY_STATE_RETAIN), 1);
   }
 
   @Override
@@ -130,6 +153,38 @@ public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage
     Path finalFile = new Path(snapshotDir, SNAPSHOT_FILE_PREFIX + snapshot.getTimestamp());
     fs.rename(snapshotTmpFile, finalFile);
     LOG.debug("Completed snapshot to file {}", finalFile);
+
+    writeVisibilityState(snapshot);
+  }
+
+  /**
+   * Writes the visibility state of a snapshot to its own file. Failures are only logged, because readers of the
+   * visibility state fall back to the full snapshot if it is more recent than the latest visibility state file.
+   */
+  private void writeVisibilityState(TransactionSnapshot snapshot) {
+    // a snapshot without change sets, which every codec can encode and decode
+    TransactionSnapshot visibilityState =
+      new TransactionSnapshot(snapshot.getTimestamp(), snapshot.getReadPointer(), snapshot.getWritePointer(),
+                              snapshot.getInvalid(), snapshot.getInProgress());
+    Path tmpFile = new Path(snapshotDir, TMP_VISIBILITY_FILE_PREFIX + snapshot.getTimestamp());
+    try {
+      FSDataOutputStream out = fs.create(tmpFile, false, BUFFER_SIZE);
+      try {
+        codecProvider.encode(out, visibilityState);
+      } finally {
+        out.close();
+      }
+      Path finalFile = new Path(snapshotDir, VISIBILITY_FILE_PREFIX + snapshot.getTimestamp());
+      fs.rename(tmpFile, finalFile);
+      LOG.debug("Completed visibility state to file {}", finalFile);
+    } catch (Exception e) {
+      LOG.warn("Failed to write the visibility state of snapshot {}", snapshot.getTimestamp(), e);
+      try {
+        fs.delete(tmpFile, false);
+      } catch (IOException ignored) {
+        // the temporary file is not read, and only takes up space
+      }
+    }
   }
 
   @Override
@@ -147,10 +202,30 @@ public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage
 
   @Override
   public TransactionVisibilityState getLatestTransactionVisibilityState() throws IOException {
-    InputStream in = getLatestSnapshotInputStream();
-    if (in == null) {
+    // list snapshots and visibility states at once, to only make one call to the name node
+    TimestampedFilename latestSnapshot = null;
+    TimestampedFilename latestVisibilityState = null;
+    for (TimestampedFilename file : listTimestampedFiles(SNAPSHOT_OR_VISIBILITY_FILE_FILTER)) {
+      if (file.getPath().getName().startsWith(VISIBILITY_FILE_PREFIX)) {
+        if (latestVisibilityState == null || file.getTimestamp() > latestVisibilityState.getTimestamp()) {
+          latestVisibilityState = file;
+        }
+      } else if (latestSnapshot == null || file.getTimestamp() > latestSnapshot.getTimestamp()) {
+        latestSnapshot = file;
+      }
+    }
+    TimestampedFilename latest = latestSnapshot;
+    if (latestVisibilityState != null &&
+      (latestSnapshot == null || latestVisibilityState.getTimestamp() >= latestSnapshot.getTimestamp())) {
+      latest = latestVisibilityState;
+    } else if (latestSnapshot != null) {
+      LOG.debug("No visibility state found for snapshot {}, reading the full snapshot", latestSnapshot.getPath());
+    }
+    if (latest == null) {
+      LOG.info("No snapshot files found in {}", snapshotDir);
       return null;
     }
+    InputStream in = fs.open(latest.getPath(), BUFFER_SIZE);
     try {
       return readTransactionVisibilityStateFromInputStream(in);
     } finally {
@@ -194,16 +269,21 @@ public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage
   }
 
   private TimestampedFilename[] listSnapshotFiles() throws IOException {
-    FileStatus[] snapshotFileStatuses = fs.listStatus(snapshotDir, SNAPSHOT_FILE_FILTER);
-    TimestampedFilename[] snapshotFiles = new TimestampedFilename[snapshotFileStatuses.length];
-    for (int i = 0; i < snapshotFileStatuses.length; i++) {
-      snapshotFiles[i] = new TimestampedFilename(snapshotFileStatuses[i].getPath());
+    return listTimestampedFiles(SNAPSHOT_FILE_FILTER);
+  }
+
+  private TimestampedFilename[] listTimestampedFiles(PathFilter filter) throws IOException {
+    FileStatus[] fileStatuses = fs.listStatus(snapshotDir, filter);
+    TimestampedFilename[] files = new TimestampedFilename[fileStatuses.length];
+    for (int i = 0; i < fileStatuses.length; i++) {
+      files[i] = new TimestampedFilename(fileStatuses[i].getPath());
     }
-    return snapshotFiles;
+    return files;
   }
 
   @Override
   public long deleteOldSnapshots(int numberToKeep) throws IOException {
+    deleteOldVisibilityStates();
     TimestampedFilename[] snapshots = listSnapshotFiles();
     if (snapshots.length == 0) {
       return -1;
@@ -226,6 +306,22 @@ public class HDFSTransactionStateStorage extends AbstractTransactionStateStorage
     return oldestTimestamp;
   }
 
+  /**
+   * Removes the visibility state files prior to the configured number of most recent ones. They are not needed to
+   * recover state, so they are retained independently of the snapshots.
+   */
+  private void deleteOldVisibilityStates() throws IOException {
+    TimestampedFilename[] visibilityFiles = listTimestampedFiles(VISIBILITY_FILE_FILTER);
+    if (visibilityFiles.length <= visibilityStateRetainCount) {
+      return;
+    }
+    Arrays.sort(visibilityFiles, Collections.reverseOrder());
+    for (int i = visibilityStateRetainCount; i < visibilityFiles.length; i++) {
+      LOG.debug("Removing old visibility state file {}", visibilityFiles[i].getPath());
+      fs.delete(visibilityFiles[i].getPath(), false);
+    }
+  }
+
   @Override
   public List<String> listSnapshots() throws IOException {
     FileStatus[] files = fs.listStatus(snapshotDir, SNAPSHOT_FILE_FILTER);
@@ -16,31 +16,75 @@
 
 package co.cask.tephra.persist;
 
+import co.cask.tephra.TxConstants;
 import co.cask.tephra.metrics.MetricsCollector;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.PureJavaCrc32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+import javax.annotation.Nullable;
 
 /**
  * Reads and writes transaction logs against files in the local filesystem.
+ *
+ * <p>
+ * A log file starts with a {@link #MAGIC magic number}, followed by one record for every sync of the log. A record
+ * consists of the length of its payload, the CRC32C checksum of the payload, and the payload, which holds the number
+ * of entries followed by the entries. The file is extended in segments of zeros ahead of the writes, so that a sync
+ * only has to force the written data, not the file size, to disk. A zero length marks the end of the log. A reader
+ * stops at the first record that is incomplete or does not match its checksum, since such a record was never
+ * completely synced.
+ * </p>
+ *
+ * <p>
+ * Files written by earlier versions, which contain the entries without framing, can still be read.
+ * </p>
  */
 public class LocalFileTransactionLog extends AbstractTransactionLog {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalFileTransactionLog.class);
+
+  /** Marks a file in the framed format, distinct from unframed logs, which start with a sequence number of 0. */
+  static final byte[] MAGIC = { 'T', 'X', 'L', 1 };
+  // length and checksum of a record
+  private static final int RECORD_HEADER_SIZE = 8;
+
   private final File logFile;
+  private final long segmentSize;
 
   /**
    * Creates a new transaction log using the given file instance.
    * @param logFile The log file to use.
    */
   public LocalFileTransactionLog(File logFile, long timestamp, MetricsCollector metricsCollector) {
-    super(timestamp, metricsCollector);
+    this(logFile, timestamp, metricsCollector, null);
+  }
+
+  /**
+   * Creates a new transaction log using the given file instance and configuration.
+   * @param logFile The log file to use.
+   */
+  public LocalFileTransactionLog(File logFile, long timestamp, MetricsCollector metricsCollector,
+                                 @Nullable Configuration conf) {
+    super(timestamp, metricsCollector, conf);
     this.logFile = logFile;
+    this.segmentSize = conf == null ? TxConstants.TransactionLog.DEFAULT_TX_LOG_LOCAL_SEGMENT_SIZE :
+      conf.getLong(TxConstants.TransactionLog.CFG_TX_LOG_LOCAL_SEGMENT_SIZE,
+                   TxConstants.TransactionLog.DEFAULT_TX_LOG_LOCAL_SEGMENT_SIZE);
   }
 
   @Override
@@ -50,54 +94,292 @@ public class LocalFileTransactionLog extends AbstractTransactionLog {
 
   @Override
   protected TransactionLogWriter createWriter() throws IOException {
-    return new LogWriter(logFile);
+    return new LogWriter(logFile, segmentSize);
   }
 
   @Override
   public TransactionLogReader getReader() throws IOException {
-    return new LogReader(logFile);
+    long length = logFile.length();
+    DataInputStream in = new DataInputStream(
+      new BufferedInputStream(new FileInputStream(logFile), LocalFileTransactionStateStorage.BUFFER_SIZE));
+    boolean framed = false;
+    try {
+      if (length >= MAGIC.length) {
+        byte[] magic = new byte[MAGIC.length];
+        in.mark(MAGIC.length);
+        in.readFully(magic);
+        framed = Arrays.equals(MAGIC, magic);
+        if (!framed) {
+          in.reset();
+        }
+      }
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    return framed ? new LogReader(logFile.getPath(), in, length - MAGIC.length) : new UnframedLogReader(in);
   }
 
+  /**
+   * Writes the entries of each sync as a single record, and forces it to disk.
+   */
   private static final class LogWriter implements TransactionLogWriter {
-    private final FileOutputStream fos;
-    private final DataOutputStream out;
+    private static final byte[] ZEROS = new byte[64 * 1024];
 
-    public LogWriter(File logFile) throws IOException {
-      this.fos = new FileOutputStream(logFile);
-      this.out = new DataOutputStream(new BufferedOutputStream(fos, LocalFileTransactionStateStorage.BUFFER_SIZE));
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long segmentSize;
+    // guards the batch that entries are appended to
+    private final Object batchLock = new Object();
+    // held while writing and forcing a record, so that a sync only returns once all entries appended before are
+    // on disk, even if another thread wrote them
+    private final Object syncLock = new Object();
+
+    private Batch pending = new Batch();
+    private Batch spare = new Batch();
+    // position of the next record, and the size of the file including the preallocated zeros
+    private long position;
+    private long allocated;
+
+    public LogWriter(File logFile, long segmentSize) throws IOException {
+      this.file = new RandomAccessFile(logFile, "rw");
+      this.channel = file.getChannel();
+      this.segmentSize = Math.max(segmentSize, ZEROS.length);
+      channel.truncate(0);
+      write(ByteBuffer.wrap(MAGIC));
     }
 
     @Override
     public void append(Entry entry) throws IOException {
-      entry.write(out);
+      synchronized (batchLock) {
+        pending.add(entry);
+      }
     }
 
     @Override
     public void commitMarker(int count) throws IOException {
-      // skip for local file
+      // the entries of each sync form one record, which is either read completely or not at all
     }
 
     @Override
     public void sync() throws IOException {
-      out.flush();
+      synchronized (syncLock) {
+        Batch batch;
+        synchronized (batchLock) {
+          if (pending.isEmpty()) {
+            return;
+          }
+          batch = pending;
+          pending = spare;
+          spare = batch;
+        }
+        try {
+          ByteBuffer record = batch.toRecord();
+          if (position + record.remaining() > allocated) {
+            preallocate(position + record.remaining());
+          }
+          write(record);
+          channel.force(false);
+        } finally {
+          batch.reset();
+        }
+      }
+    }
+
+    /**
+     * Extends the file with zeros by whole segments, so that it can hold at least the given number of bytes.
+     */
+    private void preallocate(long size) throws IOException {
+      long newAllocated = allocated;
+      while (newAllocated < size) {
+        newAllocated += segmentSize;
+      }
+      ByteBuffer zeros = ByteBuffer.wrap(ZEROS);
+      for (long pos = Math.max(allocated, position); pos < newAllocated; ) {
+        zeros.clear();
+        zeros.limit((int) Math.min(ZEROS.length, newAllocated - pos));
+        pos += channel.write(zeros, pos);
+      }
+      // the new file size must be durable, later syncs only force the data
+      channel.force(true);
+      allocated = newAllocated;
+    }
+
+    private void write(ByteBuffer buf) throws IOException {
+      while (buf.hasRemaining()) {
+        position += channel.write(buf, position);
+      }
     }
 
     @Override
     public void close() throws IOException {
-      out.flush();
-      out.close();
-      fos.close();
+      try {
+        sync();
+        // release the preallocated space that was not used
+        channel.truncate(position);
+        channel.force(true);
+      } finally {
+        file.close();
+      }
+    }
+  }
+
+  /**
+   * Entries appended since the last sync, serialized into a record with space for the record header.
+   */
+  private static final class Batch {
+    private final RecordBuffer bytes = new RecordBuffer();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int count;
+
+    private Batch() {
+      reset();
+    }
+
+    private void add(Entry entry) throws IOException {
+      entry.write(out);
+      count++;
+    }
+
+    private boolean isEmpty() {
+      return count == 0;
+    }
+
+    /**
+     * Fills in the record header and the entry count, and returns the complete record.
+     */
+    private ByteBuffer toRecord() {
+      byte[] buf = bytes.getBuffer();
+      int size = bytes.size();
+      ByteBuffer record = ByteBuffer.wrap(buf, 0, size);
+      record.putInt(RECORD_HEADER_SIZE, count);
+      Checksum crc = new PureJavaCrc32C();
+      crc.update(buf, RECORD_HEADER_SIZE, size - RECORD_HEADER_SIZE);
+      record.putInt(0, size - RECORD_HEADER_SIZE);
+      record.putInt(4, (int) crc.getValue());
+      return record;
+    }
+
+    private void reset() {
+      bytes.reset();
+      // placeholders for the payload length, checksum and entry count
+      bytes.write(new byte[RECORD_HEADER_SIZE + 4], 0, RECORD_HEADER_SIZE + 4);
+      count = 0;
+    }
+  }
+
+  /**
+   * A byte array output stream that gives access to its buffer.
+   */
+  private static final class RecordBuffer extends ByteArrayOutputStream {
+    private RecordBuffer() {
+      super(LocalFileTransactionStateStorage.BUFFER_SIZE);
+    }
+
+    private byte[] getBuffer() {
+      return buf;
     }
   }
 
+  /**
+   * Reads the entries of a log file in the framed format.
+   */
   private static final class LogReader implements TransactionLogReader {
-    private final FileInputStream fin;
+    private final String name;
+    private final DataInputStream in;
+    private final Entry reuseEntry = new Entry();
+    // number of bytes after the current position of the stream
+    private long remaining;
+    private DataInputStream record;
+    private int recordEntries;
+    private boolean done;
+
+    private LogReader(String name, DataInputStream in, long remaining) {
+      this.name = name;
+      this.in = in;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public TransactionEdit next() throws IOException {
+      if (!nextEntry()) {
+        return null;
+      }
+      Entry entry = new Entry();
+      entry.readFields(record);
+      return entry.getEdit();
+    }
+
+    @Override
+    public TransactionEdit next(TransactionEdit reuse) throws IOException {
+      if (!nextEntry()) {
+        return null;
+      }
+      reuseEntry.getKey().readFields(record);
+      reuse.readFields(record);
+      return reuse;
+    }
+
+    /**
+     * Advances to the next entry, reading the next record if needed.
+     *
+     * @return false if there are no more entries
+     */
+    private boolean nextEntry() throws IOException {
+      while (recordEntries == 0) {
+        if (done || !nextRecord()) {
+          done = true;
+          return false;
+        }
+      }
+      recordEntries--;
+      return true;
+    }
+
+    private boolean nextRecord() throws IOException {
+      if (remaining < RECORD_HEADER_SIZE) {
+        return false;
+      }
+      int length = in.readInt();
+      int checksum = in.readInt();
+      remaining -= RECORD_HEADER_SIZE;
+      if (length == 0) {
+        // the preallocated space after the last record
+        return false;
+      }
+      if (length < 4 || length > remaining) {
+        LOG.warn("Log {} ends with an incomplete record of length {}, ignoring it", name, length);
+        return false;
+      }
+      byte[] payload = new byte[length];
+      in.readFully(payload);
+      remaining -= length;
+      Checksum crc = new PureJavaCrc32C();
+      crc.update(payload, 0, length);
+      if ((int) crc.getValue() != checksum) {
+        LOG.warn("Log {} ends with a record that does not match its checksum, ignoring it", name);
+        return false;
+      }
+      record = new DataInputStream(new ByteArrayInputStream(payload, 4, length - 4));
+      recordEntries = ByteBuffer.wrap(payload).getInt();
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Reads the entries of a log file written by earlier versions, which contains the entries without framing.
+   */
+  private static final class UnframedLogReader implements TransactionLogReader {
     private final DataInputStream in;
     private Entry reuseEntry = new Entry();
 
-    public LogReader(File logFile) throws IOException {
-      this.fin = new FileInputStream(logFile);
-      this.in = new DataInputStream(new BufferedInputStream(fin, LocalFileTransactionStateStorage.BUFFER_SIZE));
+    private UnframedLogReader(DataInputStream in) {
+      this.in = in;
     }
 
     @Override
@@ -127,7 +409,6 @@ public class LocalFileTransactionLog extends AbstractTransactionLog {
     @Override
     public void close() throws IOException {
       in.close();
-      fin.close();
     }
   }
 }
@@ -58,6 +58,7 @@ public class LocalFileTransactionStateStorage extends AbstractTransactionStateSt
     }
   };
 
+  private final Configuration conf;
   private final String configuredSnapshotDir;
   private final MetricsCollector metricsCollector;
   private File snapshotDir;
@@ -66,6 +67,7 @@ public class LocalFileTransactionStateStorage extends AbstractTransactionStateSt
   public LocalFileTransactionStateStorage(Configuration conf, SnapshotCodecProvider codecProvider,
                                           MetricsCollector metricsCollector) {
     super(codecProvider);
+    this.conf = conf;
     this.configuredSnapshotDir = conf.get(TxConstants.Manager.CFG_TX_SNAPSHOT_LOCAL_DIR);
     this.metricsCollector = metricsCollector;
   }
@@ -218,7 +220,7 @@ public class LocalFileTransactionStateStorage extends AbstractTransactionStateSt
       @Nullable
       @Override
       public TransactionLog apply(@Nullable TimestampedFilename input) {
-        return new LocalFileTransactionLog(input.getFile(), input.getTimestamp(), metricsCollector);
+        return new LocalFileTransactionLog(input.getFile(), input.getTimestamp(), metricsCollector, conf);
       }
     });
   }
@@ -227,7 +229,7 @@ public class LocalFileTransactionStateStorage extends AbstractTransactionStateSt
   public TransactionLog createLog(long timestamp) throws IOException {
     File newLogFile = new File(snapshotDir, LOG_FILE_PREFIX + timestamp);
     LOG.info("Creating new transaction log at {}", newLogFile.getAbsolutePath());
-    return new LocalFileTransactionLog(newLogFile, timestamp, metricsCollector);
+    return new LocalFileTransactionLog(newLogFile, timestamp, metricsCollector, conf);
   }
 
   @Override
@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.persist;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads a sequence of transaction logs, decoding them in the background on a pool of threads.
+ *
+ * <p>
+ * Each log is decoded by a single thread into a bounded queue of batches of edits, and several logs are decoded
+ * concurrently. The caller obtains a reader for each log in turn, and receives the edits of each log in their
+ * original order, while the following logs are already being decoded. Only as many logs as there are threads are
+ * decoded ahead of the caller, so that the memory used for decoded edits is bounded.
+ * </p>
+ */
+public final class ParallelTransactionLogReader implements Closeable {
+  // marks the end of the edits of a log in its queue
+  private static final Object END_OF_LOG = new Object();
+
+  private final Iterator<TransactionLog> logs;
+  private final ExecutorService executor;
+  private final int batchSize;
+  private final int queueSize;
+  private final List<LogReader> pending = Lists.newLinkedList();
+
+  /**
+   * @param logs the logs to read, in the order in which their readers are returned
+   * @param threads the number of threads that decode logs
+   * @param batchSize the number of edits that are handed from a decoding thread to the caller at a time
+   * @param queueSize the maximum number of decoded batches per log that wait for the caller
+   */
+  public ParallelTransactionLogReader(Collection<TransactionLog> logs, int threads, int batchSize, int queueSize) {
+    this.logs = logs.iterator();
+    this.batchSize = Math.max(batchSize, 1);
+    this.queueSize = Math.max(queueSize, 1);
+    int numThreads = Math.max(threads, 1);
+    this.executor = Executors.newFixedThreadPool(
+      numThreads, new ThreadFactoryBuilder().setNameFormat("tx-log-replay-%d").setDaemon(true).build());
+    for (int i = 0; i < numThreads; i++) {
+      submitNext();
+    }
+  }
+
+  /**
+   * Returns a reader for the next log, or {@code null} if all logs have been returned. The reader returns the same
+   * edits as the reader of the log itself, and fails with the same exception if decoding the log failed.
+   */
+  public TransactionLogReader nextReader() {
+    if (pending.isEmpty()) {
+      return null;
+    }
+    LogReader reader = pending.remove(0);
+    submitNext();
+    return reader;
+  }
+
+  /**
+   * Stops decoding. Edits that were not read yet are discarded.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private void submitNext() {
+    if (logs.hasNext()) {
+      LogReader reader = new LogReader(logs.next());
+      pending.add(reader);
+      executor.submit(reader);
+    }
+  }
+
+  /**
+   * Decodes a single log into a queue of batches, and hands the edits out from the queue.
+   */
+  private final class LogReader implements TransactionLogReader, Runnable {
+    private final TransactionLog log;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+    private Iterator<TransactionEdit> batch;
+    private boolean done;
+
+    private LogReader(TransactionLog log) {
+      this.log = log;
+    }
+
+    @Override
+    public void run() {
+      try {
+        try {
+          TransactionLogReader reader = log.getReader();
+          // reader may be null in the case of an empty file
+          if (reader != null) {
+            try {
+              List<TransactionEdit> edits = Lists.newArrayListWithCapacity(batchSize);
+              TransactionEdit edit;
+              while ((edit = reader.next()) != null) {
+                edits.add(edit);
+                if (edits.size() == batchSize) {
+                  queue.put(edits);
+                  edits = Lists.newArrayListWithCapacity(batchSize);
+                }
+              }
+              if (!edits.isEmpty()) {
+                queue.put(edits);
+              }
+            } finally {
+              reader.close();
+            }
+          }
+          queue.put(END_OF_LOG);
+        } catch (Throwable t) {
+          // hand the failure to the caller, which would otherwise wait for the end of the log forever
+          queue.put(t);
+        }
+      } catch (InterruptedException e) {
+        // the caller closed the reader, the remaining edits are not needed
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public TransactionEdit next() throws IOException {
+      while (batch == null || !batch.hasNext()) {
+        if (done) {
+          return null;
+        }
+        Object next;
+        try {
+          next = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading log " + log.getName());
+        }
+        if (next == END_OF_LOG) {
+          done = true;
+          return null;
+        }
+        if (next instanceof Throwable) {
+          done = true;
+          Throwables.propagateIfPossible((Throwable) next);
+          throw new IOException("Failed to read log " + log.getName(), (Throwable) next);
+        }
+        batch = ((List<TransactionEdit>) next).iterator();
+      }
+      return batch.next();
+    }
+
+    @Override
+    public TransactionEdit next(TransactionEdit reuse) throws IOException {
+      // edits are decoded ahead into new instances
+      return next();
+    }
+
+    @Override
+    public void close() {
+      // the remaining edits are discarded when the decoding thread is stopped
+    }
+  }
+}
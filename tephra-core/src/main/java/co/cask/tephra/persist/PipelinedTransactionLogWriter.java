@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.persist;
+
+import co.cask.tephra.metrics.MetricsCollector;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes transaction log entries to a {@link TransactionLogWriter} from a single dedicated thread.
+ *
+ * <p>
+ * Appends are placed in a bounded queue, and completed asynchronously through the returned future. The writer thread
+ * drains the queue in batches of up to a maximum number of entries, and writes each batch with a single commit
+ * marker and a single sync. While a batch is being synced, new appends accumulate in the queue, so that the number
+ * of syncs adapts to the sync latency of the underlying storage.
+ * </p>
+ */
+final class PipelinedTransactionLogWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(PipelinedTransactionLogWriter.class);
+
+  // queued by close() to wake up the writer thread, which stops after writing the appends queued before it
+  private static final PendingAppend CLOSE = new PendingAppend(Collections.<AbstractTransactionLog.Entry>emptyList());
+
+  private final String logName;
+  private final TransactionLogWriter writer;
+  private final MetricsCollector metricsCollector;
+  private final int maxBatchSize;
+  private final long maxBatchDelayNanos;
+  private final BlockingQueue<PendingAppend> queue;
+  private final Thread writerThread;
+
+  private volatile boolean stopped;
+  // whether the writer thread has taken the CLOSE marker from the queue, only accessed by the writer thread
+  private boolean closeTaken;
+  // the first error encountered by the writer thread, after which no more appends are accepted
+  private volatile IOException failure;
+
+  PipelinedTransactionLogWriter(String logName, TransactionLogWriter writer, MetricsCollector metricsCollector,
+                                int maxBatchSize, long maxBatchDelayMicros, int queueSize) {
+    this.logName = logName;
+    this.writer = writer;
+    this.metricsCollector = metricsCollector;
+    this.maxBatchSize = Math.max(maxBatchSize, 1);
+    this.maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(maxBatchDelayMicros, 0));
+    this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+    this.writerThread = new Thread("tx-log-writer-" + logName) {
+      @Override
+      public void run() {
+        runWriter();
+      }
+    };
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Queues the given entries to be written with the next batch. Blocks if the queue is full.
+   *
+   * @return a future that completes once all entries have been synced, or fails if writing them failed
+   * @throws IOException if the writer already failed or was closed, or if interrupted while waiting for the queue
+   */
+  ListenableFuture<Void> append(List<AbstractTransactionLog.Entry> entries) throws IOException {
+    checkAvailable();
+    PendingAppend pending = new PendingAppend(entries);
+    try {
+      queue.put(pending);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while appending to log " + logName);
+    }
+    return pending.future;
+  }
+
+  /**
+   * Writes all queued entries and stops the writer thread. This does not close the underlying writer.
+   */
+  synchronized void close() throws IOException {
+    try {
+      if (!stopped) {
+        stopped = true;
+        queue.put(CLOSE);
+      }
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for writer of log " + logName + " to stop");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void checkAvailable() throws IOException {
+    if (failure != null) {
+      throw new IOException("Writing to log " + logName + " failed previously", failure);
+    }
+    if (stopped) {
+      throw new IOException("Log " + logName + " is already closed, cannot append!");
+    }
+  }
+
+  private void runWriter() {
+    List<PendingAppend> batch = Lists.newArrayList();
+    try {
+      while (!closeTaken) {
+        PendingAppend first = queue.take();
+        if (first == CLOSE) {
+          break;
+        }
+        batch.add(first);
+        int batchSize = fillBatch(batch, first.entries.size());
+        writeBatch(batch, batchSize);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      LOG.warn("Interrupted writer thread of log {}", logName);
+      // no more appends are accepted, so that close() does not wait for space in the queue
+      failure = new InterruptedIOException("Writer of log " + logName + " was interrupted");
+      failAll(batch, failure);
+    }
+    // fail any appends that were queued after the writer stopped
+    List<PendingAppend> remaining = Lists.newArrayList();
+    queue.drainTo(remaining);
+    remaining.remove(CLOSE);
+    if (!remaining.isEmpty()) {
+      failAll(remaining, new IOException("Log " + logName + " is already closed, cannot append!"));
+    }
+  }
+
+  /**
+   * Adds more queued appends to the batch, until it reaches the maximum batch size, or no more appends arrive
+   * within the maximum batch delay. Stops early when taking the CLOSE marker.
+   * @return the number of entries in the batch
+   */
+  private int fillBatch(List<PendingAppend> batch, int batchSize) throws InterruptedException {
+    long deadline = System.nanoTime() + maxBatchDelayNanos;
+    while (batchSize < maxBatchSize) {
+      PendingAppend next = queue.poll();
+      if (next == null && maxBatchDelayNanos > 0) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+          next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+        }
+      }
+      if (next == null) {
+        break;
+      }
+      if (next == CLOSE) {
+        closeTaken = true;
+        break;
+      }
+      batch.add(next);
+      batchSize += next.entries.size();
+    }
+    return batchSize;
+  }
+
+  private void writeBatch(List<PendingAppend> batch, int batchSize) {
+    if (failure != null) {
+      failAll(batch, new IOException("Writing to log " + logName + " failed previously", failure));
+      return;
+    }
+    long startTime = System.nanoTime();
+    try {
+      writer.commitMarker(batchSize);
+      for (PendingAppend pending : batch) {
+        for (AbstractTransactionLog.Entry entry : pending.entries) {
+          writer.append(entry);
+        }
+      }
+      writer.sync();
+    } catch (IOException e) {
+      LOG.error("Failed writing {} edits to log {}", batchSize, logName, e);
+      failure = e;
+      failAll(batch, e);
+      return;
+    }
+    metricsCollector.histogram("wal.sync.size", batchSize);
+    metricsCollector.histogram("wal.batch.size", batchSize);
+    metricsCollector.histogram("wal.batch.latency", (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    metricsCollector.gauge("wal.queue.depth", queue.size());
+    for (PendingAppend pending : batch) {
+      pending.future.set(null);
+    }
+  }
+
+  private void failAll(List<PendingAppend> appends, IOException error) {
+    for (PendingAppend pending : appends) {
+      pending.future.setException(error);
+    }
+  }
+
+  /**
+   * Entries from a single append call, to be written within the same batch.
+   */
+  private static final class PendingAppend {
+    private final List<AbstractTransactionLog.Entry> entries;
+    private final SettableFuture<Void> future = SettableFuture.create();
+
+    private PendingAppend(List<AbstractTransactionLog.Entry> entries) {
+      this.entries = entries;
+    }
+  }
+}
@@ -20,10 +20,17 @@ import co.cask.tephra.ChangeId;
 import co.cask.tephra.TransactionType;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import org.apache.hadoop.io.WritableUtils;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -38,7 +45,8 @@ public class TransactionEditCodecs {
       new TransactionEditCodecV1(),
       new TransactionEditCodecV2(),
       new TransactionEditCodecV3(),
-      new TransactionEditCodecV4()
+      new TransactionEditCodecV4(),
+      new TransactionEditCodecV5()
   };
 
   private static final SortedMap<Byte, TransactionEditCodec> CODECS = new TreeMap<>();
@@ -308,4 +316,196 @@ public class TransactionEditCodecs {
       return -4;
     }
   }
+
+  /**
+   * Writes only the fields of an edit that differ from their defaults, which depend on the state of the edit.
+   * Which fields are present is recorded in a bit set. All fields except the write pointer are written as
+   * variable length integers, pointers as their difference to the write pointer. Change keys are written as
+   * the length of the prefix they share with the previous key, followed by the rest of the key, so that the
+   * table name, which all keys of a table start with, is only written once per table.
+   */
+  static class TransactionEditCodecV5 implements TransactionEditCodec {
+    private static final int VISIBILITY_UPPER_BOUND = 1;
+    private static final int COMMIT_POINTER = 1 << 1;
+    private static final int EXPIRATION = 1 << 2;
+    private static final int CHANGES = 1 << 3;
+    private static final int CAN_COMMIT = 1 << 4;
+    private static final int TYPE = 1 << 5;
+    private static final int CHECKPOINT_POINTERS = 1 << 6;
+    private static final int PARENT_WRITE_POINTER = 1 << 7;
+    private static final int TRUNCATE_INVALID_TX = 1 << 8;
+    private static final int TRUNCATE_INVALID_TX_TIME = 1 << 9;
+
+    private static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    @Override
+    public void decode(TransactionEdit dest, DataInput in) throws IOException {
+      int stateIdx = in.readByte();
+      try {
+        dest.setState(TransactionEdit.State.values()[stateIdx]);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IOException("State enum ordinal value is out of range: " + stateIdx);
+      }
+      int fields = WritableUtils.readVInt(in);
+      long writePointer = in.readLong();
+      dest.setWritePointer(writePointer);
+      dest.setVisibilityUpperBound(
+        (fields & VISIBILITY_UPPER_BOUND) != 0 ? writePointer - WritableUtils.readVLong(in) : 0L);
+      dest.setCommitPointer((fields & COMMIT_POINTER) != 0 ? writePointer + WritableUtils.readVLong(in) : 0L);
+      dest.setExpiration((fields & EXPIRATION) != 0 ? WritableUtils.readVLong(in) : 0L);
+
+      Set<ChangeId> changes;
+      if ((fields & CHANGES) != 0) {
+        int changeSize = WritableUtils.readVInt(in);
+        changes = Sets.newHashSetWithExpectedSize(changeSize);
+        byte[] previous = new byte[0];
+        for (int i = 0; i < changeSize; i++) {
+          int shared = WritableUtils.readVInt(in);
+          int suffixLength = WritableUtils.readVInt(in);
+          if (shared < 0 || shared > previous.length || suffixLength < 0) {
+            throw new IOException("Invalid change key encoding: shared prefix " + shared + ", suffix " + suffixLength);
+          }
+          byte[] key = new byte[shared + suffixLength];
+          System.arraycopy(previous, 0, key, 0, shared);
+          in.readFully(key, shared, suffixLength);
+          changes.add(new ChangeId(key));
+          previous = key;
+        }
+      } else {
+        changes = Sets.newHashSet();
+      }
+      dest.setChanges(changes);
+      dest.setCanCommit((fields & CAN_COMMIT) != 0);
+
+      if ((fields & TYPE) != 0) {
+        int typeIdx = in.readByte();
+        try {
+          dest.setType(TransactionType.values()[typeIdx]);
+        } catch (ArrayIndexOutOfBoundsException e) {
+          throw new IOException("Type enum ordinal value is out of range: " + typeIdx);
+        }
+      } else {
+        dest.setType(null);
+      }
+
+      long[] checkpointPointers = null;
+      if ((fields & CHECKPOINT_POINTERS) != 0) {
+        checkpointPointers = new long[WritableUtils.readVInt(in)];
+        long previous = writePointer;
+        for (int i = 0; i < checkpointPointers.length; i++) {
+          previous += WritableUtils.readVLong(in);
+          checkpointPointers[i] = previous;
+        }
+      }
+      dest.setCheckpointPointers(checkpointPointers);
+      dest.setParentWritePointer(
+        (fields & PARENT_WRITE_POINTER) != 0 ? writePointer - WritableUtils.readVLong(in) : 0L);
+
+      Set<Long> truncateInvalidTx = dest.getTruncateInvalidTx();
+      if (truncateInvalidTx instanceof HashSet) {
+        truncateInvalidTx.clear();
+      } else {
+        truncateInvalidTx = Sets.newHashSet();
+      }
+      if ((fields & TRUNCATE_INVALID_TX) != 0) {
+        int truncateInvalidTxSize = WritableUtils.readVInt(in);
+        long previous = writePointer;
+        for (int i = 0; i < truncateInvalidTxSize; i++) {
+          previous += WritableUtils.readVLong(in);
+          truncateInvalidTx.add(previous);
+        }
+      }
+      dest.setTruncateInvalidTx(truncateInvalidTx);
+      dest.setTruncateInvalidTxTime((fields & TRUNCATE_INVALID_TX_TIME) != 0 ? WritableUtils.readVLong(in) : 0L);
+    }
+
+    @Override
+    public void encode(TransactionEdit src, DataOutput out) throws IOException {
+      long writePointer = src.getWritePointer();
+      Set<ChangeId> changes = src.getChanges() == null ? Collections.<ChangeId>emptySet() : src.getChanges();
+      Set<Long> truncateInvalidTx =
+        src.getTruncateInvalidTx() == null ? Collections.<Long>emptySet() : src.getTruncateInvalidTx();
+      long[] checkpointPointers = src.getCheckpointPointers();
+
+      int fields = 0;
+      fields |= src.getVisibilityUpperBound() != 0 ? VISIBILITY_UPPER_BOUND : 0;
+      fields |= src.getCommitPointer() != 0 ? COMMIT_POINTER : 0;
+      fields |= src.getExpiration() != 0 ? EXPIRATION : 0;
+      fields |= !changes.isEmpty() ? CHANGES : 0;
+      fields |= src.getCanCommit() ? CAN_COMMIT : 0;
+      fields |= src.getType() != null ? TYPE : 0;
+      fields |= checkpointPointers != null ? CHECKPOINT_POINTERS : 0;
+      fields |= src.getParentWritePointer() != 0 ? PARENT_WRITE_POINTER : 0;
+      fields |= !truncateInvalidTx.isEmpty() ? TRUNCATE_INVALID_TX : 0;
+      fields |= src.getTruncateInvalidTxTime() != 0 ? TRUNCATE_INVALID_TX_TIME : 0;
+
+      out.writeByte(src.getState().ordinal());
+      WritableUtils.writeVInt(out, fields);
+      out.writeLong(writePointer);
+      if ((fields & VISIBILITY_UPPER_BOUND) != 0) {
+        WritableUtils.writeVLong(out, writePointer - src.getVisibilityUpperBound());
+      }
+      if ((fields & COMMIT_POINTER) != 0) {
+        WritableUtils.writeVLong(out, src.getCommitPointer() - writePointer);
+      }
+      if ((fields & EXPIRATION) != 0) {
+        WritableUtils.writeVLong(out, src.getExpiration());
+      }
+      if ((fields & CHANGES) != 0) {
+        // sorted, so that the keys share as long a prefix as possible with their predecessor
+        byte[][] keys = new byte[changes.size()][];
+        int count = 0;
+        for (ChangeId change : changes) {
+          keys[count++] = change.getKey();
+        }
+        Arrays.sort(keys, KEY_COMPARATOR);
+        WritableUtils.writeVInt(out, keys.length);
+        byte[] previous = new byte[0];
+        for (byte[] key : keys) {
+          int shared = 0;
+          int maxShared = Math.min(previous.length, key.length);
+          while (shared < maxShared && previous[shared] == key[shared]) {
+            shared++;
+          }
+          WritableUtils.writeVInt(out, shared);
+          WritableUtils.writeVInt(out, key.length - shared);
+          out.write(key, shared, key.length - shared);
+          previous = key;
+        }
+      }
+      if ((fields & TYPE) != 0) {
+        out.writeByte(src.getType().ordinal());
+      }
+      if ((fields & CHECKPOINT_POINTERS) != 0) {
+        WritableUtils.writeVInt(out, checkpointPointers.length);
+        long previous = writePointer;
+        for (long checkpointPointer : checkpointPointers) {
+          WritableUtils.writeVLong(out, checkpointPointer - previous);
+          previous = checkpointPointer;
+        }
+      }
+      if ((fields & PARENT_WRITE_POINTER) != 0) {
+        WritableUtils.writeVLong(out, writePointer - src.getParentWritePointer());
+      }
+      if ((fields & TRUNCATE_INVALID_TX) != 0) {
+        // sorted, so that the deltas are small
+        long[] ids = Longs.toArray(truncateInvalidTx);
+        Arrays.sort(ids);
+        WritableUtils.writeVInt(out, ids.length);
+        long previous = writePointer;
+        for (long id : ids) {
+          WritableUtils.writeVLong(out, id - previous);
+          previous = id;
+        }
+      }
+      if ((fields & TRUNCATE_INVALID_TX_TIME) != 0) {
+        WritableUtils.writeVLong(out, src.getTruncateInvalidTxTime());
+      }
+    }
+
+    @Override
+    public byte getVersion() {
+      return -5;
+    }
+  }
 }
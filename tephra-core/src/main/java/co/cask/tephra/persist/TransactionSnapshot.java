@@ -19,8 +19,8 @@ package co.cask.tephra.persist;
 import co.cask.tephra.ChangeId;
 import co.cask.tephra.TransactionManager;
 import com.google.common.base.Objects;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -174,8 +174,8 @@ public class TransactionSnapshot implements TransactionVisibilityState {
                                              NavigableMap<Long, TransactionManager.InProgressTx> inProgress,
                                              Map<Long, Set<ChangeId>> committing,
                                              NavigableMap<Long, Set<ChangeId>> committed) {
-    // copy invalid IDs
-    Collection<Long> invalidCopy = Lists.newArrayList(invalid);
+    // copy invalid IDs, without boxing if they are already backed by a primitive array
+    Collection<Long> invalidCopy = Longs.asList(Longs.toArray(invalid));
     // copy in-progress IDs and expirations
     NavigableMap<Long, TransactionManager.InProgressTx> inProgressCopy = Maps.newTreeMap(inProgress);
 
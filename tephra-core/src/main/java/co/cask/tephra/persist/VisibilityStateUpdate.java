@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.persist;
+
+import co.cask.tephra.snapshot.BinaryDecoder;
+import co.cask.tephra.snapshot.BinaryEncoder;
+import co.cask.tephra.snapshot.SnapshotCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The visibility state of the transaction manager, as fetched by the coprocessors of region servers to learn about
+ * changes to the state between snapshots.
+ *
+ * <p>
+ * The invalid list can be large, but changes rarely. It is versioned, and only included in an update if it changed
+ * since the version the reader already has. An update is encoded as the version of the invalid list and whether it is
+ * included, followed by the state encoded like a snapshot without change sets.
+ * </p>
+ */
+public final class VisibilityStateUpdate {
+  private final long invalidVersion;
+  private final boolean invalidIncluded;
+  private final TransactionVisibilityState state;
+
+  private VisibilityStateUpdate(long invalidVersion, boolean invalidIncluded, TransactionVisibilityState state) {
+    this.invalidVersion = invalidVersion;
+    this.invalidIncluded = invalidIncluded;
+    this.state = state;
+  }
+
+  /**
+   * @return the version of the invalid list of the state
+   */
+  public long getInvalidVersion() {
+    return invalidVersion;
+  }
+
+  /**
+   * @return whether the update includes the invalid list. If not, the invalid list is the same as that of the version
+   *         the reader requested.
+   */
+  public boolean isInvalidIncluded() {
+    return invalidIncluded;
+  }
+
+  /**
+   * Returns the visibility state of this update.
+   *
+   * @param knownInvalid the invalid list that the reader has, to use if the update does not include it
+   */
+  public TransactionVisibilityState getState(Collection<Long> knownInvalid) {
+    if (invalidIncluded) {
+      return state;
+    }
+    return new TransactionSnapshot(state.getTimestamp(), state.getReadPointer(), state.getWritePointer(),
+                                   knownInvalid, state.getInProgress());
+  }
+
+  /**
+   * Writes an update of the given state.
+   *
+   * @param out the stream to write to
+   * @param invalidVersion the version of the invalid list of the state
+   * @param knownInvalidVersion the version of the invalid list that the reader has
+   * @param state the visibility state, without change sets
+   * @param storage the storage whose snapshot encoding to use
+   */
+  public static void write(OutputStream out, long invalidVersion, long knownInvalidVersion, TransactionSnapshot state,
+                           TransactionStateStorage storage) throws IOException {
+    boolean includeInvalid = invalidVersion != knownInvalidVersion;
+    new BinaryEncoder(out).writeLong(invalidVersion).writeInt(includeInvalid ? 1 : 0);
+    if (!includeInvalid) {
+      state = new TransactionSnapshot(state.getTimestamp(), state.getReadPointer(), state.getWritePointer(),
+                                      Collections.<Long>emptyList(), state.getInProgress());
+    }
+    storage.writeSnapshot(out, state);
+  }
+
+  /**
+   * Reads an update written by {@link #write}.
+   *
+   * @param in the stream to read from
+   * @param codec the codec to decode the state with, which must know the encoding of the writer's storage
+   */
+  public static VisibilityStateUpdate read(InputStream in, SnapshotCodec codec) throws IOException {
+    BinaryDecoder decoder = new BinaryDecoder(in);
+    long invalidVersion = decoder.readLong();
+    boolean invalidIncluded = decoder.readInt() != 0;
+    TransactionVisibilityState state = codec.decodeTransactionVisibilityState(in);
+    return new VisibilityStateUpdate(invalidVersion, invalidIncluded, state);
+  }
+}
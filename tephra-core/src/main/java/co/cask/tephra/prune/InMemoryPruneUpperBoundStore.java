@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.prune;
+
+import com.google.common.primitives.UnsignedBytes;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A {@link PruneUpperBoundStore} that keeps the bounds in memory. All instances within the same JVM share the same
+ * bounds, so that it can be used by tests that run the tx service and the region servers in one process.
+ */
+public class InMemoryPruneUpperBoundStore implements PruneUpperBoundStore {
+  private static final ConcurrentMap<byte[], Long> BOUNDS =
+    new ConcurrentSkipListMap<>(UnsignedBytes.lexicographicalComparator());
+
+  @Override
+  public void registerRegion(byte[] regionName) {
+    BOUNDS.putIfAbsent(regionName, NO_BOUND);
+  }
+
+  @Override
+  public void savePruneUpperBound(byte[] regionName, long pruneUpperBound) {
+    while (true) {
+      Long previous = BOUNDS.putIfAbsent(regionName, pruneUpperBound);
+      if (previous == null || previous >= pruneUpperBound || BOUNDS.replace(regionName, previous, pruneUpperBound)) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void deleteRegion(byte[] regionName) {
+    BOUNDS.remove(regionName);
+  }
+
+  @Override
+  public Map<byte[], Long> getPruneUpperBounds() {
+    Map<byte[], Long> bounds = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+    bounds.putAll(BOUNDS);
+    return bounds;
+  }
+
+  /**
+   * Removes all regions.
+   */
+  public static void clear() {
+    BOUNDS.clear();
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.prune;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Determines up to which transaction id the invalid list can be pruned, from the prune upper bounds of all regions.
+ */
+public class InvalidListPruner {
+  private static final Logger LOG = LoggerFactory.getLogger(InvalidListPruner.class);
+
+  private final PruneUpperBoundStore store;
+
+  public InvalidListPruner(PruneUpperBoundStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Returns the largest transaction id such that no region holds data of any invalid transaction up to that id, or
+   * {@link PruneUpperBoundStore#NO_BOUND} if no region is known or some region has no bound yet.
+   */
+  public long getPruneUpperBound() throws IOException {
+    Map<byte[], Long> bounds = store.getPruneUpperBounds();
+    if (bounds.isEmpty()) {
+      LOG.debug("No regions with transactional data are known, cannot prune the invalid list.");
+      return PruneUpperBoundStore.NO_BOUND;
+    }
+    long pruneUpperBound = Long.MAX_VALUE;
+    int regionsWithoutBound = 0;
+    for (long bound : bounds.values()) {
+      if (bound == PruneUpperBoundStore.NO_BOUND) {
+        regionsWithoutBound++;
+      } else {
+        pruneUpperBound = Math.min(pruneUpperBound, bound);
+      }
+    }
+    if (regionsWithoutBound > 0) {
+      LOG.info("{} of {} regions have not completed a major compaction yet, cannot prune the invalid list.",
+               regionsWithoutBound, bounds.size());
+      return PruneUpperBoundStore.NO_BOUND;
+    }
+    return pruneUpperBound;
+  }
+}
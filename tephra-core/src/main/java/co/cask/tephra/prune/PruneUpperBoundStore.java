@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.prune;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stores the prune upper bound of every region that holds transactional data.
+ *
+ * <p>
+ * The prune upper bound of a region is a transaction id such that the region holds no data of any invalid
+ * transaction up to that id. Regions are registered without a bound when they are opened, and receive a bound after
+ * their first major compaction. The invalid list can only be pruned up to the smallest bound of all regions.
+ * </p>
+ *
+ * <p>
+ * Implementations must be shared between the region servers and the tx service. If an implementation implements
+ * {@link org.apache.hadoop.conf.Configurable}, it receives the configuration when it is created.
+ * </p>
+ */
+public interface PruneUpperBoundStore {
+
+  /**
+   * The bound of a region that has not completed a major compaction yet.
+   */
+  long NO_BOUND = -1;
+
+  /**
+   * Registers a region without a bound, unless it is already known.
+   */
+  void registerRegion(byte[] regionName) throws IOException;
+
+  /**
+   * Records the prune upper bound of a region, unless a larger bound is already recorded.
+   */
+  void savePruneUpperBound(byte[] regionName, long pruneUpperBound) throws IOException;
+
+  /**
+   * Removes a region that no longer exists.
+   */
+  void deleteRegion(byte[] regionName) throws IOException;
+
+  /**
+   * Returns the prune upper bounds of all known regions, {@link #NO_BOUND} for regions without a bound.
+   */
+  Map<byte[], Long> getPruneUpperBounds() throws IOException;
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.prune;
+
+import co.cask.tephra.TxConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Static helper methods for working with {@link PruneUpperBoundStore} instances.
+ */
+public final class PruneUpperBoundStores {
+
+  private PruneUpperBoundStores() {
+  }
+
+  /**
+   * Creates the {@link PruneUpperBoundStore} configured by {@link TxConstants.TransactionPruning#PRUNE_STORE_CLASS}.
+   */
+  public static PruneUpperBoundStore create(Configuration conf) {
+    Class<? extends PruneUpperBoundStore> storeClass =
+      conf.getClass(TxConstants.TransactionPruning.PRUNE_STORE_CLASS, InMemoryPruneUpperBoundStore.class,
+                    PruneUpperBoundStore.class);
+    return ReflectionUtils.newInstance(storeClass, conf);
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.prune;
+
+import co.cask.tephra.persist.TransactionVisibilityState;
+import co.cask.tephra.util.TxUtils;
+import com.google.common.collect.Maps;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the major compactions and flushes of a region, and records the prune upper bound of the region in a
+ * {@link PruneUpperBoundStore} once the data of invalid transactions has been removed from all of its stores.
+ *
+ * <p>
+ * A major compaction of a store removes the data of all transactions that are invalid in the transaction state that
+ * it uses. Data written before the compaction started may however still be in the memstore. The bound of the
+ * compaction therefore only takes effect after a flush of the store that started after the compaction, which removes
+ * the invalid data from the memstore using a state that is at least as recent. If the memstore was empty and no
+ * flush was in progress when the compaction started, the bound takes effect as soon as the compaction completes.
+ * The bound of the region is the smallest bound of all its stores.
+ * </p>
+ *
+ * <p>
+ * A transaction that was invalidated may still write after the compaction. The region rejects writes of transactions
+ * older than the maximum lifetime, and the bound never includes younger transactions.
+ * </p>
+ */
+public final class RegionPruneTracker {
+  private static final Log LOG = LogFactory.getLog(RegionPruneTracker.class);
+
+  private final byte[] regionName;
+  private final String regionNameAsString;
+  private final PruneUpperBoundStore store;
+  private final long maxTxLifetimeMillis;
+  private final Map<String, StoreState> stores = Maps.newHashMap();
+  // orders compaction and flush starts
+  private long sequence;
+  private long savedBound = PruneUpperBoundStore.NO_BOUND;
+
+  /**
+   * @param regionName the name of the region
+   * @param regionNameAsString the name of the region, for logging
+   * @param families the names of all column families of the region
+   * @param store the store to record the bound in
+   * @param maxTxLifetimeMillis the maximum lifetime of a transaction that may write to the region, in milliseconds
+   */
+  public RegionPruneTracker(byte[] regionName, String regionNameAsString, Collection<String> families,
+                            PruneUpperBoundStore store, long maxTxLifetimeMillis) {
+    this.regionName = regionName;
+    this.regionNameAsString = regionNameAsString;
+    this.store = store;
+    this.maxTxLifetimeMillis = maxTxLifetimeMillis;
+    for (String family : families) {
+      stores.put(family, new StoreState());
+    }
+  }
+
+  /**
+   * Registers the region, to prevent pruning until it has a bound.
+   */
+  public void regionOpened() {
+    try {
+      store.registerRegion(regionName);
+    } catch (IOException e) {
+      LOG.warn("Failed to register region " + regionNameAsString + " for invalid list pruning", e);
+    }
+  }
+
+  /**
+   * Removes the region after it was split, its data now belongs to the daughter regions.
+   */
+  public void regionSplit() {
+    try {
+      store.deleteRegion(regionName);
+    } catch (IOException e) {
+      LOG.warn("Failed to remove split region " + regionNameAsString + " from invalid list pruning", e);
+    }
+  }
+
+  /**
+   * Records the start of a major compaction.
+   *
+   * @param family the column family of the compacted store
+   * @param compaction identifies the compaction in {@link #compactionCompleted}
+   * @param state the transaction state used to drop invalid data, or {@code null} if no data is dropped
+   * @param memstoreEmpty whether the memstore of the region is empty
+   */
+  public synchronized void compactionStarted(String family, Object compaction,
+                                             @Nullable TransactionVisibilityState state, boolean memstoreEmpty) {
+    StoreState storeState = stores.get(family);
+    if (storeState == null) {
+      return;
+    }
+    if (state == null) {
+      storeState.pending = null;
+      return;
+    }
+    long bound = TxUtils.getPruneUpperBound(state, maxTxLifetimeMillis);
+    storeState.pending = new PendingBound(compaction, bound, ++sequence, !memstoreEmpty || storeState.flushing);
+  }
+
+  /**
+   * Records the successful completion of a compaction.
+   */
+  public synchronized void compactionCompleted(String family, Object compaction) {
+    StoreState storeState = stores.get(family);
+    if (storeState == null || storeState.pending == null || storeState.pending.compaction != compaction) {
+      return;
+    }
+    storeState.pending.compacted = true;
+    applyPending(storeState);
+  }
+
+  /**
+   * Records the start of a flush.
+   */
+  public synchronized void flushStarted(String family) {
+    StoreState storeState = stores.get(family);
+    if (storeState != null) {
+      storeState.flushing = true;
+      storeState.flushSequence = ++sequence;
+    }
+  }
+
+  /**
+   * Records the successful completion of a flush.
+   */
+  public synchronized void flushCompleted(String family) {
+    StoreState storeState = stores.get(family);
+    if (storeState == null) {
+      return;
+    }
+    storeState.flushing = false;
+    if (storeState.pending != null && storeState.flushSequence > storeState.pending.sequence) {
+      storeState.pending.flushed = true;
+      applyPending(storeState);
+    }
+  }
+
+  private void applyPending(StoreState storeState) {
+    PendingBound pending = storeState.pending;
+    if (!pending.compacted || (pending.needsFlush && !pending.flushed)) {
+      return;
+    }
+    storeState.pending = null;
+    storeState.bound = Math.max(storeState.bound, pending.bound);
+
+    long regionBound = Long.MAX_VALUE;
+    for (StoreState state : stores.values()) {
+      if (state.bound == PruneUpperBoundStore.NO_BOUND) {
+        return;
+      }
+      regionBound = Math.min(regionBound, state.bound);
+    }
+    if (regionBound > savedBound) {
+      try {
+        store.savePruneUpperBound(regionName, regionBound);
+        savedBound = regionBound;
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Region " + regionNameAsString + " has prune upper bound " + regionBound);
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to save prune upper bound of region " + regionNameAsString, e);
+      }
+    }
+  }
+
+  private static final class StoreState {
+    private PendingBound pending;
+    private long bound = PruneUpperBoundStore.NO_BOUND;
+    private boolean flushing;
+    private long flushSequence;
+  }
+
+  /**
+   * The bound of a major compaction that has not taken effect yet.
+   */
+  private static final class PendingBound {
+    private final Object compaction;
+    private final long bound;
+    private final long sequence;
+    private final boolean needsFlush;
+    private boolean compacted;
+    private boolean flushed;
+
+    private PendingBound(Object compaction, long bound, long sequence, boolean needsFlush) {
+      this.compaction = compaction;
+      this.bound = bound;
+      this.sequence = sequence;
+      this.needsFlush = needsFlush;
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package co.cask.tephra.runtime;
 
 import co.cask.tephra.TxConstants;
+import co.cask.tephra.distributed.MultiplexedClientProvider;
 import co.cask.tephra.distributed.PooledClientProvider;
 import co.cask.tephra.distributed.ThreadLocalClientProvider;
 import co.cask.tephra.distributed.ThriftClientProvider;
@@ -67,6 +68,8 @@ public class TransactionClientModule extends AbstractModule {
         clientProvider = new PooledClientProvider(cConf, discoveryServiceClient);
       } else if ("thread-local".equals(provider)) {
         clientProvider = new ThreadLocalClientProvider(cConf, discoveryServiceClient);
+      } else if ("multiplexed".equals(provider)) {
+        clientProvider = new MultiplexedClientProvider(cConf, discoveryServiceClient);
       } else {
         String message = "Unknown Transaction Service Client Provider '" + provider + "'.";
         throw new IllegalArgumentException(message);
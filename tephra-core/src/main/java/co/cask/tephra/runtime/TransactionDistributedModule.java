@@ -21,7 +21,6 @@ import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.TransactionExecutorFactory;
 import co.cask.tephra.TransactionManager;
 import co.cask.tephra.TransactionSystemClient;
-import co.cask.tephra.distributed.TransactionServiceClient;
 import co.cask.tephra.metrics.DefaultMetricsCollector;
 import co.cask.tephra.metrics.MetricsCollector;
 import co.cask.tephra.persist.HDFSTransactionStateStorage;
@@ -45,7 +44,7 @@ final class TransactionDistributedModule extends AbstractModule {
     bind(TransactionStateStorage.class).toProvider(TransactionStateStorageProvider.class).in(Singleton.class);
 
     bind(TransactionManager.class).in(Singleton.class);
-    bind(TransactionSystemClient.class).to(TransactionServiceClient.class).in(Singleton.class);
+    bind(TransactionSystemClient.class).toProvider(TransactionSystemClientProvider.class).in(Singleton.class);
     bind(MetricsCollector.class).to(DefaultMetricsCollector.class).in(Singleton.class);
 
     install(new FactoryModuleBuilder()
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.runtime;
+
+import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.distributed.CoalescingTransactionSystemClient;
+import co.cask.tephra.distributed.TransactionServiceClient;
+import co.cask.tephra.metrics.MetricsCollector;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * A provider for {@link TransactionSystemClient} that wraps the {@link TransactionServiceClient} with a
+ * {@link CoalescingTransactionSystemClient} if coalescing of transaction starts is enabled by configuration.
+ */
+@Singleton
+public final class TransactionSystemClientProvider implements Provider<TransactionSystemClient> {
+
+  private final Configuration cConf;
+  private final Injector injector;
+
+  @Inject
+  TransactionSystemClientProvider(Configuration cConf, Injector injector) {
+    this.cConf = cConf;
+    this.injector = injector;
+  }
+
+  @Override
+  public TransactionSystemClient get() {
+    TransactionSystemClient client = injector.getInstance(TransactionServiceClient.class);
+    if (cConf.getBoolean(TxConstants.Service.CFG_DATA_TX_CLIENT_COALESCE_ENABLED,
+                         TxConstants.Service.DEFAULT_DATA_TX_CLIENT_COALESCE_ENABLED)) {
+      return new CoalescingTransactionSystemClient(client, cConf, injector.getInstance(MetricsCollector.class));
+    }
+    return client;
+  }
+}
@@ -21,9 +21,10 @@ import co.cask.tephra.TransactionManager;
 import co.cask.tephra.persist.TransactionSnapshot;
 import co.cask.tephra.persist.TransactionVisibilityState;
 import com.google.common.base.Throwables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -106,8 +107,9 @@ public class DefaultSnapshotCodec implements SnapshotCodec {
 
   private void encodeInvalid(BinaryEncoder encoder, Collection<Long> invalid) throws IOException {
     if (!invalid.isEmpty()) {
-      encoder.writeInt(invalid.size());
-      for (long invalidTx : invalid) {
+      long[] invalidTxs = Longs.toArray(invalid);
+      encoder.writeInt(invalidTxs.length);
+      for (long invalidTx : invalidTxs) {
         encoder.writeLong(invalidTx);
       }
     }
@@ -116,14 +118,15 @@ public class DefaultSnapshotCodec implements SnapshotCodec {
 
   private Collection<Long> decodeInvalid(BinaryDecoder decoder) throws IOException {
     int size = decoder.readInt();
-    Collection<Long> invalid = Lists.newArrayListWithCapacity(size);
+    LongArrayList invalid = new LongArrayList(size);
     while (size != 0) { // zero denotes end of list as per AVRO spec
       for (int remaining = size; remaining > 0; --remaining) {
         invalid.add(decoder.readLong());
       }
       size = decoder.readInt();
     }
-    return invalid;
+    // backed by a primitive array, the transaction manager will sort it on restore
+    return Longs.asList(invalid.toLongArray());
   }
 
   protected void encodeInProgress(BinaryEncoder encoder, Map<Long, TransactionManager.InProgressTx> inProgress)
@@ -25,6 +25,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,7 +74,8 @@ public class SnapshotCodecProvider implements SnapshotCodec {
     }
     for (Class<?> codecClass : codecClasses) {
       try {
-        SnapshotCodec codec = (SnapshotCodec) (codecClass.newInstance());
+        // configurable codecs get the configuration of this provider
+        SnapshotCodec codec = (SnapshotCodec) ReflectionUtils.newInstance(codecClass, configuration);
         codecs.put(codec.getVersion(), codec);
         LOG.debug("Using snapshot codec {} for snapshots of version {}", codecClass.getName(), codec.getVersion());
       } catch (Exception e) {
@@ -0,0 +1,462 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.snapshot;
+
+import co.cask.tephra.ChangeId;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionType;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.persist.TransactionSnapshot;
+import co.cask.tephra.persist.TransactionVisibilityState;
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.LimitInputStream;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Handles serialization/deserialization of a {@link co.cask.tephra.persist.TransactionSnapshot}
+ * and its elements to {@code byte[]}.
+ *
+ * <p>
+ * The snapshot is split into three sections: the visibility state (pointers, invalid list and in-progress
+ * transactions), the committing change sets and the committed change sets. Each section is encoded separately and
+ * compressed with the Hadoop {@link CompressionCodec} configured by
+ * {@link TxConstants.Persist#CFG_TX_SNAPSHOT_COMPRESSION_CODEC}. A directory at the head of the snapshot names the
+ * compression codec and lists the sections with their lengths, so that a reader of the visibility state never reads
+ * or decompresses the change sets.
+ * </p>
+ *
+ * <p>
+ * Within the sections, all sorted transaction ids are written as differences to their predecessors, and the keys
+ * of each change set are sorted and written with the length of the prefix they share with the previous key,
+ * followed by the remaining bytes.
+ * </p>
+ */
+public class SnapshotCodecV5 implements SnapshotCodec, Configurable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotCodecV5.class);
+
+  private static final int VISIBILITY_SECTION = 1;
+  private static final int COMMITTING_SECTION = 2;
+  private static final int COMMITTED_SECTION = 3;
+
+  private static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+  private Configuration conf;
+  // the codec to compress written snapshots with, null to write them uncompressed
+  private CompressionCodec compressionCodec;
+
+  @Override
+  public int getVersion() {
+    return 5;
+  }
+
+  @Override
+  public void setConf(Configuration conf) {
+    this.conf = conf;
+    String codecName = conf.getTrimmed(TxConstants.Persist.CFG_TX_SNAPSHOT_COMPRESSION_CODEC,
+                                       TxConstants.Persist.DEFAULT_TX_SNAPSHOT_COMPRESSION_CODEC);
+    try {
+      compressionCodec = getCompressionCodec(codecName);
+    } catch (IOException e) {
+      LOG.warn("Unable to load the codec configured for " + TxConstants.Persist.CFG_TX_SNAPSHOT_COMPRESSION_CODEC +
+                 ": " + codecName + ". Writing uncompressed snapshots.", e);
+      compressionCodec = null;
+    }
+  }
+
+  @Override
+  public Configuration getConf() {
+    return conf;
+  }
+
+  @Override
+  public void encode(OutputStream out, TransactionSnapshot snapshot) {
+    try {
+      // sections are encoded before they are written, because their lengths precede them in the directory
+      SectionOutput visibility = new SectionOutput(compressionCodec);
+      encodeVisibilityState(visibility.encoder, snapshot);
+      SectionOutput committing = new SectionOutput(compressionCodec);
+      encodeChangeSets(committing.encoder, snapshot.getCommittingChangeSets());
+      SectionOutput committed = new SectionOutput(compressionCodec);
+      encodeChangeSets(committed.encoder, snapshot.getCommittedChangeSets());
+
+      byte[][] sections = { visibility.finish(), committing.finish(), committed.finish() };
+      int[] sectionIds = { VISIBILITY_SECTION, COMMITTING_SECTION, COMMITTED_SECTION };
+
+      BinaryEncoder encoder = new BinaryEncoder(out);
+      String codecName = compressionCodec == null ? "" : compressionCodec.getClass().getName();
+      encoder.writeBytes(codecName.getBytes(Charsets.UTF_8));
+      encoder.writeInt(sections.length);
+      for (int i = 0; i < sections.length; i++) {
+        encoder.writeInt(sectionIds[i]);
+        encoder.writeLong(sections[i].length);
+      }
+      for (byte[] section : sections) {
+        out.write(section);
+      }
+    } catch (IOException e) {
+      LOG.error("Unable to serialize transaction state: ", e);
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public TransactionSnapshot decode(InputStream in) {
+    try {
+      Directory directory = new Directory(in);
+      TransactionVisibilityState visibilityState = null;
+      NavigableMap<Long, Set<ChangeId>> committing = Maps.newTreeMap();
+      NavigableMap<Long, Set<ChangeId>> committed = Maps.newTreeMap();
+      for (int i = 0; i < directory.sectionIds.length; i++) {
+        long length = directory.sectionLengths[i];
+        switch (directory.sectionIds[i]) {
+          case VISIBILITY_SECTION:
+            visibilityState = decodeVisibilityState(directory.openSection(in, length));
+            break;
+          case COMMITTING_SECTION:
+            committing = decodeChangeSets(directory.openSection(in, length));
+            break;
+          case COMMITTED_SECTION:
+            committed = decodeChangeSets(directory.openSection(in, length));
+            break;
+          default:
+            ByteStreams.skipFully(in, length);
+        }
+        directory.closeSection();
+      }
+      if (visibilityState == null) {
+        throw new IOException("Snapshot does not contain a visibility section");
+      }
+      return new TransactionSnapshot(visibilityState.getTimestamp(), visibilityState.getReadPointer(),
+                                     visibilityState.getWritePointer(), visibilityState.getInvalid(),
+                                     visibilityState.getInProgress(), committing, committed);
+    } catch (IOException e) {
+      LOG.error("Unable to deserialize transaction state: ", e);
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public TransactionVisibilityState decodeTransactionVisibilityState(InputStream in) {
+    try {
+      Directory directory = new Directory(in);
+      for (int i = 0; i < directory.sectionIds.length; i++) {
+        long length = directory.sectionLengths[i];
+        if (directory.sectionIds[i] == VISIBILITY_SECTION) {
+          // the remaining sections are never read
+          TransactionVisibilityState visibilityState = decodeVisibilityState(directory.openSection(in, length));
+          directory.closeSection();
+          return visibilityState;
+        }
+        ByteStreams.skipFully(in, length);
+      }
+      throw new IOException("Snapshot does not contain a visibility section");
+    } catch (IOException e) {
+      LOG.error("Unable to deserialize transaction state: ", e);
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private void encodeVisibilityState(BinaryEncoder encoder, TransactionSnapshot snapshot) throws IOException {
+    encoder.writeLong(snapshot.getTimestamp());
+    encoder.writeLong(snapshot.getReadPointer());
+    encoder.writeLong(snapshot.getWritePointer());
+
+    // the invalid list is kept sorted by the transaction manager, but its order is preserved either way
+    long[] invalid = Longs.toArray(snapshot.getInvalid());
+    encoder.writeInt(invalid.length);
+    long previous = 0;
+    for (long invalidTx : invalid) {
+      encoder.writeLong(invalidTx - previous);
+      previous = invalidTx;
+    }
+
+    // the in-progress map is sorted by transaction id
+    Map<Long, TransactionManager.InProgressTx> inProgress = snapshot.getInProgress();
+    encoder.writeInt(inProgress.size());
+    previous = 0;
+    for (Map.Entry<Long, TransactionManager.InProgressTx> entry : inProgress.entrySet()) {
+      long txId = entry.getKey();
+      TransactionManager.InProgressTx tx = entry.getValue();
+      encoder.writeLong(txId - previous);
+      encoder.writeLong(tx.getExpiration());
+      encoder.writeLong(txId - tx.getVisibilityUpperBound());
+      encoder.writeInt(tx.getType().ordinal());
+      LongArrayList checkpointPointers = tx.getCheckpointWritePointers();
+      int checkpointCount = checkpointPointers == null ? 0 : checkpointPointers.size();
+      encoder.writeInt(checkpointCount);
+      long previousPointer = txId;
+      for (int i = 0; i < checkpointCount; i++) {
+        long checkpointPointer = checkpointPointers.getLong(i);
+        encoder.writeLong(checkpointPointer - previousPointer);
+        previousPointer = checkpointPointer;
+      }
+      previous = txId;
+    }
+  }
+
+  private TransactionVisibilityState decodeVisibilityState(BinaryDecoder decoder) throws IOException {
+    long timestamp = decoder.readLong();
+    long readPointer = decoder.readLong();
+    long writePointer = decoder.readLong();
+
+    long[] invalid = new long[decoder.readInt()];
+    long previous = 0;
+    for (int i = 0; i < invalid.length; i++) {
+      previous += decoder.readLong();
+      invalid[i] = previous;
+    }
+
+    int size = decoder.readInt();
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    previous = 0;
+    for (int remaining = size; remaining > 0; --remaining) {
+      long txId = previous + decoder.readLong();
+      long expiration = decoder.readLong();
+      long visibilityUpperBound = txId - decoder.readLong();
+      int txTypeIdx = decoder.readInt();
+      TransactionType txType;
+      try {
+        txType = TransactionType.values()[txTypeIdx];
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IOException("Type enum ordinal value is out of range: " + txTypeIdx);
+      }
+      int checkpointCount = decoder.readInt();
+      LongArrayList checkpointPointers = new LongArrayList(checkpointCount);
+      long previousPointer = txId;
+      for (int i = 0; i < checkpointCount; i++) {
+        previousPointer += decoder.readLong();
+        checkpointPointers.add(previousPointer);
+      }
+      inProgress.put(txId, new TransactionManager.InProgressTx(visibilityUpperBound, expiration, txType,
+                                                               checkpointPointers));
+      previous = txId;
+    }
+    return new TransactionSnapshot(timestamp, readPointer, writePointer, Longs.asList(invalid), inProgress);
+  }
+
+  private void encodeChangeSets(BinaryEncoder encoder, Map<Long, Set<ChangeId>> changeSets) throws IOException {
+    // change sets are kept in sorted maps, sort them anyway if they are not
+    NavigableMap<Long, Set<ChangeId>> sorted = changeSets instanceof NavigableMap
+      ? (NavigableMap<Long, Set<ChangeId>>) changeSets : new TreeMap<>(changeSets);
+    encoder.writeInt(sorted.size());
+    long previous = 0;
+    for (Map.Entry<Long, Set<ChangeId>> entry : sorted.entrySet()) {
+      encoder.writeLong(entry.getKey() - previous);
+      previous = entry.getKey();
+      encodeChanges(encoder, entry.getValue());
+    }
+  }
+
+  private NavigableMap<Long, Set<ChangeId>> decodeChangeSets(BinaryDecoder decoder) throws IOException {
+    int size = decoder.readInt();
+    NavigableMap<Long, Set<ChangeId>> changeSets = Maps.newTreeMap();
+    long previous = 0;
+    for (int remaining = size; remaining > 0; --remaining) {
+      previous += decoder.readLong();
+      changeSets.put(previous, decodeChanges(decoder));
+    }
+    return changeSets;
+  }
+
+  private void encodeChanges(BinaryEncoder encoder, Set<ChangeId> changes) throws IOException {
+    byte[][] keys = new byte[changes.size()][];
+    int count = 0;
+    for (ChangeId change : changes) {
+      keys[count++] = change.getKey();
+    }
+    Arrays.sort(keys, KEY_COMPARATOR);
+    encoder.writeInt(keys.length);
+    byte[] previous = new byte[0];
+    for (byte[] key : keys) {
+      int shared = commonPrefixLength(previous, key);
+      encoder.writeInt(shared);
+      encoder.writeBytes(shared == 0 ? key : Arrays.copyOfRange(key, shared, key.length));
+      previous = key;
+    }
+  }
+
+  private Set<ChangeId> decodeChanges(BinaryDecoder decoder) throws IOException {
+    int size = decoder.readInt();
+    Set<ChangeId> changes = Sets.newHashSetWithExpectedSize(size);
+    byte[] previous = new byte[0];
+    for (int remaining = size; remaining > 0; --remaining) {
+      int shared = decoder.readInt();
+      if (shared < 0 || shared > previous.length) {
+        throw new IOException("Invalid length of the common prefix of a change key: " + shared);
+      }
+      byte[] suffix = decoder.readBytes();
+      byte[] key;
+      if (shared == 0) {
+        key = suffix;
+      } else {
+        key = new byte[shared + suffix.length];
+        System.arraycopy(previous, 0, key, 0, shared);
+        System.arraycopy(suffix, 0, key, shared, suffix.length);
+      }
+      changes.add(new ChangeId(key));
+      previous = key;
+    }
+    return changes;
+  }
+
+  private static int commonPrefixLength(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    int i = 0;
+    while (i < length && a[i] == b[i]) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Returns the compression codec of the given class name, or null for an empty name.
+   */
+  @Nullable
+  private CompressionCodec getCompressionCodec(String codecName) throws IOException {
+    if (codecName == null || codecName.isEmpty()) {
+      return null;
+    }
+    Configuration codecConf = conf == null ? new Configuration() : conf;
+    try {
+      Class<?> codecClass = codecConf.getClassByName(codecName);
+      if (!CompressionCodec.class.isAssignableFrom(codecClass)) {
+        throw new IOException("Class " + codecName + " is not a " + CompressionCodec.class.getName());
+      }
+      return (CompressionCodec) ReflectionUtils.newInstance(codecClass, codecConf);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to load compression codec " + codecName, e);
+    }
+  }
+
+  /**
+   * A section that is being encoded, and compressed if a compression codec is given.
+   */
+  private static final class SectionOutput {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final Compressor compressor;
+    private final OutputStream stream;
+    private final BinaryEncoder encoder;
+
+    private SectionOutput(@Nullable CompressionCodec codec) throws IOException {
+      if (codec == null) {
+        compressor = null;
+        stream = new BufferedOutputStream(bytes);
+      } else {
+        compressor = CodecPool.getCompressor(codec);
+        stream = new BufferedOutputStream(codec.createOutputStream(bytes, compressor));
+      }
+      encoder = new BinaryEncoder(stream);
+    }
+
+    /**
+     * Completes the section and returns its encoded bytes.
+     */
+    private byte[] finish() throws IOException {
+      try {
+        stream.close();
+      } finally {
+        if (compressor != null) {
+          CodecPool.returnCompressor(compressor);
+        }
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  /**
+   * The directory at the head of a snapshot, and the reading of the sections that follow it.
+   */
+  private final class Directory {
+    private final CompressionCodec codec;
+    private final int[] sectionIds;
+    private final long[] sectionLengths;
+    private LimitInputStream section;
+    private Decompressor decompressor;
+
+    private Directory(InputStream in) throws IOException {
+      BinaryDecoder decoder = new BinaryDecoder(in);
+      codec = getCompressionCodec(new String(decoder.readBytes(), Charsets.UTF_8));
+      int count = decoder.readInt();
+      sectionIds = new int[count];
+      sectionLengths = new long[count];
+      for (int i = 0; i < count; i++) {
+        sectionIds[i] = decoder.readInt();
+        sectionLengths[i] = decoder.readLong();
+      }
+    }
+
+    /**
+     * Returns a decoder for the section of the given length that starts at the current position of the stream.
+     */
+    private BinaryDecoder openSection(InputStream in, long length) throws IOException {
+      section = new LimitInputStream(in, length);
+      if (codec == null) {
+        return new BinaryDecoder(new BufferedInputStream(section));
+      }
+      decompressor = CodecPool.getDecompressor(codec);
+      return new BinaryDecoder(new BufferedInputStream(codec.createInputStream(section, decompressor)));
+    }
+
+    /**
+     * Positions the stream at the end of the current section, if a section was opened.
+     */
+    private void closeSection() throws IOException {
+      if (decompressor != null) {
+        CodecPool.returnDecompressor(decompressor);
+        decompressor = null;
+      }
+      if (section != null) {
+        // the decoder may not have consumed trailing bytes of the compressed data
+        byte[] buf = new byte[1024];
+        while (section.read(buf) >= 0) {
+          continue;
+        }
+        section = null;
+      }
+    }
+  }
+}
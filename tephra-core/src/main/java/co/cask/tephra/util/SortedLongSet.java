@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.util;
+
+import com.google.common.primitives.Longs;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of primitive longs, kept in a sorted array. Lookups are binary searches, adding values larger than all
+ * existing ones (the common case for transaction ids) is amortized constant time, and batches of values are merged
+ * in a single pass.
+ *
+ * <p>
+ * {@link #toSortedArray()} returns an immutable copy of the current content, which is created lazily on the first
+ * call after a modification and shared by all callers until the next modification.
+ * </p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class SortedLongSet {
+  private static final long[] EMPTY = { };
+
+  private long[] elements;
+  private int size;
+  // immutable view of the current content, null if it needs to be recreated
+  private long[] sortedArray = EMPTY;
+  // incremented by every modification
+  private long version;
+
+  public SortedLongSet() {
+    this(16);
+  }
+
+  public SortedLongSet(int expectedSize) {
+    this.elements = new long[Math.max(expectedSize, 1)];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(long value) {
+    return Arrays.binarySearch(elements, 0, size, value) >= 0;
+  }
+
+  /**
+   * Adds a value to the set.
+   * @return true if the set changed, false if the value was already present
+   */
+  public boolean add(long value) {
+    if (size == 0 || value > elements[size - 1]) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+      modified();
+      return true;
+    }
+    int pos = Arrays.binarySearch(elements, 0, size, value);
+    if (pos >= 0) {
+      return false;
+    }
+    pos = -(pos + 1);
+    ensureCapacity(size + 1);
+    System.arraycopy(elements, pos, elements, pos + 1, size - pos);
+    elements[pos] = value;
+    size++;
+    modified();
+    return true;
+  }
+
+  /**
+   * Adds all the given values to the set.
+   * @return true if the set changed
+   */
+  public boolean addAll(Collection<Long> values) {
+    return addAll(Longs.toArray(values));
+  }
+
+  /**
+   * Adds all the given values to the set. The given array is not modified.
+   * @return true if the set changed
+   */
+  public boolean addAll(long[] values) {
+    if (values.length == 0) {
+      return false;
+    }
+    if (values.length == 1) {
+      return add(values[0]);
+    }
+    long[] toAdd = values.clone();
+    Arrays.sort(toAdd);
+
+    // merge both sorted arrays into a new one, dropping duplicates
+    long[] merged = new long[size + toAdd.length];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < size || j < toAdd.length) {
+      long next;
+      if (j == toAdd.length || (i < size && elements[i] <= toAdd[j])) {
+        next = elements[i++];
+      } else {
+        next = toAdd[j++];
+      }
+      if (count == 0 || merged[count - 1] != next) {
+        merged[count++] = next;
+      }
+    }
+    if (count == size) {
+      return false;
+    }
+    elements = merged;
+    size = count;
+    modified();
+    return true;
+  }
+
+  /**
+   * Removes a value from the set.
+   * @return true if the set changed, false if the value was not present
+   */
+  public boolean remove(long value) {
+    int pos = Arrays.binarySearch(elements, 0, size, value);
+    if (pos < 0) {
+      return false;
+    }
+    System.arraycopy(elements, pos + 1, elements, pos, size - pos - 1);
+    size--;
+    modified();
+    return true;
+  }
+
+  /**
+   * Removes all the given values from the set.
+   * @return true if the set changed
+   */
+  public boolean removeAll(Collection<Long> values) {
+    return removeAll(Longs.toArray(values));
+  }
+
+  /**
+   * Removes all the given values from the set. The given array is not modified.
+   * @return true if the set changed
+   */
+  public boolean removeAll(long[] values) {
+    if (values.length == 0 || size == 0) {
+      return false;
+    }
+    if (values.length == 1) {
+      return remove(values[0]);
+    }
+    long[] toRemove = values.clone();
+    Arrays.sort(toRemove);
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (Arrays.binarySearch(toRemove, elements[i]) < 0) {
+        elements[count++] = elements[i];
+      }
+    }
+    if (count == size) {
+      return false;
+    }
+    size = count;
+    modified();
+    return true;
+  }
+
+  public void clear() {
+    size = 0;
+    sortedArray = EMPTY;
+    version++;
+  }
+
+  /**
+   * Returns the version of the content of this set, which changes with every modification.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the content of this set as a sorted array. The returned array is shared, and must not be modified.
+   */
+  public long[] toSortedArray() {
+    long[] result = sortedArray;
+    if (result == null) {
+      result = Arrays.copyOf(elements, size);
+      sortedArray = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the content of this set as a sorted list, backed by the array returned from {@link #toSortedArray()}.
+   * The returned list must not be modified.
+   */
+  public List<Long> asList() {
+    return Longs.asList(toSortedArray());
+  }
+
+  private void modified() {
+    sortedArray = null;
+    version++;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1)));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toSortedArray());
+  }
+}
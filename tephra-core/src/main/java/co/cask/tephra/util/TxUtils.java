@@ -93,6 +93,16 @@ public class TxUtils {
         tx.getWritePointer() + 1 : tx.getWritePointer();
   }
 
+  /**
+   * Returns whether the given transaction is read-only, as started by
+   * {@link co.cask.tephra.TransactionSystemClient#startReadOnly()}, or a "dummy" transaction used for filtering.
+   * Such a transaction must not write: its write pointer {@code Long.MAX_VALUE} is the latest timestamp in HBase,
+   * so its writes would be stored with the current time, and appear as committed to all transactions.
+   */
+  public static boolean isReadOnly(Transaction tx) {
+    return tx.getWritePointer() == Long.MAX_VALUE;
+  }
+
   /**
    * Creates a "dummy" transaction based on the given txVisibilityState's state.  This is not a "real" transaction in
    * the sense that it has not been started, data should not be written with it, and it cannot be committed.  However,
@@ -107,6 +117,42 @@ public class TxUtils {
                            TxUtils.getFirstShortInProgress(txVisibilityState.getInProgress()), TransactionType.SHORT);
   }
 
+  /**
+   * Returns the prune upper bound of a major compaction that uses the given state to drop invalid data: the largest
+   * transaction id such that every transaction up to it that is invalid, now or in the future, is already invalid
+   * in the given state. The data of all these transactions is removed by the compaction.
+   *
+   * <p>An invalid transaction may still write after the compaction, until it reaches the maximum lifetime, so the
+   * bound never includes transactions that started within the maximum lifetime before the state was taken.</p>
+   *
+   * @param txVisibilityState the state used by the compaction
+   * @param maxTxLifetimeMillis the maximum lifetime of a transaction, in milliseconds
+   */
+  public static long getPruneUpperBound(TransactionVisibilityState txVisibilityState, long maxTxLifetimeMillis) {
+    // all transactions up to the write pointer that are not in progress have completed, so they can not become
+    // invalid anymore, while an in-progress transaction may still be invalidated
+    long bound = txVisibilityState.getWritePointer();
+    if (!txVisibilityState.getInProgress().isEmpty()) {
+      bound = Math.min(bound, txVisibilityState.getInProgress().firstKey() - 1);
+    }
+    // writes of older transactions are rejected from the time of the state on
+    return Math.min(bound, (txVisibilityState.getTimestamp() - maxTxLifetimeMillis) * TxConstants.MAX_TX_PER_MS - 1);
+  }
+
+  /**
+   * Returns the largest version up to which a major compaction that uses the given state may drop versions that are
+   * shadowed by a newer committed version of the same column. Every committed version up to this bound is visible to
+   * all in-progress transactions and to all transactions started later, so none of them can read an older version.
+   */
+  public static long getShadowedVersionUpperBound(TransactionVisibilityState txVisibilityState) {
+    // an in-progress transaction sees all committed versions up to its visibility upper bound
+    long bound = txVisibilityState.getReadPointer();
+    for (TransactionManager.InProgressTx tx : txVisibilityState.getInProgress().values()) {
+      bound = Math.min(bound, tx.getVisibilityUpperBound());
+    }
+    return bound;
+  }
+
   /**
    * Returns the write pointer for the first "short" transaction that in the in-progress set, or
    * {@link Transaction#NO_TX_IN_PROGRESS} if none.
@@ -34,7 +34,9 @@ struct TTransaction {
   6: TTransactionType type,
   7: i64 writePointer,
   8: list<i64> checkpointWritePointers,
-  9: TVisibilityLevel visibilityLevel
+  9: TVisibilityLevel visibilityLevel,
+  # invalids and inProgress packed by co.cask.tephra.distributed.PackedExcludes, set instead of both lists
+  10: optional binary packedExcludes
 }
 
 exception TTransactionNotInProgressException {
@@ -70,4 +72,11 @@ service TTransactionServer {
   TBoolean truncateInvalidTxBefore(1: i64 time) throws (1: TInvalidTruncateTimeException e),
   i32 invalidTxSize(),
   TTransaction checkpoint(1: TTransaction tx) throws (1: TTransactionNotInProgressException e),
+  TTransaction startReadOnly(),
+  list<TTransaction> startShortBatch(1: i32 count, 2: i32 timeout),
+  # like startShortTimeout, but returns the excludes in packed form. A timeout <= 0 uses the default timeout.
+  TTransaction startShortPacked(1: i32 timeout),
+  # the visibility state of the transaction manager, for caches that refresh it periodically. The invalid list is
+  # omitted if its version still equals the given version, which the caller obtained with a previous response.
+  binary getVisibilityState(1: i64 invalidVersion) throws (1:TTransactionCouldNotTakeSnapshotException e),
 }
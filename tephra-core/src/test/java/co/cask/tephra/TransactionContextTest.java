@@ -111,6 +111,56 @@ public class TransactionContextTest {
     Assert.assertEquals(txClient.state, DummyTxClient.CommitState.Committed);
   }
 
+  @Test
+  public void testReadOnly() throws TransactionFailureException, InterruptedException {
+    Transaction writeTx = txClient.startShort();
+    TransactionContext context = newTransactionContext(ds1, ds2);
+    // start read-only transaction
+    context.startReadOnly();
+    Transaction readTx = context.getCurrentTransaction();
+    Assert.assertNotNull(readTx);
+    Assert.assertSame(readTx, ds1.tx);
+    // the concurrent write transaction is excluded, and no cell can be mistaken for a write of the read-only tx
+    Assert.assertTrue(readTx.isExcluded(writeTx.getWritePointer()));
+    Assert.assertFalse(readTx.isVisible(writeTx.getWritePointer()));
+    Assert.assertEquals(Long.MAX_VALUE, readTx.getWritePointer());
+    // finish without changes: nothing gets committed
+    context.finish();
+    Assert.assertNull(context.getCurrentTransaction());
+    Assert.assertTrue(ds1.checked);
+    Assert.assertTrue(ds2.checked);
+    Assert.assertFalse(ds1.committed);
+    Assert.assertFalse(ds2.committed);
+    Assert.assertTrue(ds1.postCommitted);
+    Assert.assertTrue(ds2.postCommitted);
+    Assert.assertFalse(ds1.rolledBack);
+    Assert.assertFalse(ds2.rolledBack);
+    Assert.assertEquals(txClient.state, DummyTxClient.CommitState.Started);
+    txClient.abort(writeTx);
+  }
+
+  @Test
+  public void testReadOnlyWithChanges() throws TransactionFailureException, InterruptedException {
+    TransactionContext context = newTransactionContext(ds1, ds2);
+    context.startReadOnly();
+    ds1.addChange(A);
+    // finishing must fail because ds1 has changes, and roll back all tx awares
+    try {
+      context.finish();
+      Assert.fail("changes in read-only tx - exception should be thrown");
+    } catch (TransactionFailureException e) {
+      Assert.assertNull(e.getCause());
+    }
+    Assert.assertFalse(ds1.committed);
+    Assert.assertFalse(ds2.committed);
+    Assert.assertFalse(ds1.postCommitted);
+    Assert.assertFalse(ds2.postCommitted);
+    Assert.assertTrue(ds1.rolledBack);
+    Assert.assertTrue(ds2.rolledBack);
+    // the transaction system is not involved
+    Assert.assertEquals(txClient.state, DummyTxClient.CommitState.Started);
+  }
+
   @Test
   public void testPostCommitFailure() throws TransactionFailureException, InterruptedException {
     ds1.failPostCommitTxOnce = InduceFailure.ThrowException;
@@ -659,6 +709,12 @@ public class TransactionContextTest {
       return super.startShort(timeout);
     }
 
+    @Override
+    public Transaction startReadOnly() {
+      state = CommitState.Started;
+      return super.startReadOnly();
+    }
+
     @Override
     public void abort(Transaction tx) {
       state = CommitState.Aborted;
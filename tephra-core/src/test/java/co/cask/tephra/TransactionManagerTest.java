@@ -16,19 +16,32 @@
 
 package co.cask.tephra;
 
+import co.cask.tephra.distributed.EncodedExcludes;
 import co.cask.tephra.inmemory.InMemoryTxSystemClient;
 import co.cask.tephra.metrics.TxMetricsCollector;
 import co.cask.tephra.persist.InMemoryTransactionStateStorage;
+import co.cask.tephra.persist.TransactionSnapshot;
 import co.cask.tephra.persist.TransactionStateStorage;
+import co.cask.tephra.persist.TransactionVisibilityState;
+import co.cask.tephra.persist.VisibilityStateUpdate;
+import co.cask.tephra.prune.InMemoryPruneUpperBoundStore;
+import co.cask.tephra.prune.PruneUpperBoundStore;
+import co.cask.tephra.snapshot.SnapshotCodecProvider;
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import org.apache.hadoop.conf.Configuration;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -256,6 +269,59 @@ public class TransactionManagerTest extends TransactionSystemTest {
     }
   }
 
+  @Test
+  public void testPruneInvalidList() throws Exception {
+    InMemoryPruneUpperBoundStore.clear();
+    Configuration testConf = new Configuration(conf);
+    testConf.setBoolean(TxConstants.TransactionPruning.PRUNE_ENABLE, true);
+    testConf.setLong(TxConstants.TransactionPruning.PRUNE_INTERVAL, 0); // no prune thread
+    TransactionManager txm = new TransactionManager(testConf, new InMemoryTransactionStateStorage(),
+                                                    new TxMetricsCollector());
+    txm.startAndWait();
+    try {
+      Transaction tx1 = txm.startShort();
+      Transaction tx2 = txm.startShort();
+      Transaction tx3 = txm.startShort();
+      txm.invalidate(tx1.getTransactionId());
+      txm.invalidate(tx3.getTransactionId());
+      Assert.assertEquals(ImmutableList.of(tx1.getTransactionId(), tx3.getTransactionId()),
+                          txm.getCurrentState().getInvalid());
+
+      // no regions recorded a bound yet
+      Assert.assertEquals(0, txm.pruneInvalidList());
+
+      PruneUpperBoundStore store = new InMemoryPruneUpperBoundStore();
+      byte[] region1 = "region1".getBytes(Charsets.UTF_8);
+      byte[] region2 = "region2".getBytes(Charsets.UTF_8);
+      store.registerRegion(region1);
+      store.registerRegion(region2);
+      store.savePruneUpperBound(region1, tx3.getTransactionId());
+      // region2 has no bound yet
+      Assert.assertEquals(0, txm.pruneInvalidList());
+
+      store.savePruneUpperBound(region2, tx2.getTransactionId());
+      Assert.assertEquals(1, txm.pruneInvalidList());
+      Assert.assertEquals(ImmutableList.of(tx3.getTransactionId()), txm.getCurrentState().getInvalid());
+      // tx2 is still in progress
+      Assert.assertTrue(txm.getCurrentState().getInProgress().containsKey(tx2.getTransactionId()));
+
+      store.savePruneUpperBound(region2, tx3.getTransactionId());
+      Assert.assertEquals(1, txm.pruneInvalidList());
+      Assert.assertEquals(0, txm.getInvalidSize());
+
+      // a transaction can not outlive the maximum lifetime, after which the region servers reject its writes
+      try {
+        txm.startShort((int) TxConstants.TransactionPruning.DEFAULT_PRUNE_MAX_TX_LIFETIME);
+        Assert.fail("Expected the timeout to be rejected");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    } finally {
+      txm.stopAndWait();
+      InMemoryPruneUpperBoundStore.clear();
+    }
+  }
+
   @Test
   public void testTruncateInvalidBeforeTime() throws Exception {
     InMemoryTransactionStateStorage storage = new InMemoryTransactionStateStorage();
@@ -341,4 +407,224 @@ public class TransactionManagerTest extends TransactionSystemTest {
       }
     }
   }
+
+  @Test
+  public void testConflictDetectionAfterPruneAndRecovery() throws Exception {
+    InMemoryTransactionStateStorage storage = new InMemoryTransactionStateStorage();
+    Configuration testConf = new Configuration(conf);
+    // No periodic snapshots
+    testConf.setLong(TxConstants.Manager.CFG_TX_SNAPSHOT_INTERVAL, -1);
+    TransactionManager txm1 = new TransactionManager(testConf, storage, new TxMetricsCollector());
+    txm1.startAndWait();
+
+    TransactionManager txm2 = null;
+    TransactionManager txm3 = null;
+    byte[] a = new byte[] { 'a' };
+    byte[] b = new byte[] { 'b' };
+    byte[] c = new byte[] { 'c' };
+    try {
+      // keep a short transaction open, so that later commits are retained for conflict detection
+      Transaction txOld = txm1.startShort();
+      Transaction tx1 = txm1.startShort();
+      Assert.assertTrue(txm1.canCommit(tx1, Collections.singleton(a)));
+      Assert.assertTrue(txm1.commit(tx1));
+      Transaction tx2 = txm1.startShort();
+      Assert.assertTrue(txm1.canCommit(tx2, ImmutableList.of(a, b)));
+      Assert.assertTrue(txm1.commit(tx2));
+      Assert.assertEquals(2, txm1.getCommittedSize());
+
+      // txOld started before both commits, so it conflicts on a and b, but not on c
+      Assert.assertFalse(txm1.canCommit(txOld, Collections.singleton(a)));
+      Assert.assertFalse(txm1.canCommit(txOld, Collections.singleton(b)));
+      Assert.assertTrue(txm1.canCommit(txOld, Collections.singleton(c)));
+
+      // a new transaction does not see conflicts with earlier commits
+      Transaction tx3 = txm1.startShort();
+      Assert.assertTrue(txm1.canCommit(tx3, ImmutableList.of(a, b)));
+
+      // a manager recovering from the log must detect the same conflicts
+      txm2 = new TransactionManager(testConf, storage, new TxMetricsCollector());
+      txm2.startAndWait();
+      Assert.assertFalse(txm2.canCommit(txOld, Collections.singleton(a)));
+      Assert.assertFalse(txm2.canCommit(txOld, Collections.singleton(b)));
+      // write a snapshot, so that the next manager restores from it rather than from the logs
+      TimeUnit.MILLISECONDS.sleep(1);
+      storage.writeSnapshot(txm2.getSnapshot());
+
+      // a manager recovering from a snapshot must detect the same conflicts
+      txm3 = new TransactionManager(testConf, storage, new TxMetricsCollector());
+      txm3.startAndWait();
+      Assert.assertFalse(txm3.canCommit(txOld, Collections.singleton(a)));
+      txm3.abort(txOld);
+      Assert.assertTrue(txm3.commit(tx3));
+      // no more short transactions in progress, all committed change sets are pruned
+      Assert.assertEquals(0, txm3.getCommittedSize());
+      Transaction tx4 = txm3.startShort();
+      Assert.assertTrue(txm3.canCommit(tx4, ImmutableList.of(a, b, c)));
+      Assert.assertTrue(txm3.commit(tx4));
+    } finally {
+      txm1.stopAndWait();
+      if (txm2 != null) {
+        txm2.stopAndWait();
+      }
+      if (txm3 != null) {
+        txm3.stopAndWait();
+      }
+    }
+  }
+
+  @Test
+  public void testInProgressExcludes() throws Exception {
+    Transaction tx1 = txManager.startShort();
+    Transaction tx2 = txManager.startLong();
+    Transaction tx3 = txManager.startShort();
+    Assert.assertArrayEquals(new long[] { tx1.getTransactionId(), tx2.getTransactionId() }, tx3.getInProgress());
+    Assert.assertEquals(tx1.getTransactionId(), tx3.getFirstShortInProgress());
+
+    // checkpoint write pointers are excluded in sort order
+    Transaction tx1Checkpoint = txManager.checkpoint(tx1);
+    Transaction tx4 = txManager.startShort();
+    Assert.assertArrayEquals(new long[] { tx1.getTransactionId(), tx2.getTransactionId(), tx3.getTransactionId(),
+                                          tx1Checkpoint.getWritePointer() }, tx4.getInProgress());
+    Assert.assertEquals(tx1.getTransactionId(), tx4.getFirstShortInProgress());
+
+    // committing removes the transaction together with its checkpoints
+    Assert.assertTrue(txManager.canCommit(tx1Checkpoint, Collections.singleton(new byte[] { 'a' })));
+    Assert.assertTrue(txManager.commit(tx1Checkpoint));
+    Transaction tx5 = txManager.startShort();
+    Assert.assertArrayEquals(new long[] { tx2.getTransactionId(), tx3.getTransactionId(), tx4.getTransactionId() },
+                             tx5.getInProgress());
+    Assert.assertEquals(tx3.getTransactionId(), tx5.getFirstShortInProgress());
+    // the change set is kept for conflict detection while earlier short transactions are in progress
+    Assert.assertEquals(1, txManager.getCurrentState().getCommittedChangeSets().size());
+
+    // invalidating moves the transaction to the invalid list
+    Assert.assertTrue(txManager.invalidate(tx3.getTransactionId()));
+    txManager.abort(tx4);
+    Transaction tx6 = txManager.startShort();
+    Assert.assertArrayEquals(new long[] { tx2.getTransactionId(), tx5.getTransactionId() }, tx6.getInProgress());
+    Assert.assertArrayEquals(new long[] { tx3.getTransactionId() }, tx6.getInvalids());
+    Assert.assertEquals(tx5.getTransactionId(), tx6.getFirstShortInProgress());
+
+    txManager.abort(tx5);
+    txManager.abort(tx6);
+    Assert.assertTrue(txManager.commit(tx2));
+    Assert.assertTrue(txManager.getCurrentState().getCommittedChangeSets().isEmpty());
+    Transaction tx7 = txManager.startShort();
+    Assert.assertEquals(0, tx7.getInProgress().length);
+    Assert.assertEquals(Transaction.NO_TX_IN_PROGRESS, tx7.getFirstShortInProgress());
+    txManager.abort(tx7);
+  }
+
+  @Test
+  public void testSharedEncodedExcludes() throws Exception {
+    Transaction tx1 = txManager.startShort();
+    Assert.assertTrue(txManager.invalidate(tx1.getTransactionId()));
+    Transaction tx2 = txManager.startShort();
+    // read-only transactions do not change the state, they share the encoding with the previous transaction
+    Transaction readOnly1 = txManager.startReadOnly();
+    Transaction readOnly2 = txManager.startReadOnly();
+    EncodedExcludes excludes = txManager.getEncodedExcludes(readOnly1);
+    Assert.assertNotNull(excludes);
+    Assert.assertSame(excludes, txManager.getEncodedExcludes(readOnly2));
+    // tx2 was created before it was added to the in-progress list
+    Assert.assertNull(txManager.getEncodedExcludes(tx2));
+
+    // tx3 is created from the same state, but adds itself to the in-progress list
+    Transaction tx3 = txManager.startShort();
+    Assert.assertSame(excludes, txManager.getEncodedExcludes(tx3));
+    Transaction readOnly3 = txManager.startReadOnly();
+    EncodedExcludes nextExcludes = txManager.getEncodedExcludes(readOnly3);
+    Assert.assertNotNull(nextExcludes);
+    Assert.assertNotSame(excludes, nextExcludes);
+    Assert.assertNull(txManager.getEncodedExcludes(readOnly1));
+
+    // a change of the invalid list makes the encoding stale
+    Assert.assertTrue(txManager.invalidate(tx2.getTransactionId()));
+    Transaction readOnly4 = txManager.startReadOnly();
+    Assert.assertNull(txManager.getEncodedExcludes(readOnly3));
+    Assert.assertNotNull(txManager.getEncodedExcludes(readOnly4));
+    txManager.abort(tx3);
+  }
+
+  @Test
+  public void testSnapshotNotAffectedByLaterChanges() throws Exception {
+    Transaction tx1 = txManager.startShort();
+    Transaction tx2 = txManager.startShort();
+    Transaction tx3 = txManager.startShort();
+    Assert.assertTrue(txManager.canCommit(tx1, Collections.singleton(new byte[] { 'a' })));
+    Assert.assertTrue(txManager.commit(tx1));
+    Assert.assertTrue(txManager.canCommit(tx2, Collections.singleton(new byte[] { 'b' })));
+
+    TransactionSnapshot snapshot = txManager.getCurrentState();
+    Set<ChangeId> committed = ImmutableSet.of(new ChangeId(new byte[] { 'a' }));
+    Set<ChangeId> committing = ImmutableSet.of(new ChangeId(new byte[] { 'b' }));
+    Assert.assertEquals(committed, Iterables.getOnlyElement(snapshot.getCommittedChangeSets().values()));
+    Assert.assertEquals(committing, snapshot.getCommittingChangeSets().get(tx2.getTransactionId()));
+
+    // tx2 commits at the same commit pointer as tx1, and tx3 adds a checkpoint
+    Assert.assertTrue(txManager.commit(tx2));
+    Transaction tx3Checkpoint = txManager.checkpoint(tx3);
+    Assert.assertArrayEquals(new long[] { tx3Checkpoint.getWritePointer() },
+                             tx3Checkpoint.getCheckpointWritePointers());
+    Assert.assertEquals(2, Iterables.getOnlyElement(txManager.getCurrentState().getCommittedChangeSets().values())
+      .size());
+
+    // the earlier snapshot still has the state at the time it was taken
+    Assert.assertEquals(committed, Iterables.getOnlyElement(snapshot.getCommittedChangeSets().values()));
+    Assert.assertEquals(committing, snapshot.getCommittingChangeSets().get(tx2.getTransactionId()));
+    Assert.assertTrue(snapshot.getInProgress().get(tx3.getTransactionId()).getCheckpointWritePointers().isEmpty());
+    txManager.abort(tx3Checkpoint);
+  }
+
+  @Test
+  public void testVisibilityState() throws Exception {
+    Configuration config = new Configuration(conf);
+    TransactionManager manager = new TransactionManager(config);
+    manager.startAndWait();
+    SnapshotCodecProvider codecProvider = new SnapshotCodecProvider(config);
+    try {
+      Transaction tx1 = manager.startShort();
+      Transaction tx2 = manager.startShort();
+      Assert.assertTrue(manager.invalidate(tx1.getTransactionId()));
+
+      // the first update includes the invalid list
+      VisibilityStateUpdate update = fetchVisibilityState(manager, codecProvider, 0L);
+      Assert.assertTrue(update.isInvalidIncluded());
+      TransactionVisibilityState state = update.getState(null);
+      Assert.assertEquals(ImmutableList.of(tx1.getTransactionId()), ImmutableList.copyOf(state.getInvalid()));
+      Assert.assertEquals(ImmutableSet.of(tx2.getTransactionId()), state.getInProgress().keySet());
+      long invalidVersion = update.getInvalidVersion();
+
+      // an unchanged invalid list is omitted, but in-progress changes are visible
+      Assert.assertTrue(manager.canCommit(tx2, Collections.singleton(new byte[] { 'a' })));
+      Assert.assertTrue(manager.commit(tx2));
+      update = fetchVisibilityState(manager, codecProvider, invalidVersion);
+      Assert.assertFalse(update.isInvalidIncluded());
+      Assert.assertEquals(invalidVersion, update.getInvalidVersion());
+      state = update.getState(ImmutableList.of(tx1.getTransactionId()));
+      Assert.assertEquals(ImmutableList.of(tx1.getTransactionId()), ImmutableList.copyOf(state.getInvalid()));
+      Assert.assertTrue(state.getInProgress().isEmpty());
+      Assert.assertEquals(tx2.getWritePointer(), state.getReadPointer());
+
+      // a change to the invalid list is sent again
+      Transaction tx3 = manager.startShort();
+      Assert.assertTrue(manager.invalidate(tx3.getTransactionId()));
+      update = fetchVisibilityState(manager, codecProvider, invalidVersion);
+      Assert.assertTrue(update.isInvalidIncluded());
+      Assert.assertNotEquals(invalidVersion, update.getInvalidVersion());
+      Assert.assertEquals(ImmutableList.of(tx1.getTransactionId(), tx3.getTransactionId()),
+                          ImmutableList.copyOf(update.getState(null).getInvalid()));
+    } finally {
+      manager.stopAndWait();
+    }
+  }
+
+  private static VisibilityStateUpdate fetchVisibilityState(TransactionManager manager,
+                                                            SnapshotCodecProvider codecProvider,
+                                                            long knownInvalidVersion) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    manager.writeVisibilityState(out, knownInvalidVersion);
+    return VisibilityStateUpdate.read(new ByteArrayInputStream(out.toByteArray()), codecProvider);
+  }
 }
@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -295,6 +296,79 @@ public abstract class TransactionSystemTest {
     client.abort(tx);
   }
 
+  @Test
+  public void testStartShortBatch() throws Exception {
+    TransactionSystemClient client = getClient();
+    Transaction tx1 = client.startShort();
+    List<Transaction> batch = client.startShortBatch(3, 10);
+    Assert.assertEquals(3, batch.size());
+
+    // like separate calls of startShort(), each transaction sees the earlier ones of the batch in progress
+    long[][] expectedInProgress = new long[][] {
+      { tx1.getTransactionId() },
+      { tx1.getTransactionId(), batch.get(0).getTransactionId() },
+      { tx1.getTransactionId(), batch.get(0).getTransactionId(), batch.get(1).getTransactionId() }
+    };
+    long previousId = tx1.getTransactionId();
+    for (int i = 0; i < batch.size(); i++) {
+      Transaction tx = batch.get(i);
+      Assert.assertTrue(tx.getTransactionId() > previousId);
+      previousId = tx.getTransactionId();
+      Assert.assertEquals(TransactionType.SHORT, tx.getType());
+      Assert.assertEquals(batch.get(0).getReadPointer(), tx.getReadPointer());
+      Assert.assertArrayEquals(expectedInProgress[i], tx.getInProgress());
+      Assert.assertEquals(tx1.getTransactionId() - 1, tx.getVisibilityUpperBound());
+      // a transaction is never in progress or excluded for itself
+      Assert.assertFalse(tx.isInProgress(tx.getTransactionId()));
+      Assert.assertFalse(tx.isExcluded(tx.getTransactionId()));
+      Assert.assertTrue(tx.isVisible(tx.getWritePointer()));
+    }
+
+    // transactions of the batch can commit independently, and conflict with each other
+    Assert.assertTrue(client.canCommit(batch.get(0), asList(C1)));
+    Assert.assertTrue(client.commit(batch.get(0)));
+    Assert.assertFalse(client.canCommit(batch.get(1), asList(C1)));
+    client.abort(batch.get(1));
+    Assert.assertTrue(client.canCommit(batch.get(2), asList(C2)));
+    Assert.assertTrue(client.commit(batch.get(2)));
+    client.abort(tx1);
+
+    Transaction tx2 = client.startShort();
+    Assert.assertEquals(0, tx2.getInProgress().length);
+    Assert.assertTrue(tx2.isVisible(batch.get(0).getWritePointer()));
+    Assert.assertTrue(tx2.isVisible(batch.get(2).getWritePointer()));
+    client.abort(tx2);
+  }
+
+  @Test
+  public void testReadOnly() throws Exception {
+    TransactionSystemClient client = getClient();
+    Transaction tx1 = client.startShort();
+    Assert.assertTrue(client.canCommit(tx1, asList(C1)));
+    Assert.assertTrue(client.commit(tx1));
+    Transaction tx2 = client.startShort();
+
+    Transaction readOnly = client.startReadOnly();
+    // sees the committed tx, but not the in-progress one
+    Assert.assertTrue(readOnly.isVisible(tx1.getWritePointer()));
+    Assert.assertTrue(readOnly.isExcluded(tx2.getWritePointer()));
+    Assert.assertFalse(readOnly.isVisible(tx2.getWritePointer()));
+    Assert.assertEquals(Long.MAX_VALUE, readOnly.getWritePointer());
+    Assert.assertTrue(readOnly.getVisibilityUpperBound() < tx2.getWritePointer());
+
+    // the read-only tx is not tracked by the transaction manager
+    Transaction tx3 = client.startShort();
+    Assert.assertArrayEquals(new long[] { tx2.getWritePointer() }, tx3.getInProgress());
+    try {
+      client.commit(readOnly);
+      Assert.fail();
+    } catch (TransactionNotInProgressException e) {
+      // expected
+    }
+    client.abort(tx2);
+    client.abort(tx3);
+  }
+
   @Test
   public void testGetInvalidSize() throws Exception {
     // Start few transactions and invalidate all of them
@@ -23,7 +23,9 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  *
@@ -119,6 +121,72 @@ public class TransactionTest {
                      visibleCurrent, notVisibleCurrent, tx);
   }
 
+  @Test
+  public void testExcludes() throws Exception {
+    Random random = new Random(42);
+    for (int run = 0; run < 100; run++) {
+      // overlapping ranges, possibly with values in both arrays
+      long[] invalids = randomSortedArray(random, random.nextInt(20), 1000);
+      long[] inProgress = randomSortedArray(random, random.nextInt(20), 1000);
+      long[] checkpoints = randomSortedArray(random, random.nextInt(3), 1000);
+      Transaction tx = new Transaction(500, 600, 700, invalids, inProgress, Transaction.NO_TX_IN_PROGRESS,
+                                       TransactionType.SHORT, checkpoints, Transaction.VisibilityLevel.SNAPSHOT);
+      for (long version = -1; version <= 1001; version++) {
+        boolean excluded = Arrays.binarySearch(invalids, version) >= 0 || Arrays.binarySearch(inProgress, version) >= 0;
+        boolean checkpoint = Arrays.binarySearch(checkpoints, version) >= 0;
+        Assert.assertEquals("version = " + version, excluded, tx.isExcluded(version));
+        Assert.assertEquals("version = " + version, checkpoint, tx.isCheckpoint(version));
+        boolean visible = (version <= 500 && !excluded) || version == 600 || version == 700 || checkpoint;
+        Assert.assertEquals("version = " + version, visible, tx.isVisible(version));
+      }
+    }
+  }
+
+  @Test
+  public void testNextVisibleCandidate() throws Exception {
+    Random random = new Random(42);
+    for (int run = 0; run < 100; run++) {
+      // dense excludes, so that there are runs of consecutive excluded versions
+      long[] invalids = randomSortedArray(random, random.nextInt(200), 1000);
+      long[] inProgress = randomSortedArray(random, random.nextInt(200), 1000);
+      long[] checkpoints = randomSortedArray(random, random.nextInt(3), 1000);
+      Transaction.VisibilityLevel level = run % 2 == 0 ?
+        Transaction.VisibilityLevel.SNAPSHOT : Transaction.VisibilityLevel.SNAPSHOT_EXCLUDE_CURRENT;
+      Transaction tx = new Transaction(500, 600, 700, invalids, inProgress, Transaction.NO_TX_IN_PROGRESS,
+                                       TransactionType.SHORT, checkpoints, level);
+      for (long version = 0; version <= 1001; version++) {
+        long candidate = tx.getNextVisibleCandidate(version);
+        Assert.assertTrue("version = " + version, candidate < version);
+        // no version that is skipped over may be visible
+        for (long skipped = Math.max(candidate + 1, 0); skipped < version; skipped++) {
+          Assert.assertFalse("version = " + version + ", skipped = " + skipped, tx.isVisible(skipped));
+        }
+      }
+    }
+
+    Transaction tx = new Transaction(100, 200, 250, new long[] { 50, 51, 52 }, new long[] { 53, 150 }, 150,
+                                     TransactionType.SHORT, new long[] { 220 }, Transaction.VisibilityLevel.SNAPSHOT);
+    // above the read pointer, only the writes of the current transaction may be visible
+    Assert.assertEquals(250, tx.getNextVisibleCandidate(300));
+    Assert.assertEquals(220, tx.getNextVisibleCandidate(250));
+    Assert.assertEquals(200, tx.getNextVisibleCandidate(220));
+    Assert.assertEquals(100, tx.getNextVisibleCandidate(200));
+    Assert.assertEquals(99, tx.getNextVisibleCandidate(100));
+    // runs of excluded versions are skipped
+    Assert.assertEquals(49, tx.getNextVisibleCandidate(54));
+    Assert.assertEquals(49, tx.getNextVisibleCandidate(52));
+    Assert.assertEquals(-1, new Transaction(100, 200, new long[] { 0, 1 }, new long[0], Transaction.NO_TX_IN_PROGRESS)
+      .getNextVisibleCandidate(2));
+  }
+
+  private long[] randomSortedArray(Random random, int size, int bound) {
+    Set<Long> values = new TreeSet<>();
+    while (values.size() < size) {
+      values.add((long) random.nextInt(bound));
+    }
+    return Longs.toArray(values);
+  }
+
   private void assertVisibility(Set<Long> priorCommitted, Set<Long> postCommitted, Set<Long> priorInvalids,
                                 Set<Long> postInvalids, Set<Long> priorInProgress, Set<Long> postInProgress,
                                 Set<Long> visibleCurrent, Set<Long> notVisibleCurrent,
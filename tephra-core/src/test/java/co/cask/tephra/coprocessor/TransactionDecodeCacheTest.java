@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.coprocessor;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionCodec;
+import co.cask.tephra.TransactionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests for {@link TransactionDecodeCache}.
+ */
+public class TransactionDecodeCacheTest {
+  private final TransactionCodec codec = new TransactionCodec();
+
+  @Test
+  public void testCaching() throws Exception {
+    TransactionDecodeCache cache = new TransactionDecodeCache(1024 * 1024);
+    Transaction tx = new Transaction(10, 25, 25, new long[] { 3, 7, 9 }, new long[] { 12, 20, 24 }, 12,
+                                     TransactionType.SHORT, new long[] { 24 }, Transaction.VisibilityLevel.SNAPSHOT);
+    byte[] encoded = codec.encode(tx);
+
+    Transaction decoded = cache.decode(encoded);
+    Assert.assertEquals(tx.getTransactionId(), decoded.getTransactionId());
+    Assert.assertEquals(tx.getWritePointer(), decoded.getWritePointer());
+    Assert.assertArrayEquals(tx.getInvalids(), decoded.getInvalids());
+    Assert.assertArrayEquals(tx.getInProgress(), decoded.getInProgress());
+
+    // equal encodings, as received with different operations, are decoded once
+    Assert.assertSame(decoded, cache.decode(encoded.clone()));
+    Assert.assertEquals(1, cache.getStats().hitCount());
+    Assert.assertEquals(1, cache.getStats().missCount());
+
+    // a different visibility level of the same transaction is a different entry
+    tx.setVisibility(Transaction.VisibilityLevel.SNAPSHOT_ALL);
+    Transaction decodedAll = cache.decode(codec.encode(tx));
+    Assert.assertNotSame(decoded, decodedAll);
+    Assert.assertEquals(Transaction.VisibilityLevel.SNAPSHOT_ALL, decodedAll.getVisibilityLevel());
+    Assert.assertEquals(Transaction.VisibilityLevel.SNAPSHOT, decoded.getVisibilityLevel());
+    Assert.assertEquals(2, cache.getStats().missCount());
+  }
+
+  @Test
+  public void testBounded() throws Exception {
+    long[] invalids = new long[1000];
+    for (int i = 0; i < invalids.length; i++) {
+      invalids[i] = i;
+    }
+    byte[] first = codec.encode(new Transaction(1000, 2000, invalids, new long[0], Transaction.NO_TX_IN_PROGRESS));
+    // room for a few of these transactions only
+    TransactionDecodeCache cache = new TransactionDecodeCache(first.length * 8);
+    Transaction decoded = cache.decode(first);
+    for (int i = 1; i <= 10; i++) {
+      cache.decode(codec.encode(new Transaction(1000, 2000 + i, invalids, new long[0], Transaction.NO_TX_IN_PROGRESS)));
+    }
+    Assert.assertTrue(cache.getStats().evictionCount() > 0);
+    Assert.assertNotSame(decoded, cache.decode(first));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    TransactionDecodeCache cache = new TransactionDecodeCache(0);
+    byte[] encoded = codec.encode(new Transaction(10, 25, new long[0], new long[0], Transaction.NO_TX_IN_PROGRESS));
+    Assert.assertNotSame(cache.decode(encoded), cache.decode(encoded));
+    Assert.assertNull(cache.getStats());
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidEncoding() throws Exception {
+    new TransactionDecodeCache(1024).decode(new byte[] { 1, 2, 3 });
+  }
+}
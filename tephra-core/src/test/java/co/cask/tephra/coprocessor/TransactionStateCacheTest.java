@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.coprocessor;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.TransactionType;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.distributed.TransactionService;
+import co.cask.tephra.metrics.TxMetricsCollector;
+import co.cask.tephra.persist.HDFSTransactionStateStorage;
+import co.cask.tephra.persist.TransactionSnapshot;
+import co.cask.tephra.persist.TransactionStateStorage;
+import co.cask.tephra.persist.TransactionVisibilityState;
+import co.cask.tephra.runtime.ConfigModule;
+import co.cask.tephra.runtime.DiscoveryModules;
+import co.cask.tephra.runtime.TransactionClientModule;
+import co.cask.tephra.runtime.TransactionModules;
+import co.cask.tephra.runtime.ZKModule;
+import co.cask.tephra.snapshot.SnapshotCodecProvider;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.twill.internal.zookeeper.InMemoryZKServer;
+import org.apache.twill.zookeeper.ZKClientService;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link TransactionStateCache}.
+ */
+public class TransactionStateCacheTest {
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testDummyTransaction() throws Exception {
+    TransactionStateCache cache = new TransactionStateCache();
+    TransactionVisibilityState state1 = createState(100, 50L, 60L);
+    Transaction tx1 = cache.getDummyTransaction(state1);
+    Assert.assertEquals(100, tx1.getReadPointer());
+    Assert.assertArrayEquals(new long[] { 50, 60 }, tx1.getInvalids());
+    Assert.assertArrayEquals(new long[] { 90 }, tx1.getInProgress());
+    Assert.assertEquals(89, tx1.getVisibilityUpperBound());
+    // the transaction is shared for the same state
+    Assert.assertSame(tx1, cache.getDummyTransaction(state1));
+
+    // and recreated for a new state
+    TransactionVisibilityState state2 = createState(110, 50L);
+    Transaction tx2 = cache.getDummyTransaction(state2);
+    Assert.assertEquals(110, tx2.getReadPointer());
+    Assert.assertArrayEquals(new long[] { 50 }, tx2.getInvalids());
+    Assert.assertSame(tx2, cache.getDummyTransaction(state2));
+  }
+
+  @Test
+  public void testFetchState() throws Exception {
+    InMemoryZKServer zkServer = InMemoryZKServer.builder().setDataDir(tmpFolder.newFolder()).build();
+    zkServer.startAndWait();
+    try {
+      final Configuration conf = new Configuration();
+      conf.setBoolean(TxConstants.Manager.CFG_DO_PERSIST, false);
+      conf.set(TxConstants.Service.CFG_DATA_TX_ZOOKEEPER_QUORUM, zkServer.getConnectionStr());
+      conf.set(TxConstants.Service.CFG_DATA_TX_CLIENT_RETRY_STRATEGY, "n-times");
+      conf.setInt(TxConstants.Service.CFG_DATA_TX_CLIENT_ATTEMPTS, 1);
+      conf.set(TxConstants.Manager.CFG_TX_SNAPSHOT_DIR, tmpFolder.newFolder().getAbsolutePath());
+      conf.setBoolean(TxConstants.Coprocessor.CFG_TX_STATE_FETCH_ENABLED, true);
+      conf.setLong(TxConstants.Coprocessor.CFG_TX_STATE_FETCH_INTERVAL, 1);
+
+      Injector injector = Guice.createInjector(
+        new ConfigModule(conf),
+        new ZKModule(),
+        new DiscoveryModules().getDistributedModules(),
+        new TransactionModules().getDistributedModules(),
+        new TransactionClientModule()
+      );
+      ZKClientService zkClient = injector.getInstance(ZKClientService.class);
+      zkClient.startAndWait();
+      TransactionService txService = injector.getInstance(TransactionService.class);
+      txService.startAndWait();
+      TransactionSystemClient txClient = injector.getInstance(TransactionSystemClient.class);
+
+      // a snapshot that is older than any fetched state, it must not replace the fetched state
+      TransactionStateStorage snapshotStorage =
+        new HDFSTransactionStateStorage(conf, new SnapshotCodecProvider(conf), new TxMetricsCollector());
+      snapshotStorage.startAndWait();
+      snapshotStorage.writeSnapshot(new TransactionSnapshot(
+        System.currentTimeMillis() - 60000, 1, 2, Collections.<Long>emptyList(),
+        Maps.<Long, TransactionManager.InProgressTx>newTreeMap()));
+      snapshotStorage.stopAndWait();
+
+      Transaction tx1 = txClient.startShort();
+      Transaction tx2 = txClient.startShort();
+      Assert.assertTrue(txClient.invalidate(tx1.getTransactionId()));
+
+      TransactionStateCache cache = new TransactionStateCache() {
+        @Override
+        protected Configuration getSnapshotConfiguration() {
+          return conf;
+        }
+      };
+      cache.startAndWait();
+      try {
+        TransactionVisibilityState state = cache.getLatestState();
+        Assert.assertNotNull(state);
+        Assert.assertEquals(ImmutableList.of(tx1.getTransactionId()), ImmutableList.copyOf(state.getInvalid()));
+        Assert.assertEquals(ImmutableList.of(tx2.getTransactionId()),
+                            ImmutableList.copyOf(state.getInProgress().keySet()));
+
+        // changes are fetched by the refresh thread
+        Assert.assertTrue(txClient.commit(tx2));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (cache.getLatestState().getReadPointer() != tx2.getTransactionId()
+          && System.currentTimeMillis() < deadline) {
+          TimeUnit.MILLISECONDS.sleep(100);
+        }
+        state = cache.getLatestState();
+        Assert.assertEquals(tx2.getTransactionId(), state.getReadPointer());
+        Assert.assertTrue(state.getInProgress().isEmpty());
+        Assert.assertEquals(ImmutableList.of(tx1.getTransactionId()), ImmutableList.copyOf(state.getInvalid()));
+
+        // if the tx service is not available, the older snapshot does not replace the fetched state
+        txService.stopAndWait();
+        TimeUnit.SECONDS.sleep(5);
+        Assert.assertEquals(tx2.getTransactionId(), cache.getLatestState().getReadPointer());
+      } finally {
+        cache.stopAndWait();
+        zkClient.stopAndWait();
+      }
+    } finally {
+      zkServer.stopAndWait();
+    }
+  }
+
+  private static TransactionVisibilityState createState(long readPointer, Long... invalid) {
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    inProgress.put(90L, new TransactionManager.InProgressTx(89, Long.MAX_VALUE, TransactionType.SHORT));
+    return new TransactionSnapshot(System.currentTimeMillis(), readPointer, readPointer + 10,
+                                   ImmutableList.copyOf(invalid), inProgress);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.inmemory.InMemoryTxSystemClient;
+import co.cask.tephra.metrics.TxMetricsCollector;
+import co.cask.tephra.persist.InMemoryTransactionStateStorage;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link CoalescingTransactionSystemClient}.
+ */
+public class CoalescingTransactionSystemClientTest {
+
+  private static final int THREADS = 8;
+  private static final int STARTS_PER_THREAD = 50;
+
+  private TransactionManager txManager;
+  private CountingTxSystemClient delegate;
+
+  @Before
+  public void before() {
+    Configuration conf = new Configuration();
+    conf.setInt(TxConstants.Manager.CFG_TX_CLEANUP_INTERVAL, 0);
+    txManager = new TransactionManager(conf, new InMemoryTransactionStateStorage(), new TxMetricsCollector());
+    txManager.startAndWait();
+    delegate = new CountingTxSystemClient(txManager);
+  }
+
+  @After
+  public void after() {
+    txManager.stopAndWait();
+  }
+
+  @Test
+  public void testConcurrentStarts() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(TxConstants.Service.CFG_DATA_TX_CLIENT_COALESCE_WINDOW_US, 2000);
+    conf.setInt(TxConstants.Service.CFG_DATA_TX_CLIENT_COALESCE_MAX_BATCH, 4);
+    final TransactionSystemClient client =
+      new CoalescingTransactionSystemClient(delegate, conf, new TxMetricsCollector());
+
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<Transaction>>> futures = Lists.newArrayList();
+      for (int i = 0; i < THREADS; i++) {
+        final int timeout = i % 2 == 0 ? 30 : 60;
+        futures.add(executor.submit(new Callable<List<Transaction>>() {
+          @Override
+          public List<Transaction> call() throws Exception {
+            startLatch.await();
+            List<Transaction> started = Lists.newArrayList();
+            for (int j = 0; j < STARTS_PER_THREAD; j++) {
+              started.add(client.startShort(timeout));
+            }
+            return started;
+          }
+        }));
+      }
+      startLatch.countDown();
+
+      Set<Long> ids = Sets.newHashSet();
+      for (Future<List<Transaction>> future : futures) {
+        for (Transaction tx : future.get()) {
+          Assert.assertTrue(ids.add(tx.getTransactionId()));
+        }
+      }
+      Assert.assertEquals(THREADS * STARTS_PER_THREAD, ids.size());
+      Assert.assertEquals(THREADS * STARTS_PER_THREAD, txManager.getCurrentState().getInProgress().size());
+      // concurrent requests must have been combined into fewer calls
+      Assert.assertTrue(delegate.batchCalls.get() > 0);
+      Assert.assertTrue(delegate.batchCalls.get() + delegate.singleCalls.get() < THREADS * STARTS_PER_THREAD);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSingleStart() throws Exception {
+    TransactionSystemClient client =
+      new CoalescingTransactionSystemClient(delegate, new Configuration(), new TxMetricsCollector());
+    Transaction tx = client.startShort();
+    Assert.assertTrue(client.commit(tx));
+    Assert.assertEquals(1, delegate.singleCalls.get());
+    Assert.assertEquals(0, delegate.batchCalls.get());
+  }
+
+  @Test
+  public void testFailedStart() throws Exception {
+    TransactionSystemClient client =
+      new CoalescingTransactionSystemClient(delegate, new Configuration(), new TxMetricsCollector());
+    try {
+      client.startShort(-1);
+      Assert.fail("Expected start with negative timeout to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    // a failed batch does not affect later requests
+    Assert.assertNotNull(client.startShort(10));
+  }
+
+  /**
+   * Counts the calls to start short transactions.
+   */
+  private static final class CountingTxSystemClient extends InMemoryTxSystemClient {
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+
+    private CountingTxSystemClient(TransactionManager txManager) {
+      super(txManager);
+    }
+
+    @Override
+    public Transaction startShort(int timeout) {
+      singleCalls.incrementAndGet();
+      return super.startShort(timeout);
+    }
+
+    @Override
+    public List<Transaction> startShortBatch(int count, int timeout) {
+      batchCalls.incrementAndGet();
+      return super.startShortBatch(count, timeout);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionType;
+import co.cask.tephra.distributed.thrift.TTransaction;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EncodedTTransaction}.
+ */
+public class EncodedTTransactionTest {
+
+  @Test
+  public void testSameEncoding() throws Exception {
+    Transaction tx = new Transaction(10, 25, 25, new long[] { 3, 7, 9 }, new long[] { 12, 20, 24 }, 12,
+                                     TransactionType.SHORT, new long[] { 26, 27 },
+                                     Transaction.VisibilityLevel.SNAPSHOT_EXCLUDE_CURRENT);
+    TTransaction encoded = TransactionConverterUtils.wrap(tx);
+    TTransaction plain = new TTransaction(encoded);
+    Assert.assertEquals(TTransaction.class, plain.getClass());
+
+    // binary protocol output is identical to the generated code's
+    TSerializer serializer = new TSerializer();
+    byte[] bytes = serializer.serialize(encoded);
+    Assert.assertArrayEquals(serializer.serialize(plain), bytes);
+    TTransaction decoded = new TTransaction();
+    new TDeserializer().deserialize(decoded, bytes);
+    Assert.assertEquals(plain, decoded);
+    Transaction unwrapped = TransactionConverterUtils.unwrap(decoded);
+    Assert.assertEquals(tx.getTransactionId(), unwrapped.getTransactionId());
+    Assert.assertArrayEquals(tx.getInvalids(), unwrapped.getInvalids());
+    Assert.assertArrayEquals(tx.getInProgress(), unwrapped.getInProgress());
+    Assert.assertArrayEquals(tx.getCheckpointWritePointers(), unwrapped.getCheckpointWritePointers());
+
+    // other protocols use the generated code
+    TSerializer compactSerializer = new TSerializer(new TCompactProtocol.Factory());
+    Assert.assertArrayEquals(compactSerializer.serialize(plain), compactSerializer.serialize(encoded));
+
+    // a replaced field is not written from the stale encoding
+    encoded.setInvalids(null);
+    decoded = new TTransaction();
+    new TDeserializer().deserialize(decoded, serializer.serialize(encoded));
+    Assert.assertNull(decoded.getInvalids());
+  }
+
+  @Test
+  public void testSharedEncoding() throws Exception {
+    long[] invalids = { 1, 2 };
+    long[] inProgress = { 5 };
+    Transaction tx1 = new Transaction(4, 6, invalids, inProgress, 5);
+    Transaction tx2 = new Transaction(4, 7, invalids, inProgress, 5);
+    // equal, but not the same array
+    Transaction tx3 = new Transaction(4, 8, invalids, new long[] { 5 }, 5);
+
+    EncodedExcludes excludes = new EncodedExcludes(invalids, inProgress);
+    EncodedTTransaction encoded1 = (EncodedTTransaction) TransactionConverterUtils.wrap(tx1, excludes);
+    EncodedTTransaction encoded2 = (EncodedTTransaction) TransactionConverterUtils.wrap(tx2, excludes);
+    // the excludes were not encoded for this transaction, it must not use them
+    EncodedTTransaction encoded3 = (EncodedTTransaction) TransactionConverterUtils.wrap(tx3, excludes);
+    Assert.assertTrue(encoded1.sharesInvalids(encoded2));
+    Assert.assertTrue(encoded1.sharesInProgress(encoded2));
+    Assert.assertFalse(encoded2.sharesInvalids(encoded3));
+    Assert.assertFalse(encoded2.sharesInProgress(encoded3));
+    // without excludes, nothing is shared
+    Assert.assertFalse(encoded1.sharesInvalids((EncodedTTransaction) TransactionConverterUtils.wrap(tx1)));
+
+    // the invalid list encoding carries over to the next in-progress list
+    EncodedExcludes next = excludes.withInProgress(tx3.getInProgress());
+    EncodedTTransaction encoded4 = (EncodedTTransaction) TransactionConverterUtils.wrap(tx3, next);
+    Assert.assertTrue(encoded1.sharesInvalids(encoded4));
+    Assert.assertFalse(encoded1.sharesInProgress(encoded4));
+
+    TSerializer serializer = new TSerializer();
+    for (EncodedTTransaction encoded : new EncodedTTransaction[] { encoded1, encoded2, encoded3, encoded4 }) {
+      TTransaction decoded = new TTransaction();
+      new TDeserializer().deserialize(decoded, serializer.serialize(encoded));
+      Assert.assertEquals(new TTransaction(encoded), decoded);
+    }
+  }
+}
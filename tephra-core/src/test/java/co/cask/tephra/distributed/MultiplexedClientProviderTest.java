@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionNotInProgressException;
+import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.persist.InMemoryTransactionStateStorage;
+import co.cask.tephra.persist.TransactionStateStorage;
+import co.cask.tephra.runtime.ConfigModule;
+import co.cask.tephra.runtime.DiscoveryModules;
+import co.cask.tephra.runtime.TransactionClientModule;
+import co.cask.tephra.runtime.TransactionModules;
+import co.cask.tephra.runtime.ZKModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import com.google.inject.util.Modules;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransportException;
+import org.apache.twill.internal.zookeeper.InMemoryZKServer;
+import org.apache.twill.zookeeper.ZKClientService;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the "multiplexed" client provider against a running transaction service.
+ */
+public class MultiplexedClientProviderTest {
+
+  private static final int THREADS = 32;
+  private static final int TX_PER_THREAD = 50;
+
+  private static InMemoryZKServer zkServer;
+  private static ZKClientService zkClientService;
+  private static TransactionService txService;
+  private static TransactionStateStorage storage;
+  private static TransactionSystemClient txClient;
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void start() throws Exception {
+    zkServer = InMemoryZKServer.builder().setDataDir(tmpFolder.newFolder()).build();
+    zkServer.startAndWait();
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(TxConstants.Manager.CFG_DO_PERSIST, false);
+    conf.set(TxConstants.Service.CFG_DATA_TX_ZOOKEEPER_QUORUM, zkServer.getConnectionStr());
+    conf.set(TxConstants.Service.CFG_DATA_TX_CLIENT_RETRY_STRATEGY, "n-times");
+    conf.setInt(TxConstants.Service.CFG_DATA_TX_CLIENT_ATTEMPTS, 1);
+    conf.set(TxConstants.Service.CFG_DATA_TX_CLIENT_PROVIDER, "multiplexed");
+    conf.setInt(TxConstants.Service.CFG_DATA_TX_CLIENT_CONNECTIONS, 1);
+
+    Injector injector = Guice.createInjector(
+      new ConfigModule(conf),
+      new ZKModule(),
+      new DiscoveryModules().getDistributedModules(),
+      Modules.override(new TransactionModules().getDistributedModules())
+        .with(new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(TransactionStateStorage.class).to(InMemoryTransactionStateStorage.class).in(Scopes.SINGLETON);
+          }
+        }),
+      new TransactionClientModule()
+    );
+
+    zkClientService = injector.getInstance(ZKClientService.class);
+    zkClientService.startAndWait();
+
+    txService = injector.getInstance(TransactionService.class);
+    storage = injector.getInstance(TransactionStateStorage.class);
+    txClient = injector.getInstance(TransactionSystemClient.class);
+    txService.startAndWait();
+  }
+
+  @AfterClass
+  public static void stop() throws Exception {
+    txService.stopAndWait();
+    storage.stopAndWait();
+    zkClientService.stopAndWait();
+    zkServer.stopAndWait();
+  }
+
+  @Test
+  public void testConcurrentCalls() throws Exception {
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<Long>>> futures = Lists.newArrayList();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(new Callable<List<Long>>() {
+          @Override
+          public List<Long> call() throws Exception {
+            startLatch.await();
+            List<Long> ids = Lists.newArrayList();
+            for (int j = 0; j < TX_PER_THREAD; j++) {
+              Transaction tx = txClient.startShort();
+              byte[] change = Long.toString(tx.getTransactionId()).getBytes();
+              Assert.assertTrue(txClient.canCommit(tx, ImmutableList.of(change)));
+              Assert.assertTrue(txClient.commit(tx));
+              ids.add(tx.getTransactionId());
+            }
+            return ids;
+          }
+        }));
+      }
+      startLatch.countDown();
+
+      Set<Long> ids = Sets.newHashSet();
+      for (Future<List<Long>> future : futures) {
+        ids.addAll(future.get());
+      }
+      Assert.assertEquals(THREADS * TX_PER_THREAD, ids.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testExceptionResponse() throws Exception {
+    Transaction tx = txClient.startShort();
+    txClient.abort(tx);
+    try {
+      txClient.commit(tx);
+      Assert.fail("Expected commit of an aborted transaction to fail");
+    } catch (TransactionNotInProgressException e) {
+      // expected
+    }
+    // the shared connection is still usable after an exception response
+    Transaction tx2 = txClient.startShort();
+    Assert.assertTrue(txClient.commit(tx2));
+  }
+
+  @Test
+  public void testTimeoutFailsConnection() throws Exception {
+    // a server that accepts the connection but never responds, like the peer of a half-open socket
+    ServerSocket serverSocket = new ServerSocket(0);
+    try {
+      TSocket socket = new TSocket("localhost", serverSocket.getLocalPort());
+      socket.open();
+      Socket accepted = serverSocket.accept();
+      MultiplexedConnection connection = new MultiplexedConnection(socket, "test");
+      try {
+        TMemoryBuffer buffer = new TMemoryBuffer(64);
+        new TBinaryProtocol(buffer).writeMessageBegin(new TMessage("startShort", TMessageType.CALL, 1));
+        try {
+          connection.call(buffer.getArray(), buffer.length(), 100);
+          Assert.fail("Expected the call to time out");
+        } catch (TTransportException e) {
+          Assert.assertEquals(TTransportException.TIMED_OUT, e.getType());
+        }
+        // the connection must not be reused after a call timed out
+        Assert.assertFalse(connection.isOpen());
+      } finally {
+        connection.close();
+        accepted.close();
+      }
+    } finally {
+      serverSocket.close();
+    }
+  }
+}
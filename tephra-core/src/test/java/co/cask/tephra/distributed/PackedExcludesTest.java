@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.distributed;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionType;
+import co.cask.tephra.distributed.thrift.TTransaction;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link PackedExcludes} and the packed form of thrift transactions.
+ */
+public class PackedExcludesTest {
+
+  @Test
+  public void testEncodeDecode() {
+    long[][] lists = {
+      { },
+      { 0 },
+      { 1, 2, 3, 1000, 1001 },
+      { 1462391012345000000L, 1462391012345000001L, 1462391012399000000L },
+      // unsorted and negative values are preserved as well
+      { 42, 7, -3, Long.MAX_VALUE, Long.MIN_VALUE, 0 }
+    };
+    for (long[] list : lists) {
+      ByteBuffer buf = ByteBuffer.wrap(PackedExcludes.encode(list));
+      Assert.assertArrayEquals(list, PackedExcludes.decode(buf));
+      Assert.assertFalse(buf.hasRemaining());
+    }
+
+    // nearby transaction ids take much less than eight bytes each
+    long[] ids = new long[1000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = 1462391012345000000L + i * 1000;
+    }
+    Assert.assertTrue(PackedExcludes.encode(ids).length < 3 * ids.length + 16);
+
+    ByteBuffer packed = PackedExcludes.pack(PackedExcludes.encode(lists[2]), PackedExcludes.encode(lists[4]));
+    Assert.assertArrayEquals(lists[2], PackedExcludes.decode(packed));
+    Assert.assertArrayEquals(lists[4], PackedExcludes.decode(packed));
+    Assert.assertFalse(packed.hasRemaining());
+  }
+
+  @Test
+  public void testInvalidData() {
+    byte[] encoded = PackedExcludes.encode(new long[] { 1, 2, 3 });
+    // truncated
+    assertInvalid(ByteBuffer.wrap(encoded, 0, encoded.length - 1));
+    // size larger than the remaining bytes
+    assertInvalid(ByteBuffer.wrap(new byte[] { 20, 1, 1 }));
+    // unterminated variable length integer
+    assertInvalid(ByteBuffer.wrap(new byte[] { (byte) 0x80, (byte) 0x80 }));
+  }
+
+  @Test
+  public void testPackedTransaction() throws Exception {
+    Transaction tx = new Transaction(10, 25, 25, new long[] { 3, 7, 9 }, new long[] { 12, 20, 24 }, 12,
+                                     TransactionType.SHORT, new long[] { 26, 27 },
+                                     Transaction.VisibilityLevel.SNAPSHOT_EXCLUDE_CURRENT);
+    TTransaction packed = TransactionConverterUtils.wrapPacked(tx);
+    Assert.assertNull(packed.getInvalids());
+    Assert.assertNull(packed.getInProgress());
+    Assert.assertTrue(packed.isSetPackedExcludes());
+
+    byte[] bytes = new TSerializer().serialize(packed);
+    Assert.assertTrue(bytes.length < new TSerializer().serialize(TransactionConverterUtils.wrap(tx)).length);
+    TTransaction decoded = new TTransaction();
+    new TDeserializer().deserialize(decoded, bytes);
+    assertTransactionEquals(tx, TransactionConverterUtils.unwrap(decoded));
+    // unwrapping does not consume the packed field
+    assertTransactionEquals(tx, TransactionConverterUtils.unwrap(decoded));
+    assertTransactionEquals(tx, TransactionConverterUtils.read(newProtocol(bytes)));
+  }
+
+  @Test
+  public void testPackedSupportResetOnTransportFailure() throws Exception {
+    Transaction tx = new Transaction(10, 25, new long[] { 3 }, new long[] { 12 }, 12);
+    AtomicReference<Boolean> packedSupport = new AtomicReference<>(true);
+    // a transport that accepts the request but has no response to read, like a connection to a failed server
+    TTransport transport = new TIOStreamTransport(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+    TransactionServiceThriftClient client = new TransactionServiceThriftClient(transport, packedSupport);
+    try {
+      client.commit(tx);
+      Assert.fail("Expected the commit to fail");
+    } catch (TTransportException e) {
+      // expected
+    }
+    Assert.assertFalse(client.isValid());
+    // the next connection may be to a different server, which must be probed again
+    Assert.assertNull(packedSupport.get());
+  }
+
+  @Test
+  public void testDirectRead() throws Exception {
+    Transaction tx = new Transaction(10, 25, 25, new long[] { 3, 7, 9 }, new long[] { }, 12,
+                                     TransactionType.LONG, new long[] { 26 },
+                                     Transaction.VisibilityLevel.SNAPSHOT_ALL);
+    TSerializer serializer = new TSerializer();
+    assertTransactionEquals(tx, TransactionConverterUtils.read(
+      newProtocol(serializer.serialize(TransactionConverterUtils.wrap(tx)))));
+
+    // optional fields that are not set, as written by older clients
+    TTransaction old = new TTransaction(TransactionConverterUtils.wrap(tx));
+    old.setType(null);
+    old.setCheckpointWritePointers(null);
+    old.setVisibilityLevel(null);
+    Transaction expected = TransactionConverterUtils.unwrap(old);
+    assertTransactionEquals(expected, TransactionConverterUtils.read(newProtocol(serializer.serialize(old))));
+  }
+
+  private static TBinaryProtocol newProtocol(byte[] bytes) {
+    return new TBinaryProtocol(new TMemoryInputTransport(bytes));
+  }
+
+  private static void assertInvalid(ByteBuffer buf) {
+    try {
+      PackedExcludes.decode(buf);
+      Assert.fail("Expected decoding to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static void assertTransactionEquals(Transaction expected, Transaction actual) {
+    Assert.assertEquals(expected.getTransactionId(), actual.getTransactionId());
+    Assert.assertEquals(expected.getReadPointer(), actual.getReadPointer());
+    Assert.assertEquals(expected.getWritePointer(), actual.getWritePointer());
+    Assert.assertEquals(expected.getFirstShortInProgress(), actual.getFirstShortInProgress());
+    Assert.assertEquals(expected.getType(), actual.getType());
+    Assert.assertEquals(expected.getVisibilityLevel(), actual.getVisibilityLevel());
+    Assert.assertArrayEquals(expected.getInvalids(), actual.getInvalids());
+    Assert.assertArrayEquals(expected.getInProgress(), actual.getInProgress());
+    Assert.assertArrayEquals(expected.getCheckpointWritePointers(), actual.getCheckpointWritePointers());
+  }
+}
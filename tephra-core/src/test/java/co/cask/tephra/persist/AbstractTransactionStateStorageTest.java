@@ -23,6 +23,7 @@ import co.cask.tephra.TransactionType;
 import co.cask.tephra.TxConstants;
 import co.cask.tephra.metrics.TxMetricsCollector;
 import co.cask.tephra.util.TransactionEditUtil;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -43,6 +44,10 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
@@ -116,6 +121,63 @@ public abstract class AbstractTransactionStateStorageTest {
     }
   }
 
+  @Test
+  public void testPipelinedLogWriteAndRead() throws Exception {
+    Configuration conf = getConfiguration("testPipelinedLogWriteAndRead");
+    conf.setBoolean(TxConstants.TransactionLog.CFG_TX_LOG_PIPELINED, true);
+    conf.setInt(TxConstants.TransactionLog.CFG_TX_LOG_BATCH_SIZE, 10);
+    conf.setInt(TxConstants.TransactionLog.CFG_TX_LOG_QUEUE_SIZE, 5);
+
+    // create some random entries, to be appended concurrently
+    int numThreads = 4;
+    final List<TransactionEdit> edits = TransactionEditUtil.createRandomEdits(400);
+    TransactionStateStorage storage = getStorage(conf);
+    try {
+      long now = System.currentTimeMillis();
+      storage.startAndWait();
+      final TransactionLog log = storage.createLog(now);
+      ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+      List<Future<?>> futures = Lists.newArrayList();
+      final int editsPerThread = edits.size() / numThreads;
+      for (int t = 0; t < numThreads; t++) {
+        final List<TransactionEdit> threadEdits = edits.subList(t * editsPerThread, (t + 1) * editsPerThread);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            // mix single and batch appends
+            for (int i = 0; i < threadEdits.size(); i += 5) {
+              log.append(threadEdits.get(i));
+              log.append(threadEdits.subList(i + 1, i + 5));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+      log.close();
+
+      Collection<TransactionLog> logsToRead = storage.getLogsSince(now);
+      assertNotNull(logsToRead);
+      assertEquals(1, logsToRead.size());
+      TransactionLogReader logReader = logsToRead.iterator().next().getReader();
+      assertNotNull(logReader);
+
+      List<TransactionEdit> readEdits = Lists.newArrayListWithExpectedSize(edits.size());
+      TransactionEdit nextEdit;
+      while ((nextEdit = logReader.next()) != null) {
+        readEdits.add(nextEdit);
+      }
+      logReader.close();
+      assertEquals(edits.size(), readEdits.size());
+      assertEquals(HashMultiset.create(edits), HashMultiset.create(readEdits));
+    } finally {
+      storage.stopAndWait();
+    }
+  }
+
   @Test
   public void testTransactionManagerPersistence() throws Exception {
     Configuration conf = getConfiguration("testTransactionManagerPersistence");
@@ -16,17 +16,35 @@
 
 package co.cask.tephra.persist;
 
+import co.cask.tephra.ChangeId;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionType;
 import co.cask.tephra.TxConstants;
 import co.cask.tephra.metrics.TxMetricsCollector;
 import co.cask.tephra.snapshot.SnapshotCodecProvider;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -67,4 +85,67 @@ public class HDFSTransactionStateStorageTest extends AbstractTransactionStateSto
   protected AbstractTransactionStateStorage getStorage(Configuration conf) {
     return new HDFSTransactionStateStorage(conf, new SnapshotCodecProvider(conf), new TxMetricsCollector());
   }
+
+  @Test
+  public void testVisibilityStateFile() throws Exception {
+    Configuration conf = getConfiguration("testVisibilityStateFile");
+    conf.setInt(TxConstants.Manager.CFG_TX_VISIBILITY_STATE_RETAIN, 2);
+    FileSystem fs = dfsCluster.getFileSystem();
+    Path snapshotDir = new Path(conf.get(TxConstants.Manager.CFG_TX_SNAPSHOT_DIR));
+    TransactionStateStorage storage = getStorage(conf);
+    try {
+      storage.startAndWait();
+      long now = System.currentTimeMillis();
+      for (long timestamp = now; timestamp < now + 4; timestamp++) {
+        storage.writeSnapshot(createSnapshot(timestamp));
+      }
+
+      // the visibility state is written to a smaller file alongside each snapshot
+      Path visibilityFile = new Path(snapshotDir, "visibility." + (now + 3));
+      Path snapshotFile = new Path(snapshotDir, "snapshot." + (now + 3));
+      assertTrue(fs.exists(visibilityFile));
+      assertTrue(fs.getFileStatus(visibilityFile).getLen() < fs.getFileStatus(snapshotFile).getLen());
+      TransactionSnapshot expected = createSnapshot(now + 3);
+      assertVisibilityStateEquals(expected, storage.getLatestTransactionVisibilityState());
+
+      // visibility state files are retained independently of the snapshots
+      assertEquals(now, storage.deleteOldSnapshots(10));
+      assertEquals(4, storage.listSnapshots().size());
+      assertEquals(2, fs.listStatus(snapshotDir, new PathFilter() {
+        @Override
+        public boolean accept(Path path) {
+          return path.getName().startsWith("visibility.");
+        }
+      }).length);
+
+      // if the visibility state of the latest snapshot is missing, it is read from the snapshot itself
+      fs.delete(visibilityFile, false);
+      assertVisibilityStateEquals(expected, storage.getLatestTransactionVisibilityState());
+    } finally {
+      storage.stopAndWait();
+    }
+  }
+
+  private static TransactionSnapshot createSnapshot(long timestamp) {
+    long readPointer = timestamp * 10;
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    inProgress.put(readPointer + 1, new TransactionManager.InProgressTx(readPointer, timestamp + 30000,
+                                                                        TransactionType.SHORT));
+    Map<Long, Set<ChangeId>> committed = Maps.newTreeMap();
+    for (long txId = readPointer - 100; txId < readPointer; txId++) {
+      committed.put(txId, Collections.singleton(new ChangeId(Longs.toByteArray(txId))));
+    }
+    return new TransactionSnapshot(timestamp, readPointer, readPointer + 2, Lists.newArrayList(readPointer - 200),
+                                   inProgress, Collections.<Long, Set<ChangeId>>emptyMap(), committed);
+  }
+
+  private static void assertVisibilityStateEquals(TransactionVisibilityState expected,
+                                                  TransactionVisibilityState actual) {
+    assertNotNull(actual);
+    assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    assertEquals(expected.getReadPointer(), actual.getReadPointer());
+    assertEquals(expected.getWritePointer(), actual.getWritePointer());
+    assertEquals(expected.getInvalid(), actual.getInvalid());
+    assertEquals(expected.getInProgress(), actual.getInProgress());
+  }
 }
@@ -29,15 +29,21 @@ import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
@@ -210,6 +216,79 @@ public class LocalTransactionStateStorageTest extends AbstractTransactionStateSt
     }
   }
 
+  @Test
+  public void testLogFraming() throws Exception {
+    File dir = tmpDir.newFolder("testLogFraming");
+    Configuration conf = new Configuration();
+    // small segments, so that the log grows several times
+    conf.setLong(TxConstants.TransactionLog.CFG_TX_LOG_LOCAL_SEGMENT_SIZE, 64 * 1024);
+    File logFile = new File(dir, "txlog.1");
+    LocalFileTransactionLog log = new LocalFileTransactionLog(logFile, 1, new TxMetricsCollector(), conf);
+    List<TransactionEdit> edits = Lists.newArrayList();
+    for (int i = 0; i < 10000; i++) {
+      edits.add(TransactionEdit.createStarted(i, i - 1, 1000 + i, TransactionType.SHORT));
+      if (i % 100 == 99) {
+        log.append(edits.subList(i - 99, i + 1));
+      }
+    }
+
+    // while the log is open, the file contains the preallocated space after the last record
+    Assert.assertTrue(logFile.length() > 64 * 1024);
+    Assert.assertEquals(0, logFile.length() % (64 * 1024));
+    Assert.assertEquals(edits, readEdits(log));
+
+    log.close();
+    Assert.assertEquals(edits, readEdits(log));
+
+    // a torn last record is ignored
+    long length = logFile.length();
+    try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+      file.setLength(length - 5);
+    }
+    Assert.assertEquals(edits.subList(0, 9900), readEdits(log));
+
+    // a last record that does not match its checksum is ignored
+    try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+      file.setLength(length);
+      file.seek(length - 5);
+      file.write(1);
+    }
+    Assert.assertEquals(edits.subList(0, 9900), readEdits(log));
+  }
+
+  @Test
+  public void testUnframedLog() throws Exception {
+    // logs written by earlier versions contain the entries without framing
+    File logFile = new File(tmpDir.newFolder("testUnframedLog"), "txlog.1");
+    List<TransactionEdit> edits = Lists.newArrayList();
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(logFile))) {
+      for (int i = 0; i < 100; i++) {
+        TransactionEdit edit = TransactionEdit.createCommitting(i, Collections.<ChangeId>emptySet());
+        new AbstractTransactionLog.Entry(new LongWritable(i), edit).write(out);
+        edits.add(edit);
+      }
+    }
+    Assert.assertEquals(edits, readEdits(new LocalFileTransactionLog(logFile, 1, new TxMetricsCollector())));
+
+    File emptyFile = new File(logFile.getParentFile(), "txlog.2");
+    Assert.assertTrue(emptyFile.createNewFile());
+    Assert.assertTrue(readEdits(new LocalFileTransactionLog(emptyFile, 2, new TxMetricsCollector())).isEmpty());
+  }
+
+  private List<TransactionEdit> readEdits(TransactionLog log) throws IOException {
+    List<TransactionEdit> edits = Lists.newArrayList();
+    TransactionLogReader reader = log.getReader();
+    try {
+      TransactionEdit edit;
+      while ((edit = reader.next()) != null) {
+        edits.add(edit);
+      }
+    } finally {
+      reader.close();
+    }
+    return edits;
+  }
+
   private void verifyInProgress(TransactionManager.InProgressTx inProgressTx, TransactionType type,
                                 long expiration) throws Exception {
     Assert.assertEquals(type, inProgressTx.getType());
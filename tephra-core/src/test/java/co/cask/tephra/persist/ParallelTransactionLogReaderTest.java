@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.persist;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tests for {@link ParallelTransactionLogReader}.
+ */
+public class ParallelTransactionLogReaderTest {
+
+  @Test
+  public void testEditOrder() throws Exception {
+    List<TransactionLog> logs = Lists.newArrayList();
+    long writePointer = 0;
+    for (int i = 0; i < 10; i++) {
+      InMemoryTransactionStateStorage.InMemoryTransactionLog log =
+        new InMemoryTransactionStateStorage.InMemoryTransactionLog(i);
+      // include empty logs, and logs that are not a multiple of the batch size
+      for (int j = 0; j < i * 7; j++) {
+        log.append(TransactionEdit.createInvalid(++writePointer));
+      }
+      logs.add(log);
+    }
+
+    // small batches and queues, so that the decoding threads have to wait for the reader
+    ParallelTransactionLogReader logReader = new ParallelTransactionLogReader(logs, 3, 5, 2);
+    try {
+      long expected = 0;
+      for (int i = 0; i < logs.size(); i++) {
+        TransactionLogReader reader = logReader.nextReader();
+        Assert.assertNotNull(reader);
+        int editCnt = 0;
+        TransactionEdit edit;
+        while ((edit = reader.next()) != null) {
+          Assert.assertEquals(++expected, edit.getWritePointer());
+          editCnt++;
+        }
+        Assert.assertEquals(i * 7, editCnt);
+        // the end of a log is sticky
+        Assert.assertNull(reader.next());
+      }
+      Assert.assertEquals(writePointer, expected);
+      Assert.assertNull(logReader.nextReader());
+    } finally {
+      logReader.close();
+    }
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    InMemoryTransactionStateStorage.InMemoryTransactionLog goodLog =
+      new InMemoryTransactionStateStorage.InMemoryTransactionLog(1);
+    goodLog.append(TransactionEdit.createInvalid(1));
+    InMemoryTransactionStateStorage.InMemoryTransactionLog badLog =
+      new InMemoryTransactionStateStorage.InMemoryTransactionLog(2) {
+        @Override
+        public TransactionLogReader getReader() throws IOException {
+          throw new IOException("corrupt");
+        }
+      };
+    List<TransactionLog> logs = Lists.<TransactionLog>newArrayList(goodLog, badLog, goodLog);
+
+    ParallelTransactionLogReader logReader = new ParallelTransactionLogReader(logs, 2, 1, 1);
+    try {
+      TransactionLogReader reader = logReader.nextReader();
+      Assert.assertEquals(1, reader.next().getWritePointer());
+      Assert.assertNull(reader.next());
+
+      reader = logReader.nextReader();
+      try {
+        reader.next();
+        Assert.fail("Expected the failure of the log to be propagated");
+      } catch (IOException e) {
+        Assert.assertEquals("corrupt", e.getCause().getMessage());
+      }
+      // logs after the failed one can still be read
+      reader = logReader.nextReader();
+      Assert.assertEquals(1, reader.next().getWritePointer());
+    } finally {
+      logReader.close();
+    }
+  }
+}
@@ -18,6 +18,9 @@ package co.cask.tephra.persist;
 
 import co.cask.tephra.ChangeId;
 import co.cask.tephra.TransactionType;
+import co.cask.tephra.TxConstants;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
@@ -26,6 +29,8 @@ import org.junit.Test;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 
 /**
  * test for {@link TransactionEdit}
@@ -54,6 +59,97 @@ public class TransactionEditTest {
       TransactionEdit.createCommitted(2L, Sets.newHashSet(new ChangeId(COL)), 3L, true), olderCodec);
   }
 
+  @Test
+  public void testV4SerdeCompat() throws Exception {
+    TransactionEditCodecs.TransactionEditCodec olderCodec = new TransactionEditCodecs.TransactionEditCodecV4();
+    for (TransactionEdit edit : createEdits()) {
+      verifyDecodingSupportsOlderVersion(edit, olderCodec);
+    }
+  }
+
+  @Test
+  public void testV5Size() throws Exception {
+    // the change keys of a table share the table name as prefix
+    Set<ChangeId> changes = Sets.newHashSet();
+    for (int i = 0; i < 100; i++) {
+      changes.add(new ChangeId(("some_namespace.some_table" + i).getBytes(Charsets.UTF_8)));
+    }
+    long writePointer = System.currentTimeMillis() * TxConstants.MAX_TX_PER_MS;
+    TransactionEdit[] edits = {
+      TransactionEdit.createStarted(writePointer, writePointer - 100, System.currentTimeMillis() + 30000,
+                                    TransactionType.SHORT),
+      TransactionEdit.createCommitting(writePointer, changes),
+      TransactionEdit.createCommitted(writePointer, changes, writePointer + 5, true),
+      TransactionEdit.createAborted(writePointer, TransactionType.SHORT, new long[0])
+    };
+    for (TransactionEdit edit : edits) {
+      ByteArrayDataOutput v4 = ByteStreams.newDataOutput();
+      TransactionEditCodecs.encode(edit, v4, new TransactionEditCodecs.TransactionEditCodecV4());
+      ByteArrayDataOutput v5 = ByteStreams.newDataOutput();
+      edit.write(v5);
+      Assert.assertTrue(edit.getState() + ": " + v5.toByteArray().length + " < " + v4.toByteArray().length,
+                        v5.toByteArray().length * 2 < v4.toByteArray().length);
+    }
+  }
+
+  @Test
+  public void testV5EncodingIndependentOfOrder() throws Exception {
+    // keys and ids are sorted before they are delta encoded, the iteration order of the sets does not matter
+    Set<ChangeId> changes = Sets.newLinkedHashSet();
+    Set<ChangeId> reversedChanges = Sets.newLinkedHashSet();
+    Set<Long> ids = Sets.newLinkedHashSet();
+    Set<Long> reversedIds = Sets.newLinkedHashSet();
+    for (int i = 0; i < 20; i++) {
+      changes.add(new ChangeId(("table" + i).getBytes(Charsets.UTF_8)));
+      reversedChanges.add(new ChangeId(("table" + (19 - i)).getBytes(Charsets.UTF_8)));
+      ids.add(1000L + i * 7);
+      reversedIds.add(1000L + (19 - i) * 7);
+    }
+    assertSameEncoding(TransactionEdit.createCommitting(2000L, changes),
+                       TransactionEdit.createCommitting(2000L, reversedChanges));
+    assertSameEncoding(TransactionEdit.createTruncateInvalidTx(ids),
+                       TransactionEdit.createTruncateInvalidTx(reversedIds));
+  }
+
+  private void assertSameEncoding(TransactionEdit edit, TransactionEdit reordered) throws IOException {
+    ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    edit.write(out);
+    ByteArrayDataOutput reorderedOut = ByteStreams.newDataOutput();
+    reordered.write(reorderedOut);
+    Assert.assertArrayEquals(out.toByteArray(), reorderedOut.toByteArray());
+    TransactionEdit decoded = new TransactionEdit();
+    decoded.readFields(ByteStreams.newDataInput(reorderedOut.toByteArray()));
+    Assert.assertEquals(edit, decoded);
+  }
+
+  @Test
+  public void testDecodeReusedEdit() throws Exception {
+    // fields absent from an edit must not keep the values of the edit previously decoded into the same instance
+    TransactionEdit reused = new TransactionEdit();
+    for (TransactionEdit edit : createEdits()) {
+      ByteArrayDataOutput out = ByteStreams.newDataOutput();
+      edit.write(out);
+      reused.readFields(ByteStreams.newDataInput(out.toByteArray()));
+      Assert.assertEquals(edit, reused);
+    }
+  }
+
+  private List<TransactionEdit> createEdits() {
+    return Lists.newArrayList(
+      TransactionEdit.createStarted(1000L, 900L, System.currentTimeMillis() + 1000, TransactionType.LONG),
+      TransactionEdit.createCommitting(1000L, Sets.newHashSet(new ChangeId(new byte[]{ 'a', 'b', 'c' }),
+                                                               new ChangeId(new byte[]{ 'a', 'b', 'd' }),
+                                                               new ChangeId(new byte[]{ 'a' }))),
+      TransactionEdit.createCommitted(1000L, Sets.newHashSet(new ChangeId(new byte[]{ 'a', 'b', 'c' })), 1010L, true),
+      TransactionEdit.createAborted(1000L, TransactionType.SHORT, new long[]{ 1001L, 1005L }),
+      TransactionEdit.createCheckpoint(1005L, 1000L),
+      TransactionEdit.createInvalid(1000L),
+      TransactionEdit.createMoveWatermark(1000L),
+      TransactionEdit.createTruncateInvalidTx(Sets.newHashSet(5L, 1000L, 3L)),
+      TransactionEdit.createTruncateInvalidTxBefore(System.currentTimeMillis()),
+      TransactionEdit.createStarted(-1L, Long.MIN_VALUE, Long.MAX_VALUE, TransactionType.SHORT));
+  }
+
   @SuppressWarnings("deprecation")
   private void verifyDecodingSupportsOlderVersion(TransactionEdit edit, 
                                                   TransactionEditCodecs.TransactionEditCodec olderCodec)
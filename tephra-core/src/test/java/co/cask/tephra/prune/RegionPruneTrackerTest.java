@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.prune;
+
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionType;
+import co.cask.tephra.TxConstants;
+import co.cask.tephra.persist.TransactionSnapshot;
+import co.cask.tephra.persist.TransactionVisibilityState;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link RegionPruneTracker} and {@link InvalidListPruner}.
+ */
+public class RegionPruneTrackerTest {
+  private static final byte[] REGION1 = "region1".getBytes(Charsets.UTF_8);
+  private static final byte[] REGION2 = "region2".getBytes(Charsets.UTF_8);
+  private static final long MAX_TX_LIFETIME = TimeUnit.HOURS.toMillis(1);
+
+  private final PruneUpperBoundStore store = new InMemoryPruneUpperBoundStore();
+  private final InvalidListPruner pruner = new InvalidListPruner(store);
+
+  @Before
+  public void before() {
+    InMemoryPruneUpperBoundStore.clear();
+  }
+
+  @After
+  public void after() {
+    InMemoryPruneUpperBoundStore.clear();
+  }
+
+  @Test
+  public void testCompactionWithEmptyMemstore() throws IOException {
+    RegionPruneTracker tracker = new RegionPruneTracker(REGION1, "region1", ImmutableList.of("f1", "f2"), store,
+                                                        MAX_TX_LIFETIME);
+    tracker.regionOpened();
+    Assert.assertEquals(PruneUpperBoundStore.NO_BOUND, pruner.getPruneUpperBound());
+
+    // the bound of the region is only known after all stores were compacted
+    Object compaction1 = new Object();
+    tracker.compactionStarted("f1", compaction1, createState(100, 50), true);
+    tracker.compactionCompleted("f1", compaction1);
+    Assert.assertEquals(PruneUpperBoundStore.NO_BOUND, pruner.getPruneUpperBound());
+
+    Object compaction2 = new Object();
+    tracker.compactionStarted("f2", compaction2, createState(120), true);
+    tracker.compactionCompleted("f2", compaction2);
+    Assert.assertEquals(49, pruner.getPruneUpperBound());
+
+    // the bound never decreases
+    Object compaction3 = new Object();
+    tracker.compactionStarted("f1", compaction3, createState(40), true);
+    tracker.compactionCompleted("f1", compaction3);
+    Assert.assertEquals(49, pruner.getPruneUpperBound());
+
+    Object compaction4 = new Object();
+    tracker.compactionStarted("f1", compaction4, createState(150), true);
+    tracker.compactionCompleted("f1", compaction4);
+    Assert.assertEquals(120, pruner.getPruneUpperBound());
+  }
+
+  @Test
+  public void testCompactionRequiresFlush() throws IOException {
+    RegionPruneTracker tracker = new RegionPruneTracker(REGION1, "region1", ImmutableList.of("f1"), store,
+                                                        MAX_TX_LIFETIME);
+    tracker.regionOpened();
+
+    // a flush that started before the compaction does not remove all invalid data from the memstore
+    tracker.flushStarted("f1");
+    Object compaction1 = new Object();
+    tracker.compactionStarted("f1", compaction1, createState(100), false);
+    tracker.flushCompleted("f1");
+    tracker.compactionCompleted("f1", compaction1);
+    Assert.assertEquals(PruneUpperBoundStore.NO_BOUND, pruner.getPruneUpperBound());
+
+    tracker.flushStarted("f1");
+    tracker.flushCompleted("f1");
+    Assert.assertEquals(100, pruner.getPruneUpperBound());
+
+    // a flush in progress requires another flush, even if the memstore is empty
+    tracker.flushStarted("f1");
+    Object compaction2 = new Object();
+    tracker.compactionStarted("f1", compaction2, createState(200), true);
+    tracker.compactionCompleted("f1", compaction2);
+    tracker.flushCompleted("f1");
+    Assert.assertEquals(100, pruner.getPruneUpperBound());
+
+    // the flush may also complete before the compaction
+    Object compaction3 = new Object();
+    tracker.compactionStarted("f1", compaction3, createState(300), false);
+    tracker.flushStarted("f1");
+    tracker.flushCompleted("f1");
+    Assert.assertEquals(100, pruner.getPruneUpperBound());
+    tracker.compactionCompleted("f1", compaction3);
+    Assert.assertEquals(300, pruner.getPruneUpperBound());
+  }
+
+  @Test
+  public void testCompactionWithoutState() throws IOException {
+    RegionPruneTracker tracker = new RegionPruneTracker(REGION1, "region1", ImmutableList.of("f1"), store,
+                                                        MAX_TX_LIFETIME);
+    tracker.regionOpened();
+
+    // a compaction without state does not drop invalid data, and replaces a pending compaction
+    Object compaction1 = new Object();
+    Object compaction2 = new Object();
+    tracker.compactionStarted("f1", compaction1, createState(100), true);
+    tracker.compactionStarted("f1", compaction2, null, true);
+    tracker.compactionCompleted("f1", compaction1);
+    tracker.compactionCompleted("f1", compaction2);
+    Assert.assertEquals(PruneUpperBoundStore.NO_BOUND, pruner.getPruneUpperBound());
+  }
+
+  @Test
+  public void testMultipleRegions() throws IOException {
+    RegionPruneTracker tracker1 = new RegionPruneTracker(REGION1, "region1", ImmutableList.of("f1"), store,
+                                                        MAX_TX_LIFETIME);
+    RegionPruneTracker tracker2 = new RegionPruneTracker(REGION2, "region2", ImmutableList.of("f1"), store,
+                                                        MAX_TX_LIFETIME);
+    tracker1.regionOpened();
+    tracker2.regionOpened();
+
+    Object compaction1 = new Object();
+    tracker1.compactionStarted("f1", compaction1, createState(100), true);
+    tracker1.compactionCompleted("f1", compaction1);
+    // region2 was not compacted yet
+    Assert.assertEquals(PruneUpperBoundStore.NO_BOUND, pruner.getPruneUpperBound());
+
+    Object compaction2 = new Object();
+    tracker2.compactionStarted("f1", compaction2, createState(80), true);
+    tracker2.compactionCompleted("f1", compaction2);
+    Assert.assertEquals(80, pruner.getPruneUpperBound());
+
+    // a region that was split no longer limits the bound
+    tracker2.regionSplit();
+    Assert.assertEquals(1, store.getPruneUpperBounds().size());
+    Assert.assertEquals(100, pruner.getPruneUpperBound());
+
+    // reopening a region keeps its bound
+    tracker1.regionOpened();
+    Assert.assertEquals(100, pruner.getPruneUpperBound());
+  }
+
+  @Test
+  public void testInvalidTxWritesAfterCompaction() throws IOException {
+    RegionPruneTracker tracker = new RegionPruneTracker(REGION1, "region1", ImmutableList.of("f1"), store,
+                                                        MAX_TX_LIFETIME);
+    tracker.regionOpened();
+
+    long now = System.currentTimeMillis();
+    // the region rejects writes of tx1 after the compaction, since it is older than the maximum lifetime
+    long tx1 = (now - MAX_TX_LIFETIME - 1000) * TxConstants.MAX_TX_PER_MS;
+    // tx2 was invalidated but may keep writing after the compaction, so it must stay in the invalid list
+    long tx2 = (now - 1000) * TxConstants.MAX_TX_PER_MS;
+    long writePointer = now * TxConstants.MAX_TX_PER_MS;
+    TransactionVisibilityState state =
+      new TransactionSnapshot(now, writePointer, writePointer, ImmutableList.of(tx1, tx2),
+                              Maps.<Long, TransactionManager.InProgressTx>newTreeMap());
+
+    Object compaction = new Object();
+    tracker.compactionStarted("f1", compaction, state, true);
+    tracker.compactionCompleted("f1", compaction);
+    long bound = pruner.getPruneUpperBound();
+    Assert.assertEquals((now - MAX_TX_LIFETIME) * TxConstants.MAX_TX_PER_MS - 1, bound);
+    Assert.assertTrue(tx1 <= bound);
+    Assert.assertTrue(tx2 > bound);
+  }
+
+  private static TransactionVisibilityState createState(long writePointer, long... inProgress) {
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgressMap = Maps.newTreeMap();
+    for (long tx : inProgress) {
+      inProgressMap.put(tx, new TransactionManager.InProgressTx(tx - 1, Long.MAX_VALUE, TransactionType.LONG));
+    }
+    return new TransactionSnapshot(System.currentTimeMillis(), writePointer, writePointer,
+                                   Collections.<Long>emptyList(), inProgressMap);
+  }
+}
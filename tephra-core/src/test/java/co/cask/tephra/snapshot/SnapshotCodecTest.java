@@ -28,6 +28,7 @@ import co.cask.tephra.persist.TransactionVisibilityState;
 import co.cask.tephra.runtime.ConfigModule;
 import co.cask.tephra.runtime.DiscoveryModules;
 import co.cask.tephra.runtime.TransactionModules;
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Lists;
@@ -35,7 +36,9 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.GzipCodec;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -45,7 +48,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -281,6 +286,10 @@ public class SnapshotCodecTest {
     SnapshotCodec v4codec = codecProvider.getCodecForVersion(new SnapshotCodecV4().getVersion());
     assertNotNull(v4codec);
     assertTrue(v4codec instanceof SnapshotCodecV4);
+
+    SnapshotCodec v5codec = codecProvider.getCodecForVersion(new SnapshotCodecV5().getVersion());
+    assertNotNull(v5codec);
+    assertTrue(v5codec instanceof SnapshotCodecV5);
   }
 
   @Test
@@ -355,6 +364,108 @@ public class SnapshotCodecTest {
     txStorage2.stopAndWait();
   }
 
+  @Test
+  public void testSnapshotCodecV5() throws Exception {
+    TransactionSnapshot snapshot = createSnapshotWithChanges();
+
+    // compressed with the default codec, and uncompressed
+    for (String compressionCodec : new String[] { null, "" }) {
+      Configuration conf = new Configuration();
+      conf.set(TxConstants.Persist.CFG_TX_SNAPHOT_CODEC_CLASSES, SnapshotCodecV5.class.getName());
+      if (compressionCodec != null) {
+        conf.set(TxConstants.Persist.CFG_TX_SNAPSHOT_COMPRESSION_CODEC, compressionCodec);
+      }
+      SnapshotCodecProvider provider = new SnapshotCodecProvider(conf);
+      byte[] encoded = encode(provider, snapshot);
+
+      assertEquals(snapshot, provider.decode(new ByteArrayInputStream(encoded)));
+      TransactionVisibilityState visibilityState =
+        provider.decodeTransactionVisibilityState(new ByteArrayInputStream(encoded));
+      assertTransactionVisibilityStateEquals(snapshot, visibilityState);
+
+      // the visibility state is decoded without reading the change sets that follow it
+      byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+      assertTransactionVisibilityStateEquals(snapshot, provider.decodeTransactionVisibilityState(
+        new ByteArrayInputStream(truncated)));
+      try {
+        provider.decode(new ByteArrayInputStream(truncated));
+        Assert.fail();
+      } catch (RuntimeException e) {
+        // expected since the change sets are incomplete
+      }
+    }
+
+    // the compression codec is read from the snapshot, not from the configuration of the reader
+    Configuration writeConf = new Configuration();
+    writeConf.set(TxConstants.Persist.CFG_TX_SNAPSHOT_COMPRESSION_CODEC, GzipCodec.class.getName());
+    SnapshotCodecProvider writer = new SnapshotCodecProvider(writeConf);
+    Configuration readConf = new Configuration();
+    readConf.set(TxConstants.Persist.CFG_TX_SNAPSHOT_COMPRESSION_CODEC, "");
+    SnapshotCodecProvider reader = new SnapshotCodecProvider(readConf);
+    assertEquals(snapshot, reader.decode(new ByteArrayInputStream(encode(writer, snapshot))));
+  }
+
+  @Test
+  public void testSnapshotCodecV5Size() throws Exception {
+    TransactionSnapshot snapshot = createSnapshotWithChanges();
+
+    Configuration v4Conf = new Configuration();
+    v4Conf.set(TxConstants.Persist.CFG_TX_SNAPHOT_CODEC_CLASSES, SnapshotCodecV4.class.getName());
+    int v4Size = encode(new SnapshotCodecProvider(v4Conf), snapshot).length;
+
+    Configuration v5Conf = new Configuration();
+    v5Conf.set(TxConstants.Persist.CFG_TX_SNAPSHOT_COMPRESSION_CODEC, "");
+    int v5Size = encode(new SnapshotCodecProvider(v5Conf), snapshot).length;
+    int v5CompressedSize = encode(new SnapshotCodecProvider(new Configuration()), snapshot).length;
+
+    assertTrue("V5 size " + v5Size + " should be smaller than V4 size " + v4Size, v5Size < v4Size);
+    assertTrue("Compressed size " + v5CompressedSize + " should be smaller than uncompressed size " + v5Size,
+               v5CompressedSize < v5Size);
+  }
+
+  /**
+   * Creates a snapshot with checkpoints, invalid transactions, and change sets of keys with common prefixes.
+   */
+  private TransactionSnapshot createSnapshotWithChanges() {
+    long now = System.currentTimeMillis();
+    long writePointer = now * TxConstants.MAX_TX_PER_MS;
+    long readPointer = writePointer - 1000;
+
+    List<Long> invalid = Lists.newArrayList();
+    for (long txId = readPointer - 5000; txId < readPointer; txId += 7) {
+      invalid.add(txId);
+    }
+    TreeMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    inProgress.put(readPointer + 1, new TransactionManager.InProgressTx(
+      readPointer, TransactionManager.getTxExpirationFromWritePointer(readPointer + 1,
+                                                                       TxConstants.Manager.DEFAULT_TX_LONG_TIMEOUT),
+      TransactionType.LONG, new LongArrayList(new long[] { readPointer + 10, readPointer + 20 })));
+    inProgress.put(readPointer + 50, new TransactionManager.InProgressTx(readPointer, now + 1000,
+                                                                         TransactionType.SHORT));
+
+    Map<Long, Set<ChangeId>> committing = Maps.newTreeMap();
+    Map<Long, Set<ChangeId>> committed = Maps.newTreeMap();
+    for (long txId = readPointer + 100; txId < readPointer + 200; txId++) {
+      Set<ChangeId> changes = Sets.newHashSet();
+      for (int i = 0; i < 100; i++) {
+        String key = "table" + (txId % 3) + "-row-" + (txId * 1000 + i * 7);
+        changes.add(new ChangeId(key.getBytes(Charsets.UTF_8)));
+      }
+      // an empty key and a key that is a prefix of others
+      changes.add(new ChangeId(new byte[0]));
+      changes.add(new ChangeId("table".getBytes(Charsets.UTF_8)));
+      (txId % 10 == 0 ? committing : committed).put(txId, changes);
+    }
+    return new TransactionSnapshot(now, readPointer, writePointer, invalid, inProgress, committing, committed);
+  }
+
+  private static byte[] encode(SnapshotCodecProvider provider, TransactionSnapshot snapshot) throws IOException {
+    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+      provider.encode(out, snapshot);
+      return out.toByteArray();
+    }
+  }
+
   private void assertTransactionVisibilityStateEquals(TransactionVisibilityState expected,
                                                       TransactionVisibilityState input) {
     Assert.assertEquals(expected.getTimestamp(), input.getTimestamp());
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tephra.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for {@link SortedLongSet}.
+ */
+public class SortedLongSetTest {
+
+  @Test
+  public void testAddRemove() {
+    SortedLongSet set = new SortedLongSet(1);
+    assertTrue(set.isEmpty());
+    assertTrue(set.add(5));
+    assertTrue(set.add(10));
+    assertTrue(set.add(1));
+    assertTrue(set.add(7));
+    assertFalse(set.add(7));
+    assertEquals(4, set.size());
+    assertArrayEquals(new long[] { 1, 5, 7, 10 }, set.toSortedArray());
+    assertTrue(set.contains(7));
+    assertFalse(set.contains(6));
+
+    assertTrue(set.remove(5));
+    assertFalse(set.remove(5));
+    assertArrayEquals(new long[] { 1, 7, 10 }, set.toSortedArray());
+
+    set.clear();
+    assertTrue(set.isEmpty());
+    assertEquals(0, set.toSortedArray().length);
+  }
+
+  @Test
+  public void testVersion() {
+    SortedLongSet set = new SortedLongSet();
+    long version = set.getVersion();
+    assertTrue(set.add(5));
+    assertNotEquals(version, set.getVersion());
+    version = set.getVersion();
+    // operations that do not modify the set keep the version
+    assertFalse(set.add(5));
+    assertFalse(set.remove(7));
+    assertTrue(set.contains(5));
+    assertEquals(version, set.getVersion());
+    set.clear();
+    assertNotEquals(version, set.getVersion());
+  }
+
+  @Test
+  public void testBatchOperations() {
+    SortedLongSet set = new SortedLongSet();
+    assertTrue(set.addAll(new long[] { 9, 3, 5, 3 }));
+    assertTrue(set.addAll(ImmutableList.of(4L, 5L, 12L, 1L)));
+    assertFalse(set.addAll(new long[] { 1, 12 }));
+    assertEquals(ImmutableList.of(1L, 3L, 4L, 5L, 9L, 12L), set.asList());
+
+    assertTrue(set.removeAll(ImmutableSet.of(3L, 9L, 100L)));
+    assertFalse(set.removeAll(new long[] { 2, 100 }));
+    assertTrue(set.removeAll(new long[] { 12 }));
+    assertArrayEquals(new long[] { 1, 4, 5 }, set.toSortedArray());
+  }
+
+  @Test
+  public void testSortedArrayIsShared() {
+    SortedLongSet set = new SortedLongSet();
+    set.addAll(new long[] { 1, 2, 3 });
+    long[] first = set.toSortedArray();
+    assertSame(first, set.toSortedArray());
+
+    // a modification publishes a new array, leaving the old one untouched
+    set.add(4);
+    long[] second = set.toSortedArray();
+    assertNotSame(first, second);
+    assertArrayEquals(new long[] { 1, 2, 3 }, first);
+    assertArrayEquals(new long[] { 1, 2, 3, 4 }, second);
+
+    // failed modifications keep the array
+    set.add(4);
+    set.remove(10);
+    assertSame(second, set.toSortedArray());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = new Random(42);
+    SortedLongSet set = new SortedLongSet();
+    TreeSet<Long> expected = new TreeSet<>();
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextInt(1000);
+      switch (random.nextInt(3)) {
+        case 0:
+          assertEquals(expected.add(value), set.add(value));
+          break;
+        case 1:
+          assertEquals(expected.remove(value), set.remove(value));
+          break;
+        default:
+          assertEquals(expected.contains(value), set.contains(value));
+      }
+    }
+    assertEquals(expected.size(), set.size());
+    assertEquals(Arrays.asList(expected.toArray()), set.asList());
+  }
+}
@@ -17,9 +17,19 @@
 package co.cask.tephra.util;
 
 import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionType;
+import co.cask.tephra.persist.TransactionSnapshot;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.apache.hadoop.conf.Configuration;
 import org.junit.Test;
 
+import java.util.NavigableMap;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test cases for {@link TxUtils} utility methods.
@@ -30,4 +40,37 @@ public class TxUtilsTest {
     // make sure we don't overflow with MAX_VALUE write pointer
     assertEquals(Long.MAX_VALUE, TxUtils.getMaxVisibleTimestamp(Transaction.ALL_VISIBLE_LATEST));
   }
+
+  @Test
+  public void testShadowedVersionUpperBound() {
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    // without in-progress transactions, all committed versions are visible to future transactions
+    TransactionSnapshot snapshot = new TransactionSnapshot(0, 100, 110, ImmutableList.of(105L), inProgress);
+    assertEquals(100, TxUtils.getShadowedVersionUpperBound(snapshot));
+
+    // an in-progress transaction does not see versions committed after it started
+    inProgress.put(120L, new TransactionManager.InProgressTx(90, Long.MAX_VALUE, TransactionType.SHORT));
+    // a long running transaction started earlier, with a lower visibility upper bound
+    inProgress.put(95L, new TransactionManager.InProgressTx(80, Long.MAX_VALUE, TransactionType.LONG));
+    snapshot = new TransactionSnapshot(0, 130, 140, ImmutableList.of(105L), inProgress);
+    assertEquals(80, TxUtils.getShadowedVersionUpperBound(snapshot));
+
+    inProgress.remove(95L);
+    snapshot = new TransactionSnapshot(0, 130, 140, ImmutableList.of(105L), inProgress);
+    assertEquals(90, TxUtils.getShadowedVersionUpperBound(snapshot));
+  }
+
+  @Test
+  public void testReadOnly() {
+    TransactionManager txManager = new TransactionManager(new Configuration());
+    txManager.startAndWait();
+    try {
+      assertTrue(TxUtils.isReadOnly(txManager.startReadOnly()));
+      Transaction tx = txManager.startShort();
+      assertFalse(TxUtils.isReadOnly(tx));
+      txManager.abort(tx);
+    } finally {
+      txManager.stopAndWait();
+    }
+  }
 }
@@ -25,6 +25,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Append;
@@ -48,6 +49,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -63,6 +65,8 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
 
   private static final Logger LOG = LoggerFactory.getLogger(TransactionAwareHTable.class);
   private final HTableInterface hTable;
+  // whether row and family deletes are translated into column tombstones by the region server
+  private final boolean serverSideDeletes;
 
   /**
    * Create a transactional aware instance of the passed HTable
@@ -106,6 +110,8 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
                                 boolean allowNonTransactional) {
     super(conflictLevel, allowNonTransactional);
     this.hTable = hTable;
+    this.serverSideDeletes = hTable.getConfiguration().getBoolean(TxConstants.SERVER_SIDE_DELETES_KEY,
+                                                                  TxConstants.SERVER_SIDE_DELETES_DEFAULT);
   }
 
   /* AbstractTransactionAwareTable implementation */
@@ -339,7 +345,10 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
     if (tx == null) {
       throw new IOException("Transaction not started");
     }
-    hTable.delete(transactionalizeAction(delete));
+    Delete txDelete = transactionalizeAction(delete, serverSideDeletes);
+    if (txDelete != null) {
+      hTable.delete(txDelete);
+    }
   }
 
   @Override
@@ -349,8 +358,10 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
     }
     List<Delete> transactionalizedDeletes = new ArrayList<Delete>(deletes.size());
     for (Delete delete : deletes) {
-      Delete txDelete = transactionalizeAction(delete);
-      transactionalizedDeletes.add(txDelete);
+      Delete txDelete = transactionalizeAction(delete, serverSideDeletes);
+      if (txDelete != null) {
+        transactionalizedDeletes.add(txDelete);
+      }
     }
     hTable.delete(transactionalizedDeletes);
   }
@@ -383,6 +394,7 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
 
   @Override
   public Result append(Append append) throws IOException {
+    ensureWritable();
     if (allowNonTransactional) {
       return hTable.append(append);
     } else {
@@ -500,6 +512,7 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
   }
 
   private Put transactionalizeAction(Put put) throws IOException {
+    ensureWritable();
     Put txPut = new Put(put.getRow(), tx.getWritePointer());
     Set<Map.Entry<byte[], List<Cell>>> familyMap = put.getFamilyCellMap().entrySet();
     if (!familyMap.isEmpty()) {
@@ -522,6 +535,16 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
   }
 
   private Delete transactionalizeAction(Delete delete) throws IOException {
+    return transactionalizeAction(delete, false);
+  }
+
+  /**
+   * @param deleteOnServer if {@code true}, row and family deletes with column level conflict detection are sent to
+   *                       the region server right away, which writes the tombstones for the individual columns
+   * @return the delete to perform, or {@code null} if the region server already performed the entire delete
+   */
+  private Delete transactionalizeAction(Delete delete, boolean deleteOnServer) throws IOException {
+    ensureWritable();
     long transactionTimestamp = tx.getWritePointer();
 
     byte[] deleteRow = delete.getRow();
@@ -538,6 +561,9 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
           // no need to identify individual columns deleted
           addToChangeSet(deleteRow, columnDescriptor.getName(), null);
         }
+      } else if (deleteOnServer) {
+        deleteOnServer(delete, Collections.<byte[]>emptyList());
+        return null;
       } else {
         Result result = get(new Get(delete.getRow()));
         // Delete everything
@@ -551,6 +577,7 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
         }
       }
     } else {
+      List<byte[]> serverDeleteFamilies = new ArrayList<byte[]>();
       for (Map.Entry<byte [], List<Cell>> familyEntry : familyToDelete.entrySet()) {
         byte[] family = familyEntry.getKey();
         List<Cell> entries = familyEntry.getValue();
@@ -567,6 +594,8 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
             // inherit the common Delete timestamp, so must explicitly set the timestamp here.
             txDelete.deleteFamily(family, transactionTimestamp);
             addToChangeSet(deleteRow, family, null);
+          } else if (deleteOnServer) {
+            serverDeleteFamilies.add(family);
           } else {
             Result result = get(new Get(delete.getRow()).addFamily(family));
             // Delete entire family
@@ -583,6 +612,12 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
           }
         }
       }
+      if (!serverDeleteFamilies.isEmpty()) {
+        deleteOnServer(delete, serverDeleteFamilies);
+        if (txDelete.isEmpty()) {
+          return null;
+        }
+      }
     }
     for (Map.Entry<String, byte[]> entry : delete.getAttributesMap().entrySet()) {
         txDelete.setAttribute(entry.getKey(), entry.getValue());
@@ -591,6 +626,34 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
     return txDelete;
   }
 
+  /**
+   * Has the region server write tombstones for all columns of the given families that are visible to the current
+   * transaction, or for all columns of the row if no families are given, and adds the deleted columns to the
+   * change set.
+   */
+  private void deleteOnServer(Delete delete, List<byte[]> families) throws IOException {
+    Append append = new Append(delete.getRow());
+    if (families.isEmpty()) {
+      // an empty family name stands for all families of the row
+      append.add(HConstants.EMPTY_BYTE_ARRAY, TxConstants.FAMILY_DELETE_QUALIFIER, HConstants.EMPTY_BYTE_ARRAY);
+    }
+    for (byte[] family : families) {
+      append.add(family, TxConstants.FAMILY_DELETE_QUALIFIER, HConstants.EMPTY_BYTE_ARRAY);
+    }
+    for (Map.Entry<String, byte[]> entry : delete.getAttributesMap().entrySet()) {
+      append.setAttribute(entry.getKey(), entry.getValue());
+    }
+    append.setAttribute(TxConstants.TX_DELETE_ATTRIBUTE_KEY, HConstants.EMPTY_BYTE_ARRAY);
+    append.setDurability(delete.getDurability());
+    addToOperation(append, tx);
+    Result result = hTable.append(append);
+    if (result != null && !result.isEmpty()) {
+      for (Cell cell : result.rawCells()) {
+        addToChangeSet(delete.getRow(), CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell));
+      }
+    }
+  }
+
   private List<? extends Row> transactionalizeActions(List<? extends Row> actions) throws IOException {
     List<Row> transactionalizedActions = new ArrayList<>(actions.size());
     for (Row action : actions) {
@@ -608,6 +671,6 @@ public class TransactionAwareHTable extends AbstractTransactionAwareTable
   }
 
   public void addToOperation(OperationWithAttributes op, Transaction tx) throws IOException {
-    op.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, txCodec.encode(tx));
+    op.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, encodeTx(tx));
   }
 }
@@ -48,6 +48,9 @@ public class TransactionVisibilityFilter extends FilterBase {
   // whether or not we can remove delete markers
   // these can only be safely removed when we are traversing all storefiles
   private final boolean clearDeletes;
+  // for flushes and compactions, a visible version up to this bound is visible to all transactions, and shadows the
+  // older versions of its column. Newer visible versions, including deletes, are kept together with the older versions
+  private final long shadowedVersionBound;
   // optional sub-filter to apply to visible cells
   private final Filter cellFilter;
 
@@ -57,6 +60,11 @@ public class TransactionVisibilityFilter extends FilterBase {
 
   private DeleteTracker deleteTracker = new DeleteTracker();
 
+  // the last cell skipped because it is not visible, to detect consecutive invisible versions of a column
+  private Cell lastSkipped;
+  // the cell to seek to after returning SEEK_NEXT_USING_HINT
+  private KeyValue nextCellHint;
+
   /**
    * Creates a new {@link Filter} for returning data only from visible transactions.
    *
@@ -83,8 +91,30 @@ public class TransactionVisibilityFilter extends FilterBase {
    *                   calling {@link Filter#filterKeyValue(org.apache.hadoop.hbase.Cell)}.  If null, then
    *                   {@link Filter.ReturnCode#INCLUDE_AND_NEXT_COL} will be returned instead.
    */
-   public TransactionVisibilityFilter(Transaction tx, Map<byte[], Long> ttlByFamily, boolean allowEmptyValues,
-                               ScanType scanType, @Nullable Filter cellFilter) {
+  public TransactionVisibilityFilter(Transaction tx, Map<byte[], Long> ttlByFamily, boolean allowEmptyValues,
+                                     ScanType scanType, @Nullable Filter cellFilter) {
+    this(tx, ttlByFamily, allowEmptyValues, scanType, cellFilter, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new {@link Filter} for returning data only from visible transactions.
+   *
+   * @param tx the current transaction to apply.  Only data visible to this transaction will be returned.
+   * @param ttlByFamily map of time-to-live (TTL) (in milliseconds) by column family name
+   * @param allowEmptyValues if {@code true} cells with empty {@code byte[]} values will be returned, if {@code false}
+   *                         these will be interpreted as "delete" markers and the column will be filtered out
+   * @param scanType the type of scan operation being performed
+   * @param cellFilter if non-null, this filter will be applied to all cells visible to the current transaction, by
+   *                   calling {@link Filter#filterKeyValue(org.apache.hadoop.hbase.Cell)}.  If null, then
+   *                   {@link Filter.ReturnCode#INCLUDE_AND_NEXT_COL} will be returned instead.
+   * @param shadowedVersionBound for flushes and compactions, the version up to which a visible version of a column
+   *                             is visible to all transactions. Such a version shadows the older versions of its
+   *                             column, while newer visible versions, including deletes, are kept together with the
+   *                             older versions. {@link Long#MAX_VALUE} to only keep the newest visible version.
+   *                             Ignored for user scans.
+   */
+  public TransactionVisibilityFilter(Transaction tx, Map<byte[], Long> ttlByFamily, boolean allowEmptyValues,
+                                     ScanType scanType, @Nullable Filter cellFilter, long shadowedVersionBound) {
     this.tx = tx;
     this.oldestTsByFamily = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     for (Map.Entry<byte[], Long> ttlEntry : ttlByFamily.entrySet()) {
@@ -96,11 +126,15 @@ public class TransactionVisibilityFilter extends FilterBase {
     this.clearDeletes =
         scanType == ScanType.COMPACT_DROP_DELETES ||
           (scanType == ScanType.USER_SCAN && tx.getVisibilityLevel() != Transaction.VisibilityLevel.SNAPSHOT_ALL);
+    this.shadowedVersionBound = scanType == ScanType.USER_SCAN ? Long.MAX_VALUE : shadowedVersionBound;
     this.cellFilter = cellFilter;
   }
 
   @Override
   public ReturnCode filterKeyValue(Cell cell) throws IOException {
+    Cell previousSkipped = lastSkipped;
+    lastSkipped = null;
+    nextCellHint = null;
     if (!CellUtil.matchingFamily(cell, currentFamily)) {
       // column family changed
       currentFamily = CellUtil.cloneFamily(cell);
@@ -121,6 +155,10 @@ public class TransactionVisibilityFilter extends FilterBase {
         return runSubFilter(ReturnCode.INCLUDE, cell);
       }
       if (DeleteTracker.isFamilyDelete(cell)) {
+        if (kvTimestamp > shadowedVersionBound) {
+          // not all transactions see the delete yet, keep it together with the data it deletes
+          return runSubFilter(ReturnCode.INCLUDE, cell);
+        }
         deleteTracker.addFamilyDelete(cell);
         if (clearDeletes) {
           return ReturnCode.NEXT_COL;
@@ -136,6 +174,10 @@ public class TransactionVisibilityFilter extends FilterBase {
       }
       // check for column delete
       if (isColumnDelete(cell)) {
+        if (kvTimestamp > shadowedVersionBound) {
+          // not all transactions see the delete yet, keep it together with the older versions
+          return runSubFilter(ReturnCode.INCLUDE, cell);
+        }
         if (clearDeletes) {
           // skip "deleted" cell
           return ReturnCode.NEXT_COL;
@@ -145,11 +187,42 @@ public class TransactionVisibilityFilter extends FilterBase {
         }
       }
       // cell is visible
+      if (kvTimestamp > shadowedVersionBound) {
+        // older versions may still be visible to transactions that do not see this one
+        return runSubFilter(ReturnCode.INCLUDE, cell);
+      }
       // as soon as we find a KV to include we can move to the next column
       return runSubFilter(ReturnCode.INCLUDE_AND_NEXT_COL, cell);
     } else {
+      return skipInvisible(cell, kvTimestamp, previousSkipped);
+    }
+  }
+
+  /**
+   * Skips a version that is not visible. If the previous version of the same column was not visible either, the
+   * column may have many invisible versions, for example written by a long running transaction. Instead of skipping
+   * them one by one, seeks directly to the next version that may be visible.
+   */
+  private ReturnCode skipInvisible(Cell cell, long timestamp, @Nullable Cell previousSkipped) {
+    lastSkipped = cell;
+    if (previousSkipped == null || !CellUtil.matchingRow(cell, previousSkipped) ||
+      !CellUtil.matchingFamily(cell, previousSkipped) || !CellUtil.matchingQualifier(cell, previousSkipped)) {
+      return ReturnCode.SKIP;
+    }
+    long nextVersion = tx.getNextVisibleCandidate(timestamp);
+    if (nextVersion < 0) {
+      // no older version can be visible
+      return ReturnCode.NEXT_COL;
+    }
+    if (nextVersion == timestamp - 1) {
       return ReturnCode.SKIP;
     }
+    // sorts before all cells of the column with the given version
+    nextCellHint = new KeyValue(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+                                cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+                                cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+                                nextVersion, KeyValue.Type.Maximum, null, 0, 0);
+    return ReturnCode.SEEK_NEXT_USING_HINT;
   }
 
   private ReturnCode runSubFilter(ReturnCode txFilterCode, Cell cell) throws IOException {
@@ -215,6 +288,8 @@ public class TransactionVisibilityFilter extends FilterBase {
   @Override
   public void reset() throws IOException {
     deleteTracker.reset();
+    lastSkipped = null;
+    nextCellHint = null;
     if (cellFilter != null) {
       cellFilter.reset();
     }
@@ -256,6 +331,9 @@ public class TransactionVisibilityFilter extends FilterBase {
   @SuppressWarnings("deprecation")
   @Override
   public KeyValue getNextKeyHint(KeyValue currentKV) throws IOException {
+    if (nextCellHint != null) {
+      return nextCellHint;
+    }
     if (cellFilter != null) {
       return cellFilter.getNextKeyHint(currentKV);
     }
@@ -264,6 +342,9 @@ public class TransactionVisibilityFilter extends FilterBase {
 
   @Override
   public Cell getNextCellHint(Cell currentKV) throws IOException {
+    if (nextCellHint != null) {
+      return nextCellHint;
+    }
     if (cellFilter != null) {
       return cellFilter.getNextCellHint(currentKV);
     }
@@ -15,9 +15,11 @@
  */
 package co.cask.tephra.hbase10;
 
+import co.cask.tephra.DefaultTransactionExecutor;
 import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionConflictException;
 import co.cask.tephra.TransactionContext;
+import co.cask.tephra.TransactionFailureException;
 import co.cask.tephra.TransactionManager;
 import co.cask.tephra.TransactionSystemClient;
 import co.cask.tephra.TxConstants;
@@ -73,6 +75,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -233,6 +236,63 @@ public class TransactionAwareHTableTest {
     assertArrayEquals(TestBytes.value, value);
   }
 
+  /**
+   * Test that a read-only transaction cannot write, and leaves the existing versions untouched.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testWriteInReadOnlyTransaction() throws Exception {
+    transactionContext.start();
+    Put put = new Put(TestBytes.row);
+    put.add(TestBytes.family, TestBytes.qualifier, TestBytes.value);
+    transactionAwareHTable.put(put);
+    transactionContext.finish();
+
+    DefaultTransactionExecutor executor =
+      new DefaultTransactionExecutor(new InMemoryTxSystemClient(txManager), transactionAwareHTable);
+    List<Callable<Void>> writes = ImmutableList.<Callable<Void>>of(
+      new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          Put put = new Put(TestBytes.row);
+          put.add(TestBytes.family, TestBytes.qualifier, TestBytes.value2);
+          transactionAwareHTable.put(put);
+          return null;
+        }
+      },
+      new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          transactionAwareHTable.delete(new Delete(TestBytes.row).deleteColumns(TestBytes.family,
+                                                                                TestBytes.qualifier));
+          return null;
+        }
+      },
+      new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          transactionAwareHTable.delete(new Delete(TestBytes.row));
+          return null;
+        }
+      });
+    for (Callable<Void> write : writes) {
+      try {
+        executor.executeReadOnly(write);
+        fail("Expected the write of a read-only transaction to be rejected");
+      } catch (TransactionFailureException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+    }
+
+    // the committed version is still the only version of the column
+    Get get = new Get(TestBytes.row);
+    get.setMaxVersions();
+    Result result = hTable.get(get);
+    assertEquals(1, result.size());
+    assertArrayEquals(TestBytes.value, result.getValue(TestBytes.family, TestBytes.qualifier));
+  }
+
   /**
    * Test aborted put requests, that must be rolled back.
    *
@@ -513,6 +573,67 @@ public class TransactionAwareHTableTest {
     testDeleteRollback(TxConstants.ConflictDetection.NONE);
   }
 
+  /**
+   * Test row and family deletes that are translated into column tombstones by the region server.
+   */
+  @Test
+  public void testServerSideDelete() throws Exception {
+    byte[] tableName = Bytes.toBytes("TestServerSideDelete");
+    createTable(tableName, new byte[][]{TestBytes.family, TestBytes.family2}).close();
+    Configuration serverDeletesConf = new Configuration(conf);
+    serverDeletesConf.setBoolean(TxConstants.SERVER_SIDE_DELETES_KEY, true);
+    try (TransactionAwareHTable txTable1 = new TransactionAwareHTable(new HTable(serverDeletesConf, tableName));
+         TransactionAwareHTable txTable2 = new TransactionAwareHTable(new HTable(conf, tableName))) {
+      TransactionContext txContext1 = new TransactionContext(new InMemoryTxSystemClient(txManager), txTable1);
+      TransactionContext txContext2 = new TransactionContext(new InMemoryTxSystemClient(txManager), txTable2);
+
+      txContext1.start();
+      for (byte[] row : new byte[][]{TestBytes.row, TestBytes.row2}) {
+        txTable1.put(new Put(row).add(TestBytes.family, TestBytes.qualifier, TestBytes.value)
+                       .add(TestBytes.family2, TestBytes.qualifier2, TestBytes.value2));
+      }
+      txContext1.finish();
+
+      // the columns deleted by the region server are rolled back on abort
+      txContext1.start();
+      txTable1.delete(new Delete(TestBytes.row));
+      assertTrue(txTable1.get(new Get(TestBytes.row)).isEmpty());
+      txContext1.abort();
+
+      txContext1.start();
+      Result result = txTable1.get(new Get(TestBytes.row));
+      assertArrayEquals(TestBytes.value, result.getValue(TestBytes.family, TestBytes.qualifier));
+      assertArrayEquals(TestBytes.value2, result.getValue(TestBytes.family2, TestBytes.qualifier2));
+      txContext1.finish();
+
+      // the deleted columns conflict with concurrent writes
+      txContext1.start();
+      txTable1.delete(new Delete(TestBytes.row).deleteFamily(TestBytes.family2));
+      txTable1.delete(new Delete(TestBytes.row2));
+      txContext2.start();
+      txTable2.put(new Put(TestBytes.row).add(TestBytes.family2, TestBytes.qualifier2, TestBytes.value3));
+      txContext2.finish();
+      try {
+        txContext1.finish();
+        fail("txContext1 should have encountered a column-level conflict during commit");
+      } catch (TransactionConflictException tce) {
+        txContext1.abort();
+      }
+
+      txContext1.start();
+      txTable1.delete(new Delete(TestBytes.row).deleteFamily(TestBytes.family2));
+      txTable1.delete(new Delete(TestBytes.row2));
+      txContext1.finish();
+
+      txContext1.start();
+      result = txTable1.get(new Get(TestBytes.row));
+      assertEquals(1, result.size());
+      assertArrayEquals(TestBytes.value, result.getValue(TestBytes.family, TestBytes.qualifier));
+      assertTrue(txTable1.get(new Get(TestBytes.row2)).isEmpty());
+      txContext1.finish();
+    }
+  }
+
   @Test
   public void testMultiColumnFamilyRowDeleteRollback() throws Exception {
     HTable hTable = createTable(Bytes.toBytes("TestMultColFam"), new byte[][] {TestBytes.family, TestBytes.family2});
@@ -18,6 +18,7 @@ package co.cask.tephra.hbase10.coprocessor;
 
 import co.cask.tephra.ChangeId;
 import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionCodec;
 import co.cask.tephra.TransactionManager;
 import co.cask.tephra.TransactionType;
 import co.cask.tephra.TxConstants;
@@ -27,6 +28,7 @@ import co.cask.tephra.metrics.TxMetricsCollector;
 import co.cask.tephra.persist.HDFSTransactionStateStorage;
 import co.cask.tephra.persist.TransactionSnapshot;
 import co.cask.tephra.persist.TransactionVisibilityState;
+import co.cask.tephra.prune.InMemoryPruneUpperBoundStore;
 import co.cask.tephra.snapshot.DefaultSnapshotCodec;
 import co.cask.tephra.snapshot.SnapshotCodecProvider;
 import co.cask.tephra.util.TxUtils;
@@ -38,6 +40,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
@@ -83,6 +86,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests filtering of invalid transaction data by the {@link TransactionProcessor} coprocessor.
@@ -128,8 +132,8 @@ public class TransactionProcessorTest {
     // write an initial transaction snapshot
     TransactionSnapshot txSnapshot = TransactionSnapshot.copyFrom(
       System.currentTimeMillis(), V[6] - 1, V[7], invalidSet,
-      // this will set visibility upper bound to V[6]
-      Maps.newTreeMap(ImmutableSortedMap.of(V[6], new TransactionManager.InProgressTx(V[6] - 1, Long.MAX_VALUE,
+      // this will set visibility upper bound to V[6], tx V[6] started while V[4] was still in progress
+      Maps.newTreeMap(ImmutableSortedMap.of(V[6], new TransactionManager.InProgressTx(V[4] - 1, Long.MAX_VALUE,
                                                                                       TransactionType.SHORT))),
       new HashMap<Long, Set<ChangeId>>(), new TreeMap<Long, Set<ChangeId>>());
     txVisibilityState = new TransactionSnapshot(txSnapshot.getTimestamp(), txSnapshot.getReadPointer(),
@@ -550,12 +554,156 @@ public class TransactionProcessorTest {
                                  InetAddress.getLocalHost().getHostName(), 0, System.currentTimeMillis())), null);
   }
 
+  @Test
+  public void testShadowedVersions() throws Exception {
+    // by default, only the newest visible version of a column is kept, and deletes are dropped by major compactions
+    assertShadowedVersions("TestRetainNewestVersion", false,
+                           new long[][]{{V[6], V[4]}, {V[4]}, {V[4]}},
+                           new long[][]{{V[6], V[4]}, {}, {}});
+    // the writes and deletes at V[4] were committed after the in-progress tx V[6] started, which still reads V[2]
+    assertShadowedVersions("TestRetainInProgressVersions", true,
+                           new long[][]{{V[6], V[4], V[2]}, {V[4], V[2]}, {V[4], V[2]}},
+                           new long[][]{{V[6], V[4], V[2]}, {V[4], V[2]}, {V[4], V[2]}});
+  }
+
+  private void assertShadowedVersions(String tableName, boolean retainInProgressVersions, long[][] versionsAfterFlush,
+                                      long[][] versionsAfterCompaction) throws Exception {
+    byte[] familyBytes = Bytes.toBytes("f");
+    byte[] columnBytes = Bytes.toBytes("c");
+    HRegion region = createRegion(tableName, familyBytes, 0, retainInProgressVersions);
+    try {
+      region.initialize();
+      for (int i = 1; i <= 6; i++) {
+        Put p = new Put(Bytes.toBytes(1));
+        p.add(familyBytes, columnBytes, V[i], Bytes.toBytes(V[i]));
+        region.put(p);
+      }
+      // row 2 has a column delete at V[4]
+      for (int i : new int[]{1, 2}) {
+        Put p = new Put(Bytes.toBytes(2));
+        p.add(familyBytes, columnBytes, V[i], Bytes.toBytes(V[i]));
+        region.put(p);
+      }
+      Put p = new Put(Bytes.toBytes(2));
+      p.add(familyBytes, columnBytes, V[4], HConstants.EMPTY_BYTE_ARRAY);
+      region.put(p);
+      // row 3 has a family delete at V[4]
+      p = new Put(Bytes.toBytes(3));
+      p.add(familyBytes, columnBytes, V[2], Bytes.toBytes(V[2]));
+      region.put(p);
+      p = new Put(Bytes.toBytes(3));
+      p.add(familyBytes, TxConstants.FAMILY_DELETE_QUALIFIER, V[4], HConstants.EMPTY_BYTE_ARRAY);
+      region.put(p);
+
+      // the invalid versions V[3] and V[5] are always dropped
+      region.flushcache();
+      assertRowVersions(region, versionsAfterFlush);
+
+      region.compactStores(true);
+      assertRowVersions(region, versionsAfterCompaction);
+    } finally {
+      region.close();
+    }
+  }
+
+  private void assertRowVersions(HRegion region, long[][] versionsByRow) throws IOException {
+    for (int row = 1; row <= versionsByRow.length; row++) {
+      long[] versions = versionsByRow[row - 1];
+      // the delete markers at V[4] have empty values
+      byte[][] values = new byte[versions.length][];
+      for (int i = 0; i < versions.length; i++) {
+        values[i] = row > 1 && versions[i] == V[4] ? HConstants.EMPTY_BYTE_ARRAY : Bytes.toBytes(versions[i]);
+      }
+      Scan scan = new Scan(Bytes.toBytes(row), Bytes.toBytes(row + 1));
+      scan.setMaxVersions(10);
+      List<Cell> results = Lists.newArrayList();
+      RegionScanner regionScanner = region.getScanner(scan);
+      assertFalse(regionScanner.next(results));
+      assertKeyValueMatches(results, row, versions, values);
+      regionScanner.close();
+    }
+  }
+
+  @Test
+  public void testInvalidTxWriteAfterCompaction() throws Exception {
+    InMemoryPruneUpperBoundStore.clear();
+    Configuration pruneConf = new Configuration(conf);
+    pruneConf.setBoolean(TxConstants.TransactionPruning.PRUNE_ENABLE, true);
+    // the invalid tx V[3] is older than the maximum lifetime, while the invalid tx V[5] is not
+    pruneConf.setLong(TxConstants.TransactionPruning.PRUNE_MAX_TX_LIFETIME, TimeUnit.MINUTES.toSeconds(210));
+    byte[] familyBytes = Bytes.toBytes("f");
+    byte[] columnBytes = Bytes.toBytes("c");
+    HRegion region = createRegion("TestInvalidTxWriteAfterCompaction", familyBytes, 0, false, pruneConf);
+    try {
+      region.initialize();
+      for (int i = 3; i <= 5; i++) {
+        Put p = new Put(Bytes.toBytes(1));
+        p.add(familyBytes, columnBytes, V[i], Bytes.toBytes(V[i]));
+        region.put(p);
+      }
+      region.flushcache();
+      region.compactStores(true);
+      Scan scan = new Scan();
+      scan.setMaxVersions(10);
+      List<Cell> results = Lists.newArrayList();
+      RegionScanner regionScanner = region.getScanner(scan);
+      assertFalse(regionScanner.next(results));
+      assertKeyValueMatches(results, 1, new long[]{V[4]});
+      regionScanner.close();
+
+      // the compaction removed the data of both invalid transactions, but only V[3] can be pruned
+      long pruneUpperBound =
+        new InMemoryPruneUpperBoundStore().getPruneUpperBounds().get(region.getRegionInfo().getRegionName());
+      assertTrue(pruneUpperBound >= V[3]);
+      assertTrue(pruneUpperBound < V[5]);
+
+      // V[3] can no longer write after the compaction
+      try {
+        region.put(createTxPut(V[3], familyBytes, columnBytes));
+        fail("Expected the write of a transaction older than the maximum lifetime to be rejected");
+      } catch (DoNotRetryIOException e) {
+        // expected
+      }
+      // V[5] may still write, and stays in the invalid list
+      region.put(createTxPut(V[5], familyBytes, columnBytes));
+      results.clear();
+      regionScanner = region.getScanner(scan);
+      assertFalse(regionScanner.next(results));
+      assertKeyValueMatches(results, 1, new long[]{V[5], V[4]});
+      regionScanner.close();
+    } finally {
+      region.close();
+      InMemoryPruneUpperBoundStore.clear();
+    }
+  }
+
+  private Put createTxPut(long txId, byte[] family, byte[] column) throws IOException {
+    Transaction tx = new Transaction(txId - 1, txId, new long[0], new long[0], Transaction.NO_TX_IN_PROGRESS);
+    Put p = new Put(Bytes.toBytes(1));
+    p.add(family, column, txId, Bytes.toBytes(txId));
+    p.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, new TransactionCodec().encode(tx));
+    return p;
+  }
+
   private HRegion createRegion(String tableName, byte[] family, long ttl) throws IOException {
+    return createRegion(tableName, family, ttl, false);
+  }
+
+  private HRegion createRegion(String tableName, byte[] family, long ttl,
+                               boolean retainInProgressVersions) throws IOException {
+    return createRegion(tableName, family, ttl, retainInProgressVersions, conf);
+  }
+
+  private HRegion createRegion(String tableName, byte[] family, long ttl, boolean retainInProgressVersions,
+                               Configuration regionConf) throws IOException {
     HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(tableName));
     HColumnDescriptor cfd = new HColumnDescriptor(family);
     if (ttl > 0) {
       cfd.setValue(TxConstants.PROPERTY_TTL, String.valueOf(ttl));
     }
+    if (retainInProgressVersions) {
+      cfd.setValue(TxConstants.PROPERTY_RETAIN_INPROGRESS_VERSIONS, Boolean.TRUE.toString());
+    }
     cfd.setMaxVersions(10);
     htd.addFamily(cfd);
     htd.addCoprocessor(TransactionProcessor.class.getName());
@@ -566,7 +714,7 @@ public class TransactionProcessorTest {
     WAL hLog = walFactory.getWAL(new byte[]{1});
     HRegionInfo regionInfo = new HRegionInfo(TableName.valueOf(tableName));
     HRegionFileSystem regionFS = HRegionFileSystem.createRegionOnFileSystem(conf, fs, tablePath, regionInfo);
-    return new HRegion(regionFS, hLog, conf, htd,
+    return new HRegion(regionFS, hLog, regionConf, htd,
                        new LocalRegionServerServices(conf, ServerName.valueOf(
                          InetAddress.getLocalHost().getHostName(), 0, System.currentTimeMillis())));
   }
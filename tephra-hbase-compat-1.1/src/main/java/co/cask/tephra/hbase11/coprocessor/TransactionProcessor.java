@@ -19,11 +19,15 @@ package co.cask.tephra.hbase11.coprocessor;
 import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionCodec;
 import co.cask.tephra.TxConstants;
+import co.cask.tephra.coprocessor.TransactionDecodeCache;
 import co.cask.tephra.coprocessor.TransactionStateCache;
 import co.cask.tephra.coprocessor.TransactionStateCacheSupplier;
 import co.cask.tephra.persist.TransactionVisibilityState;
+import co.cask.tephra.prune.PruneUpperBoundStores;
+import co.cask.tephra.prune.RegionPruneTracker;
 import co.cask.tephra.util.TxUtils;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.logging.Log;
@@ -31,14 +35,19 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Append;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.OperationWithAttributes;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
@@ -50,18 +59,20 @@ import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.ScanType;
 import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.regionserver.StoreScanner;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@code org.apache.hadoop.hbase.coprocessor.RegionObserver} coprocessor that handles server-side processing
@@ -70,6 +81,9 @@ import java.util.Set;
  *   <li>applies filtering to exclude data from invalid and in-progress transactions</li>
  *   <li>overrides the scanner returned for flush and compaction to drop data written by invalidated transactions,
  *   or expired due to TTL.</li>
+ *   <li>if {@link TxConstants.TransactionPruning#PRUNE_ENABLE} is set, records the prune upper bound of the region
+ *   after major compactions, which allows the tx service to prune the invalid list. Writes of transactions older
+ *   than {@link TxConstants.TransactionPruning#PRUNE_MAX_TX_LIFETIME} are then rejected.</li>
  * </ul>
  *
  * <p>In order to use this coprocessor for transactions, configure the class on any table involved in transactions,
@@ -96,8 +110,15 @@ public class TransactionProcessor extends BaseRegionObserver {
   private static final Log LOG = LogFactory.getLog(TransactionProcessor.class);
 
   private TransactionStateCache cache;
+  private TransactionDecodeCache decodeCache;
+  // null if invalid list pruning is disabled
+  private RegionPruneTracker pruneTracker;
+  // writes of transactions older than this are rejected, 0 if invalid list pruning is disabled
+  private long txMaxLifetimeMillis;
   private final TransactionCodec txCodec;
   protected Map<byte[], Long> ttlByFamily = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+  // column families that retain the versions in-progress transactions may still read on flush and compaction
+  protected Set<byte[]> retainInProgressVersionsFamilies = Sets.newTreeSet(Bytes.BYTES_COMPARATOR);
   protected boolean allowEmptyValues = TxConstants.ALLOW_EMPTY_VALUES_DEFAULT;
   protected boolean readNonTxnData = TxConstants.DEFAULT_READ_NON_TX_DATA;
 
@@ -113,6 +134,7 @@ public class TransactionProcessor extends BaseRegionObserver {
       RegionCoprocessorEnvironment env = (RegionCoprocessorEnvironment) e;
       Supplier<TransactionStateCache> cacheSupplier = getTransactionStateCacheSupplier(env);
       this.cache = cacheSupplier.get();
+      this.decodeCache = TransactionDecodeCache.get(env.getConfiguration());
 
       HTableDescriptor tableDesc = env.getRegion().getTableDesc();
       for (HColumnDescriptor columnDesc : tableDesc.getFamilies()) {
@@ -128,6 +150,12 @@ public class TransactionProcessor extends BaseRegionObserver {
           }
         }
         ttlByFamily.put(columnDesc.getName(), ttl);
+
+        if (Boolean.valueOf(columnDesc.getValue(TxConstants.PROPERTY_RETAIN_INPROGRESS_VERSIONS))) {
+          LOG.info("Family " + columnDesc.getNameAsString() +
+                     " retains the versions of in-progress transactions on flush and compaction");
+          retainInProgressVersionsFamilies.add(columnDesc.getName());
+        }
       }
 
       this.allowEmptyValues = env.getConfiguration().getBoolean(TxConstants.ALLOW_EMPTY_VALUES_KEY,
@@ -136,6 +164,22 @@ public class TransactionProcessor extends BaseRegionObserver {
       if (readNonTxnData) {
         LOG.info("Reading pre-existing data enabled for table " + tableDesc.getNameAsString());
       }
+
+      if (env.getConfiguration().getBoolean(TxConstants.TransactionPruning.PRUNE_ENABLE,
+                                            TxConstants.TransactionPruning.DEFAULT_PRUNE_ENABLE)) {
+        List<String> families = Lists.newArrayList();
+        for (HColumnDescriptor columnDesc : tableDesc.getFamilies()) {
+          families.add(columnDesc.getNameAsString());
+        }
+        this.txMaxLifetimeMillis =
+          TimeUnit.SECONDS.toMillis(env.getConfiguration().getLong(
+            TxConstants.TransactionPruning.PRUNE_MAX_TX_LIFETIME,
+            TxConstants.TransactionPruning.DEFAULT_PRUNE_MAX_TX_LIFETIME));
+        HRegionInfo regionInfo = env.getRegion().getRegionInfo();
+        this.pruneTracker = new RegionPruneTracker(regionInfo.getRegionName(), regionInfo.getRegionNameAsString(),
+                                                   families, PruneUpperBoundStores.create(env.getConfiguration()),
+                                                   txMaxLifetimeMillis);
+      }
     }
   }
 
@@ -148,6 +192,20 @@ public class TransactionProcessor extends BaseRegionObserver {
     // nothing to do
   }
 
+  @Override
+  public void postOpen(ObserverContext<RegionCoprocessorEnvironment> e) {
+    if (pruneTracker != null) {
+      pruneTracker.regionOpened();
+    }
+  }
+
+  @Override
+  public void postCompleteSplit(ObserverContext<RegionCoprocessorEnvironment> e) throws IOException {
+    if (pruneTracker != null) {
+      pruneTracker.regionSplit();
+    }
+  }
+
   @Override
   public void preGetOp(ObserverContext<RegionCoprocessorEnvironment> e, Get get, List<Cell> results)
     throws IOException {
@@ -162,6 +220,13 @@ public class TransactionProcessor extends BaseRegionObserver {
     }
   }
 
+  @Override
+  public void prePut(ObserverContext<RegionCoprocessorEnvironment> e, Put put, WALEdit edit, Durability durability)
+    throws IOException {
+    // transactional deletes are also written as puts
+    ensureValidTxLifetime(put);
+  }
+
   @Override
   public void preDelete(ObserverContext<RegionCoprocessorEnvironment> e, Delete delete, WALEdit edit,
                         Durability durability) throws IOException {
@@ -199,6 +264,54 @@ public class TransactionProcessor extends BaseRegionObserver {
     e.bypass();
   }
 
+  @Override
+  public Result preAppend(ObserverContext<RegionCoprocessorEnvironment> e, Append append) throws IOException {
+    // Row and family deletes are sent as flagged appends, so that the columns to delete are found here, without the
+    // client reading the row first. All columns visible to the transaction are overwritten with our own tombstones,
+    // and the deleted columns are returned to the client in place of the append result.
+    if (append.getAttribute(TxConstants.TX_DELETE_ATTRIBUTE_KEY) == null) {
+      return null;
+    }
+    Transaction tx = getFromOperation(append);
+    if (tx == null) {
+      throw new IOException("Transactional delete of row " + Bytes.toStringBinary(append.getRow()) +
+                              " is missing the transaction");
+    }
+
+    Get get = new Get(append.getRow());
+    Set<byte[]> families = append.getFamilyCellMap().keySet();
+    // an empty family name stands for all families of the row
+    if (!families.contains(HConstants.EMPTY_BYTE_ARRAY)) {
+      for (byte[] family : families) {
+        get.addFamily(family);
+      }
+    }
+    // the transaction filter is applied in preGetOp
+    get.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY,
+                     append.getAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY));
+    Result visible = e.getEnvironment().getRegion().get(get);
+
+    List<Cell> deleted = Lists.newArrayList();
+    if (!visible.isEmpty()) {
+      Put deleteMarkers = new Put(append.getRow(), tx.getWritePointer());
+      for (Cell cell : visible.rawCells()) {
+        byte[] family = CellUtil.cloneFamily(cell);
+        byte[] qualifier = CellUtil.cloneQualifier(cell);
+        deleteMarkers.add(family, qualifier, tx.getWritePointer(), HConstants.EMPTY_BYTE_ARRAY);
+        deleted.add(new KeyValue(append.getRow(), family, qualifier, tx.getWritePointer(),
+                                 HConstants.EMPTY_BYTE_ARRAY));
+      }
+      for (Map.Entry<String, byte[]> entry : append.getAttributesMap().entrySet()) {
+        deleteMarkers.setAttribute(entry.getKey(), entry.getValue());
+      }
+      deleteMarkers.setDurability(append.getDurability());
+      e.getEnvironment().getRegion().put(deleteMarkers);
+    }
+    // skip normal append handling
+    e.bypass();
+    return Result.create(deleted);
+  }
+
   private boolean isFamilyDelete(List<Cell> familyCells) {
     return familyCells.size() == 1 && CellUtil.isDeleteFamily(familyCells.get(0));
   }
@@ -256,6 +369,9 @@ public class TransactionProcessor extends BaseRegionObserver {
   public InternalScanner preFlushScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, Store store,
                                              KeyValueScanner memstoreScanner, InternalScanner scanner)
       throws IOException {
+    if (pruneTracker != null) {
+      pruneTracker.flushStarted(store.getColumnFamilyName());
+    }
     return createStoreScanner(c.getEnvironment(), "flush", cache.getLatestState(), store,
                               Collections.singletonList(memstoreScanner), ScanType.COMPACT_RETAIN_DELETES,
                               HConstants.OLDEST_TIMESTAMP);
@@ -266,8 +382,30 @@ public class TransactionProcessor extends BaseRegionObserver {
       List<? extends KeyValueScanner> scanners, ScanType scanType, long earliestPutTs, InternalScanner s,
       CompactionRequest request)
       throws IOException {
-    return createStoreScanner(c.getEnvironment(), "compaction", cache.getLatestState(), store, scanners,
-                              scanType, earliestPutTs);
+    TransactionVisibilityState snapshot = cache.getLatestState();
+    if (pruneTracker != null && scanType == ScanType.COMPACT_DROP_DELETES) {
+      // a major compaction, which removes the data of invalid transactions from all files of the store
+      pruneTracker.compactionStarted(store.getColumnFamilyName(), request, snapshot,
+                                     c.getEnvironment().getRegion().getMemstoreSize() == 0);
+    }
+    return createStoreScanner(c.getEnvironment(), "compaction", snapshot, store, scanners, scanType,
+                              earliestPutTs);
+  }
+
+  @Override
+  public void postFlush(ObserverContext<RegionCoprocessorEnvironment> e, Store store, StoreFile resultFile)
+    throws IOException {
+    if (pruneTracker != null) {
+      pruneTracker.flushCompleted(store.getColumnFamilyName());
+    }
+  }
+
+  @Override
+  public void postCompact(ObserverContext<RegionCoprocessorEnvironment> e, Store store, StoreFile resultFile,
+                          CompactionRequest request) throws IOException {
+    if (pruneTracker != null) {
+      pruneTracker.compactionCompleted(store.getColumnFamilyName(), request);
+    }
   }
 
   protected InternalScanner createStoreScanner(RegionCoprocessorEnvironment env, String action,
@@ -282,24 +420,48 @@ public class TransactionProcessor extends BaseRegionObserver {
       return null;
     }
 
-    // construct a dummy transaction from the latest snapshot
-    Transaction dummyTx = TxUtils.createDummyTransaction(snapshot);
+    // the dummy transaction for the snapshot is shared by all stores and regions
+    Transaction dummyTx = cache.getDummyTransaction(snapshot);
     Scan scan = new Scan();
     // need to see all versions, since we filter out excludes and applications may rely on multiple versions
     scan.setMaxVersions();
+    // by default only the newest visible version of a column is kept
+    long shadowedVersionBound = Long.MAX_VALUE;
+    if (retainInProgressVersionsFamilies.contains(store.getFamily().getName())) {
+      shadowedVersionBound = TxUtils.getShadowedVersionUpperBound(snapshot);
+    }
     scan.setFilter(
         new IncludeInProgressFilter(dummyTx.getVisibilityUpperBound(),
-            snapshot.getInvalid(),
-            getTransactionFilter(dummyTx, type, null)));
+            dummyTx.getInvalids(),
+            getTransactionFilter(dummyTx, type, null, shadowedVersionBound)));
 
     return new StoreScanner(store, store.getScanInfo(), scan, scanners,
                             type, store.getSmallestReadPoint(), earliestPutTs);
   }
 
+  /**
+   * Rejects the writes of a transaction that is older than the maximum transaction lifetime. Such a transaction may
+   * already have been removed from the invalid list by pruning, which would make its data visible.
+   */
+  private void ensureValidTxLifetime(OperationWithAttributes op) throws IOException {
+    if (txMaxLifetimeMillis <= 0) {
+      return;
+    }
+    Transaction tx = getFromOperation(op);
+    if (tx == null) {
+      return;
+    }
+    long txStartMillis = tx.getTransactionId() / TxConstants.MAX_TX_PER_MS;
+    if (txStartMillis < System.currentTimeMillis() - txMaxLifetimeMillis) {
+      throw new DoNotRetryIOException("Transaction " + tx.getTransactionId() + " exceeded the maximum lifetime of " +
+                                        txMaxLifetimeMillis + " ms and can no longer write");
+    }
+  }
+
   private Transaction getFromOperation(OperationWithAttributes op) throws IOException {
     byte[] encoded = op.getAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY);
     if (encoded != null) {
-      return txCodec.decode(encoded);
+      return decodeCache != null ? decodeCache.decode(encoded) : txCodec.decode(encoded);
     }
     return null;
   }
@@ -315,17 +477,34 @@ public class TransactionProcessor extends BaseRegionObserver {
     return TransactionFilters.getVisibilityFilter(tx, ttlByFamily, allowEmptyValues, type, filter);
   }
 
+  /**
+   * Returns the filter used on flush and compaction. Derived classes can override this method to customize it.
+   *
+   * @param tx the transaction for the current transaction state
+   * @param type the type of scan being performed
+   * @param shadowedVersionBound the version up to which a visible version shadows the older versions of its column,
+   *                             {@link Long#MAX_VALUE} if only the newest visible version is kept
+   */
+  protected Filter getTransactionFilter(Transaction tx, ScanType type, Filter filter, long shadowedVersionBound) {
+    if (shadowedVersionBound == Long.MAX_VALUE) {
+      return getTransactionFilter(tx, type, filter);
+    }
+    return TransactionFilters.getVisibilityFilter(tx, ttlByFamily, allowEmptyValues, type, filter,
+                                                  shadowedVersionBound);
+  }
+
   /**
    * Filter used to include cells visible to in-progress transactions on flush and commit.
    */
   static class IncludeInProgressFilter extends FilterBase {
     private final long visibilityUpperBound;
-    private final Set<Long> invalidIds;
+    // sorted
+    private final long[] invalidIds;
     private final Filter txFilter;
 
-    public IncludeInProgressFilter(long upperBound, Collection<Long> invalids, Filter transactionFilter) {
+    public IncludeInProgressFilter(long upperBound, long[] invalids, Filter transactionFilter) {
       this.visibilityUpperBound = upperBound;
-      this.invalidIds = Sets.newHashSet(invalids);
+      this.invalidIds = invalids;
       this.txFilter = transactionFilter;
     }
 
@@ -335,12 +514,23 @@ public class TransactionProcessor extends BaseRegionObserver {
       long ts = cell.getTimestamp();
       if (ts > visibilityUpperBound) {
         // include everything that could still be in-progress except invalids
-        if (invalidIds.contains(ts)) {
+        if (Arrays.binarySearch(invalidIds, ts) >= 0) {
           return ReturnCode.SKIP;
         }
         return ReturnCode.INCLUDE;
       }
       return txFilter.filterKeyValue(cell);
     }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public KeyValue getNextKeyHint(KeyValue currentKV) throws IOException {
+      return txFilter.getNextKeyHint(currentKV);
+    }
+
+    @Override
+    public Cell getNextCellHint(Cell currentKV) throws IOException {
+      return txFilter.getNextCellHint(currentKV);
+    }
   }
 }
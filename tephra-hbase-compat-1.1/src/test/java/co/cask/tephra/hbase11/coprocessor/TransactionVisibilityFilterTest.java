@@ -17,11 +17,13 @@
 package co.cask.tephra.hbase11.coprocessor;
 
 import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionType;
 import co.cask.tephra.TxConstants;
 import co.cask.tephra.hbase.AbstractTransactionVisibilityFilterTest;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterBase;
@@ -30,6 +32,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -338,6 +341,113 @@ public class TransactionVisibilityFilterTest extends AbstractTransactionVisibili
                  filter.filterKeyValue(newKeyValue("row1", FAM3, "val1", preNow - 1001L)));
   }
 
+  /**
+   * Test that consecutive invisible versions of a column are skipped by seeking to the next version that may be
+   * visible.
+   */
+  @Test
+  public void testSeekToNextVisibleVersion() throws Exception {
+    Transaction tx = new Transaction(100, 200, new long[] { 50, 51, 52, 53 }, new long[] { 54, 150 }, 54,
+                                     TransactionType.SHORT);
+    Map<byte[], Long> ttls = Collections.emptyMap();
+    Filter filter = new TransactionVisibilityFilter(tx, ttls, false, ScanType.USER_SCAN);
+
+    // versions above the read pointer
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row1", "val1", 190)));
+    KeyValue current = newKeyValue("row1", "val1", 180);
+    assertEquals(Filter.ReturnCode.SEEK_NEXT_USING_HINT, filter.filterKeyValue(current));
+    assertHint(current, 100, filter.getNextCellHint(current));
+    assertEquals(Filter.ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newKeyValue("row1", "val1", 100)));
+
+    // a run of excluded versions, the first invisible version of a column is always skipped
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row2", "val1", 54)));
+    current = newKeyValue("row2", "val1", 53);
+    assertEquals(Filter.ReturnCode.SEEK_NEXT_USING_HINT, filter.filterKeyValue(current));
+    assertHint(current, 49, filter.getNextCellHint(current));
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row3", "val1", 52)));
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row3", FAM2, "val1", 51)));
+
+    // no seek if the next version may be visible
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row4", "val1", 150)));
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row4", "val1", 101)));
+    assertEquals(Filter.ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newKeyValue("row4", "val1", 100)));
+
+    // no older version can be visible
+    tx = new Transaction(100, 200, new long[] { 0, 1, 2 }, new long[0], Transaction.NO_TX_IN_PROGRESS);
+    filter = new TransactionVisibilityFilter(tx, ttls, false, ScanType.USER_SCAN);
+    assertEquals(Filter.ReturnCode.SKIP, filter.filterKeyValue(newKeyValue("row1", "val1", 2)));
+    assertEquals(Filter.ReturnCode.NEXT_COL, filter.filterKeyValue(newKeyValue("row1", "val1", 1)));
+  }
+
+  /**
+   * Test that reading a column with many invisible versions only passes a few of them to the filter, if the seek
+   * hints of the filter are followed.
+   */
+  @Test
+  public void testSeekOverManyVersions() throws Exception {
+    int versions = 1000;
+    long readPointer = 100000L;
+    // versions of an in-progress transaction that checkpoints often, and of a run of invalid transactions
+    long[] inProgress = new long[versions];
+    long[] invalids = new long[versions];
+    for (int i = 0; i < versions; i++) {
+      inProgress[i] = readPointer + 1 + i;
+      invalids[i] = readPointer - versions + i;
+    }
+    Transaction tx = new Transaction(readPointer, readPointer + versions + 1, invalids, inProgress,
+                                     inProgress[0], TransactionType.SHORT);
+
+    assertEquals(3, countExamined(tx, inProgress, readPointer));
+    assertEquals(3, countExamined(tx, invalids, readPointer - versions - 1));
+  }
+
+  /**
+   * Simulates a scan of a column with the given invisible versions and one visible version, following the seek
+   * hints of the filter, until the visible version is included.
+   *
+   * @return the number of cells passed to the filter
+   */
+  private int countExamined(Transaction tx, long[] invisibleVersions, long visibleVersion) throws IOException {
+    // versions are sorted in descending order
+    long[] timestamps = new long[invisibleVersions.length + 1];
+    for (int i = 0; i < invisibleVersions.length; i++) {
+      timestamps[i] = invisibleVersions[invisibleVersions.length - 1 - i];
+    }
+    timestamps[invisibleVersions.length] = visibleVersion;
+
+    Map<byte[], Long> ttls = Collections.emptyMap();
+    Filter filter = new TransactionVisibilityFilter(tx, ttls, false, ScanType.USER_SCAN);
+    int examined = 0;
+    int index = 0;
+    while (true) {
+      assertTrue(index < timestamps.length);
+      KeyValue current = newKeyValue("row1", "val1", timestamps[index]);
+      examined++;
+      Filter.ReturnCode code = filter.filterKeyValue(current);
+      if (code == Filter.ReturnCode.INCLUDE_AND_NEXT_COL) {
+        assertEquals(visibleVersion, current.getTimestamp());
+        return examined;
+      }
+      if (code == Filter.ReturnCode.SEEK_NEXT_USING_HINT) {
+        long hintVersion = filter.getNextCellHint(current).getTimestamp();
+        while (timestamps[index] > hintVersion) {
+          index++;
+        }
+      } else {
+        assertEquals(Filter.ReturnCode.SKIP, code);
+        index++;
+      }
+    }
+  }
+
+  private void assertHint(Cell current, long expectedVersion, Cell hint) {
+    assertTrue(CellUtil.matchingRow(current, hint));
+    assertTrue(CellUtil.matchingFamily(current, hint));
+    assertTrue(CellUtil.matchingQualifier(current, hint));
+    assertEquals(expectedVersion, hint.getTimestamp());
+    assertEquals(KeyValue.Type.Maximum.getCode(), hint.getTypeByte());
+  }
+
   protected KeyValue newKeyValue(String rowkey, String value, long timestamp) {
     return new KeyValue(Bytes.toBytes(rowkey), FAM, COL, timestamp, Bytes.toBytes(value));
   }